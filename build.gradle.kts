@@ -28,11 +28,27 @@ sourceSets {
             srcDir("src/functional-test/java")
         }
     }
+    create("jmh") {
+        java {
+            compileClasspath += sourceSets.main.get().output
+            runtimeClasspath += sourceSets.main.get().output
+            srcDir("src/jmh/java")
+        }
+    }
+    create("load") {
+        java {
+            compileClasspath += sourceSets.main.get().output
+            runtimeClasspath += sourceSets.main.get().output
+            srcDir("src/load/java")
+        }
+    }
 }
 
 idea {
     module {
         testSources.from(sourceSets["functionalTest"].java.srcDirs)
+        testSources.from(sourceSets["jmh"].java.srcDirs)
+        testSources.from(sourceSets["load"].java.srcDirs)
     }
 }
 
@@ -44,6 +60,8 @@ val functionalTestRuntimeOnly: Configuration by configurations.getting
 configurations {
     configurations["functionalTestImplementation"].extendsFrom(configurations.testImplementation.get())
     configurations["functionalTestRuntimeOnly"].extendsFrom(configurations.testRuntimeOnly.get())
+    configurations["jmhImplementation"].extendsFrom(configurations.implementation.get())
+    configurations["loadImplementation"].extendsFrom(configurations.implementation.get())
 }
 
 
@@ -62,13 +80,46 @@ val functionalTest = task<Test>("functionalTest") {
     }
 }
 
+val jmh = task<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks, writing the results to build/reports/jmh/results.json. " +
+        "Pass JMH options with -PjmhArgs, for example -PjmhArgs='PricePlanServiceBenchmark -p plans=3'."
+    group = "verification"
+
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+    outputs.file(resultsFile)
+    doFirst {
+        resultsFile.get().asFile.parentFile.mkdirs()
+    }
+    args = listOf("-rf", "json", "-rff", resultsFile.get().asFile.path) +
+        (findProperty("jmhArgs")?.toString()?.split(" ")?.filter { it.isNotBlank() } ?: emptyList())
+}
+
+val loadTest = task<JavaExec>("loadTest") {
+    description = "Drives a running application with synthetic fleet traffic and reports throughput and latency. " +
+        "Pass options with -PloadArgs, for example -PloadArgs='--store-rate=500 --duration=PT1M'."
+    group = "verification"
+
+    classpath = sourceSets["load"].runtimeClasspath
+    mainClass.set("uk.tw.energy.load.LoadRunner")
+    args = findProperty("loadArgs")?.toString()?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
+
+val jmh_version: String by project
 
 dependencies {
     /* Spring Boot */
     implementation ("org.springframework.boot:spring-boot-starter-web")
+    implementation ("org.springframework.boot:spring-boot-starter-actuator")
+    runtimeOnly ("io.micrometer:micrometer-registry-prometheus")
     testImplementation("org.springframework.boot:spring-boot-starter-test") {
         exclude (group = "org.junit.vintage", module = "junit-vintage-engine")
     }
+
+    /* JMH */
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmh_version")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmh_version")
 }
 
 tasks.named<Test>("test") {
@@ -94,6 +94,21 @@ public class EndpointTest {
         assertThat(response.getBody()).containsExactly(Map.of("price-plan-2", 3600), Map.of("price-plan-1", 7200));
     }
 
+    @Test
+    public void shouldExposeIngestMetricsForScraping() {
+        MeterReadings meterReadings =
+                new MeterReadingsBuilder().generateElectricityReadings().build();
+        restTemplate.postForEntity("/readings/store", toHttpEntity(meterReadings), String.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .contains("readings_ingested_readings_total")
+                .contains("readings_batch_size_readings_bucket")
+                .contains("http_server_requests_seconds_bucket");
+    }
+
     private void populateReadingsForMeter(String smartMeterId, List<ElectricityReading> data) {
         MeterReadings readings = new MeterReadings(smartMeterId, data);
 
@@ -0,0 +1,98 @@
+package uk.tw.energy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import uk.tw.energy.builders.MeterReadingsBuilder;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.service.AccountService;
+import uk.tw.energy.service.MeterReadingService;
+
+/**
+ * Floods the fleet recommendation with many more callers than it has permits while readings are stored, and checks
+ * that every request storing readings succeeds while the surplus analytical requests are turned away.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = App.class,
+        properties = {"requests.analytics.max-concurrent=2", "requests.analytics.max-wait=PT0S"})
+public class RequestIsolationTest {
+
+    private static final int FLEET_SIZE = 20_000;
+    private static final int ANALYTICS_CALLERS = 32;
+    private static final long LOAD_MILLIS = 3_000;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private MeterReadingService meterReadingService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @BeforeEach
+    public void addFleet() {
+        ElectricityReadingsGenerator generator = new ElectricityReadingsGenerator();
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            String smartMeterId = "isolation-meter-" + i;
+            meterReadingService.storeReadings(smartMeterId, generator.generate(100));
+            accountService.setPricePlanId(smartMeterId, "price-plan-0");
+        }
+    }
+
+    @Test
+    public void shouldKeepStoringReadingsWhileAnalyticsAreSaturated() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LOAD_MILLIS);
+        List<Integer> analyticsStatuses = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> ingestStatuses = new ArrayList<>();
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> analytics = new ArrayList<>();
+            for (int i = 0; i < ANALYTICS_CALLERS; i++) {
+                analytics.add(callers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        ResponseEntity<String> response =
+                                restTemplate.getForEntity("/price-plans/recommend-fleet/summary", String.class);
+                        analyticsStatuses.add(response.getStatusCode().value());
+                    }
+                }));
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            while (System.nanoTime() < deadline) {
+                MeterReadings meterReadings =
+                        new MeterReadingsBuilder().generateElectricityReadings().build();
+                ResponseEntity<String> response = restTemplate.postForEntity(
+                        "/readings/store", new HttpEntity<>(meterReadings, headers), String.class);
+                ingestStatuses.add(response.getStatusCode().value());
+            }
+            for (Future<?> caller : analytics) {
+                caller.get();
+            }
+        }
+
+        assertThat(ingestStatuses).isNotEmpty().containsOnly(HttpStatus.OK.value());
+        assertThat(analyticsStatuses)
+                .contains(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .containsOnly(HttpStatus.OK.value(), HttpStatus.SERVICE_UNAVAILABLE.value());
+    }
+}
@@ -0,0 +1,56 @@
+package uk.tw.energy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+/**
+ * Reading bodies mapped with the application's {@link ObjectMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeterReadingsJsonBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int readings;
+
+    private ObjectMapper objectMapper;
+    private MeterReadings meterReadings;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void createReadings() throws IOException {
+        objectMapper = new SeedingApplicationDataConfiguration().objectMapper(new Jackson2ObjectMapperBuilder());
+        meterReadings = new MeterReadings("smart-meter-0", new ElectricityReadingsGenerator().generate(readings));
+        json = objectMapper.writeValueAsBytes(meterReadings);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(meterReadings);
+    }
+
+    @Benchmark
+    public MeterReadings deserialize() throws IOException {
+        return objectMapper.readValue(json, MeterReadings.class);
+    }
+}
@@ -0,0 +1,119 @@
+package uk.tw.energy.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.tw.energy.SeedingApplicationDataConfiguration;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * A {@code /readings/store} body decoded and stored, sent as JSON or as a binary frame holding the same readings. Every
+ * body after the first holds the same readings again, so storing it replaces them; both formats pay for that alike.
+ * The store starts empty every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MeterReadingsIngestBenchmark {
+
+    private static final String SMART_METER_ID = "smart-meter-0";
+
+    @Param({"10", "1000", "100000"})
+    public int readings;
+
+    private ObjectMapper objectMapper;
+    private MeterReadingsFrameConverter converter;
+    private MeterReadingService meterReadingService;
+    private byte[] json;
+    private byte[] frame;
+
+    @Setup(Level.Trial)
+    public void createBodies() throws IOException {
+        objectMapper = new SeedingApplicationDataConfiguration().objectMapper(new Jackson2ObjectMapperBuilder());
+        converter = new MeterReadingsFrameConverter();
+        MeterReadings meterReadings =
+                new MeterReadings(SMART_METER_ID, new ElectricityReadingsGenerator().generate(readings));
+        json = objectMapper.writeValueAsBytes(meterReadings);
+        ReadingBatch batch = new ReadingBatch(readings);
+        meterReadings.electricityReadings().forEach(batch::add);
+        FrameBody body = new FrameBody(new HttpHeaders(), new ByteArrayOutputStream());
+        converter.write(new MeterReadingsFrame(SMART_METER_ID, batch), MeterReadingsFrameConverter.MEDIA_TYPE, body);
+        frame = body.bytes().toByteArray();
+    }
+
+    @Setup(Level.Iteration)
+    public void createService() {
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+    }
+
+    @Benchmark
+    public void storeJson() throws IOException {
+        MeterReadings meterReadings = objectMapper.readValue(json, MeterReadings.class);
+        meterReadingService.storeReadings(meterReadings.smartMeterId(), meterReadings.electricityReadings());
+    }
+
+    @Benchmark
+    public void storeFrame() throws IOException {
+        MeterReadingsFrame meterReadings = converter.read(MeterReadingsFrame.class, new FrameMessage(frame));
+        meterReadingService.storeReadings(meterReadings.smartMeterId(), meterReadings.readings());
+    }
+
+    private record FrameMessage(byte[] body) implements HttpInputMessage {
+
+        private static final HttpHeaders HEADERS = new HttpHeaders();
+
+        static {
+            HEADERS.setContentType(MeterReadingsFrameConverter.MEDIA_TYPE);
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return HEADERS;
+        }
+    }
+
+    private record FrameBody(HttpHeaders headers, ByteArrayOutputStream bytes) implements HttpOutputMessage {
+
+        @Override
+        public OutputStream getBody() {
+            return bytes;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package uk.tw.energy.service;
+
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.ColumnarReadingStore;
+
+/**
+ * Batches stored per second, by one or more threads each storing to their own meter, or all to the same one. Every
+ * batch carries on after the one before it, as a meter's readings do, so batches are appended rather than merged or
+ * replacing readings already stored. The store starts empty every iteration so that it does not outgrow the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MeterReadingServiceBenchmark {
+
+    private static final String SHARED_SMART_METER_ID = "smart-meter-shared";
+    private static final AtomicLong SHARED_BATCHES = new AtomicLong();
+    private static final long READING_INTERVAL_SECONDS = 10;
+
+    @Param({"1", "100", "10000"})
+    public int batchSize;
+
+    private MeterReadingService meterReadingService;
+
+    @Setup(Level.Iteration)
+    public void createService() {
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        SHARED_BATCHES.set(0);
+    }
+
+    @State(Scope.Thread)
+    public static class Meter {
+
+        private static final AtomicInteger METERS = new AtomicInteger();
+
+        String smartMeterId;
+        List<ElectricityReading> readings;
+        long batches;
+
+        @Setup(Level.Trial)
+        public void createReadings(MeterReadingServiceBenchmark benchmark) {
+            smartMeterId = "smart-meter-" + METERS.incrementAndGet();
+            readings = new ElectricityReadingsGenerator().generate(benchmark.batchSize);
+        }
+
+        List<ElectricityReading> nextBatch() {
+            return batch(batches++);
+        }
+
+        /**
+         * The readings moved on by {@code batch} times the time they span, created as they are read like those of a
+         * request body.
+         */
+        List<ElectricityReading> batch(long batch) {
+            Duration shift = Duration.ofSeconds(READING_INTERVAL_SECONDS * readings.size() * batch);
+            return new AbstractList<>() {
+                @Override
+                public ElectricityReading get(int index) {
+                    ElectricityReading reading = readings.get(index);
+                    return new ElectricityReading(reading.time().plus(shift), reading.reading());
+                }
+
+                @Override
+                public int size() {
+                    return readings.size();
+                }
+            };
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void storeReadings(Meter meter) {
+        meterReadingService.storeReadings(meter.smartMeterId, meter.nextBatch());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void storeReadingsFrom4Threads(Meter meter) {
+        meterReadingService.storeReadings(meter.smartMeterId, meter.nextBatch());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void storeReadingsFrom16Threads(Meter meter) {
+        meterReadingService.storeReadings(meter.smartMeterId, meter.nextBatch());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void storeReadingsFrom16ThreadsToOneMeter(Meter meter) {
+        meterReadingService.storeReadings(SHARED_SMART_METER_ID, meter.batch(SHARED_BATCHES.getAndIncrement()));
+    }
+}
@@ -0,0 +1,98 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Costs of one meter against every plan. Whole history costs are served from the cost cache after the first call;
+ * costs in a range are calculated from the rollups and readings on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PricePlanServiceBenchmark {
+
+    private static final String SMART_METER_ID = "smart-meter-0";
+    private static final int READING_INTERVAL_SECONDS = 10;
+    private static final int CHUNK_SIZE = 65_536;
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int readings;
+
+    @Param({"3", "100", "10000"})
+    public int plans;
+
+    @Param({"BIG_DECIMAL", "FIXED_POINT"})
+    public CostEngine costEngine;
+
+    private PricePlanService pricePlanService;
+    private Instant from;
+    private Instant to;
+
+    @Setup(Level.Trial)
+    public void storeReadingsAndPlans() {
+        Random random = new Random(42);
+        ColumnarReadingStore readingStore = new ColumnarReadingStore();
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        ReadingBatch chunk = new ReadingBatch(CHUNK_SIZE);
+        for (int i = 0; i < readings; i++) {
+            chunk.add(start.getEpochSecond() + (long) i * READING_INTERVAL_SECONDS, 0, random.nextInt(20_000), 4);
+            if (chunk.size() == CHUNK_SIZE) {
+                readingStore.append(SMART_METER_ID, chunk);
+                chunk = new ReadingBatch(CHUNK_SIZE);
+            }
+        }
+        readingStore.append(SMART_METER_ID, chunk);
+
+        List<PricePlan> pricePlans = new ArrayList<>(plans);
+        for (int i = 0; i < plans; i++) {
+            pricePlans.add(new PricePlan(
+                    "price-plan-" + i, "supplier-" + i, BigDecimal.valueOf(1 + random.nextInt(100_000), 4), List.of()));
+        }
+        pricePlanService = new PricePlanService(
+                new PricePlanCatalogue(pricePlans, costEngine), new MeterReadingService(readingStore), 1_000);
+
+        long span = (long) readings * READING_INTERVAL_SECONDS;
+        from = start.plusSeconds(span / 4 + 3);
+        to = start.plusSeconds(3 * span / 4 + 7);
+    }
+
+    @Benchmark
+    public Optional<Map<String, BigDecimal>> compareAll() {
+        return pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID);
+    }
+
+    @Benchmark
+    public Optional<Map<String, BigDecimal>> compareAllInRange() {
+        return pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID, from, to);
+    }
+
+    @Benchmark
+    public Optional<List<Map.Entry<String, BigDecimal>>> recommendCheapestThree() {
+        return pricePlanService.recommendCheapestPricePlans(SMART_METER_ID, 3);
+    }
+}
@@ -0,0 +1,90 @@
+package uk.tw.energy.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single reading appends to the write-ahead log per second, for each {@link ReadingLog.Sync} mode. With
+ * {@code GROUP_COMMIT} the threads share forces, so compare it at one thread and at many.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadingLogBenchmark {
+
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    @Param({"EVERY_APPEND", "GROUP_COMMIT", "PERIODIC"})
+    public ReadingLog.Sync sync;
+
+    private Path directory;
+    private ReadingLog log;
+
+    @Setup(Level.Trial)
+    public void openLog() throws IOException {
+        directory = Files.createTempDirectory("reading-log-benchmark");
+        log = new ReadingLog(directory, SEGMENT_BYTES, sync, Duration.ofMillis(100));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() throws IOException {
+        log.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reading {
+
+        private static final AtomicInteger METERS = new AtomicInteger();
+
+        String smartMeterId;
+        ReadingBatch batch;
+
+        @Setup(Level.Trial)
+        public void createReading() {
+            smartMeterId = "smart-meter-" + METERS.incrementAndGet();
+            batch = new ReadingBatch(1);
+            batch.add(Instant.parse("2024-01-01T00:00:00Z").getEpochSecond(), 0, 503, 4);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long append(Reading reading) throws IOException {
+        return log.append(reading.smartMeterId, reading.batch);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long appendFrom16Threads(Reading reading) throws IOException {
+        return log.append(reading.smartMeterId, reading.batch);
+    }
+}
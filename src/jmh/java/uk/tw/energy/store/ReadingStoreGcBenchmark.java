@@ -0,0 +1,148 @@
+package uk.tw.energy.store;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.tw.energy.domain.MeterReadingAggregate;
+
+/**
+ * Garbage collection cost of a fleet's readings held on the heap against held in direct memory by
+ * {@link OffHeapReadingStore}. A full collection marks and moves every block on the heap, so its pause grows with the
+ * readings held there. {@code rangeAggregate} serves range queries, which decode blocks, and reports the collections
+ * and pause milliseconds of each iteration as {@code gcCount} and {@code gcPauseMillis}.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class ReadingStoreGcBenchmark {
+
+    private static final long START = Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+    private static final int INTERVAL_SECONDS = 10;
+    private static final int BATCH_SIZE = 1000;
+
+    public enum Memory {
+        HEAP,
+        OFF_HEAP
+    }
+
+    @Param({"HEAP", "OFF_HEAP"})
+    public Memory memory;
+
+    @Param({"1000"})
+    public int meters;
+
+    @Param({"50000"})
+    public int readingsPerMeter;
+
+    private ColumnarReadingStore store;
+
+    @Setup(Level.Trial)
+    public void fillStore() {
+        store = memory == Memory.HEAP ? new ColumnarReadingStore() : new OffHeapReadingStore(4 * 1024 * 1024);
+        Random random = new Random(42);
+        ReadingBatch batch = new ReadingBatch(BATCH_SIZE);
+        for (int meter = 0; meter < meters; meter++) {
+            for (int stored = 0; stored < readingsPerMeter; stored += batch.size()) {
+                batch.clear();
+                for (int i = stored; i < Math.min(readingsPerMeter, stored + BATCH_SIZE); i++) {
+                    batch.add(START + (long) INTERVAL_SECONDS * i, 0, random.nextInt(20_000), 4);
+                }
+                store.append("smart-meter-" + meter, batch);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeStore() {
+        if (store instanceof OffHeapReadingStore offHeap) {
+            offHeap.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Query {
+
+        private final Random random = new Random(7);
+    }
+
+    /**
+     * Only counts collectors that pause the application; since JDK 20 G1 also reports its concurrent cycles.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class GcCounters {
+
+        private static final List<GarbageCollectorMXBean> COLLECTORS =
+                ManagementFactory.getGarbageCollectorMXBeans().stream()
+                        .filter(collector -> !collector.getName().contains("Concurrent"))
+                        .toList();
+
+        public long gcCount;
+        public long gcPauseMillis;
+
+        private long countAtStart;
+        private long millisAtStart;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            countAtStart = COLLECTORS.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+            millisAtStart = COLLECTORS.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+            gcCount = 0;
+            gcPauseMillis = 0;
+        }
+
+        void update() {
+            long count = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean collector : COLLECTORS) {
+                count += collector.getCollectionCount();
+                millis += collector.getCollectionTime();
+            }
+            gcCount = count - countAtStart;
+            gcPauseMillis = millis - millisAtStart;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 10)
+    public void fullCollection() {
+        System.gc();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public MeterReadingAggregate rangeAggregate(Query query, GcCounters gc) {
+        String smartMeterId = "smart-meter-" + query.random.nextInt(meters);
+        long span = (long) INTERVAL_SECONDS * readingsPerMeter;
+        long fromSecond = START + (long) (query.random.nextDouble() * span);
+        long toSecond = fromSecond + 1 + (long) (query.random.nextDouble() * (START + span - fromSecond));
+        // off the minute, so that the edges are answered from raw readings
+        Instant from = Instant.ofEpochSecond(fromSecond, 500_000_000);
+        Instant to = Instant.ofEpochSecond(toSecond);
+        MeterReadingAggregate aggregate = store.getAggregate(smartMeterId, from, to).orElseThrow();
+        gc.update();
+        return aggregate;
+    }
+}
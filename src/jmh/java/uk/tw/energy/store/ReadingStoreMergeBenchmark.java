@@ -0,0 +1,115 @@
+package uk.tw.energy.store;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A batch appended to a meter that holds a day of readings already: one that carries on in order after the latest
+ * reading, the same shuffled, one that also carries a tenth of stragglers that belong between the readings of the
+ * batch before it, and a retry of the latest batch, which replaces readings rather than adding any. Filling the batch
+ * is measured too, the same for all of them. The meter starts afresh every iteration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReadingStoreMergeBenchmark {
+
+    private static final String SMART_METER_ID = "smart-meter-0";
+    private static final long START = Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+    private static final int INTERVAL_SECONDS = 10;
+    private static final int HISTORY = 8_640;
+
+    @Param({"10", "100", "1000"})
+    public int batchSize;
+
+    private ColumnarReadingStore store;
+    private ReadingBatch batch;
+    private int[] shuffled;
+    private long nextSlot;
+    private long previousSlot;
+
+    @Setup(Level.Iteration)
+    public void fillStore() {
+        store = new ColumnarReadingStore();
+        batch = new ReadingBatch(batchSize);
+        nextSlot = 0;
+        while (nextSlot < HISTORY) {
+            inOrder();
+        }
+        List<Integer> order = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(7));
+        shuffled = order.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Benchmark
+    public void inOrder() {
+        batch.clear();
+        for (int i = 0; i < batchSize; i++) {
+            add(nextSlot + i, 0);
+        }
+        append(batchSize);
+    }
+
+    @Benchmark
+    public void shuffled() {
+        batch.clear();
+        for (int i = 0; i < batchSize; i++) {
+            add(nextSlot + shuffled[i], 0);
+        }
+        append(batchSize);
+    }
+
+    @Benchmark
+    public void withStragglers() {
+        int stragglers = Math.max(1, batchSize / 10);
+        batch.clear();
+        for (int i = 0; i < stragglers; i++) {
+            add(previousSlot + i, INTERVAL_SECONDS / 2);
+        }
+        for (int i = 0; i < batchSize - stragglers; i++) {
+            add(nextSlot + i, 0);
+        }
+        append(batchSize - stragglers);
+    }
+
+    @Benchmark
+    public void retry() {
+        batch.clear();
+        for (int i = 0; i < batchSize; i++) {
+            add(nextSlot - batchSize + i, 0);
+        }
+        store.append(SMART_METER_ID, batch);
+    }
+
+    private void add(long slot, int offsetSeconds) {
+        batch.add(START + slot * INTERVAL_SECONDS + offsetSeconds, 0, slot % 20_000, 4);
+    }
+
+    private void append(int slots) {
+        store.append(SMART_METER_ID, batch);
+        previousSlot = nextSlot;
+        nextSlot += slots;
+    }
+}
@@ -0,0 +1,256 @@
+package uk.tw.energy.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.tw.energy.SeedingApplicationDataConfiguration;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.generator.FleetGenerator;
+import uk.tw.energy.ingest.MeterReadingsFrame;
+import uk.tw.energy.ingest.MeterReadingsFrameConverter;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Drives a running application with the traffic of a synthetic fleet: readings stored to {@code /readings/store} and
+ * price plans compared and recommended, each at its own target rate, then reports the throughput and latency
+ * percentiles of both.
+ *
+ * <p>Requests are sent open loop: the {@code n}th request of a workload is due {@code n / rate} seconds after the
+ * start whether or not earlier ones have been answered, and its latency is counted from when it was due. A slow server
+ * therefore shows up as high latency rather than as a lower rate that hides it.
+ *
+ * <p>The fleet is the one the application seeds with {@code readings.seed.fleet.*}; keep the seed, meters, start and
+ * interval the same on both sides. Stored readings carry on from {@code --first-reading}, so they arrive in order
+ * after the seeded ones. Options are given as {@code --name=value}:
+ *
+ * <pre>
+ * --base-url=http://localhost:8080  --duration=PT30S       --max-in-flight=1000
+ * --seed=42  --meters=1000  --start=2024-01-01T00:00:00Z  --interval=PT1M  --first-reading=1440
+ * --store-rate=100  --readings-per-request=100  --format=json|binary  --price-plan-rate=50
+ * </pre>
+ */
+public final class LoadRunner {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<String, String> options;
+    private final URI baseUrl;
+    private final FleetGenerator fleet;
+    private final ObjectMapper objectMapper =
+            new SeedingApplicationDataConfiguration().objectMapper(new Jackson2ObjectMapperBuilder());
+    private final MeterReadingsFrameConverter frameConverter = new MeterReadingsFrameConverter();
+
+    private LoadRunner(Map<String, String> options) {
+        this.options = options;
+        this.baseUrl = URI.create(option("base-url", "http://localhost:8080"));
+        this.fleet = new FleetGenerator(
+                Long.parseLong(option("seed", "42")),
+                Integer.parseInt(option("meters", "1000")),
+                Instant.parse(option("start", "2024-01-01T00:00:00Z")),
+                Duration.parse(option("interval", "PT1M")));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadRunner(options).run();
+    }
+
+    private void run() throws InterruptedException {
+        Duration duration = Duration.parse(option("duration", "PT30S"));
+        List<Workload> workloads = new ArrayList<>();
+        double storeRate = Double.parseDouble(option("store-rate", "100"));
+        if (storeRate > 0) {
+            workloads.add(new Workload("store", storeRate, storeRequests()));
+        }
+        double pricePlanRate = Double.parseDouble(option("price-plan-rate", "50"));
+        if (pricePlanRate > 0) {
+            workloads.add(new Workload("price-plans", pricePlanRate, pricePlanRequests()));
+        }
+
+        Semaphore inFlight = new Semaphore(Integer.parseInt(option("max-in-flight", "1000")));
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor();
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .executor(requests)
+                        .build()) {
+            List<Thread> schedulers = new ArrayList<>();
+            for (Workload workload : workloads) {
+                schedulers.add(Thread.ofPlatform()
+                        .name("load-" + workload.name)
+                        .start(() -> workload.schedule(client, requests, inFlight, start, end)));
+            }
+            for (Thread scheduler : schedulers) {
+                scheduler.join();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(
+                "%-12s %10s %10s %8s %8s %10s %9s %9s %9s %9s %9s%n",
+                "workload", "sent", "ok", "failed", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms",
+                "max ms");
+        for (Workload workload : workloads) {
+            workload.report(seconds);
+        }
+    }
+
+    /**
+     * The {@code n}th request stores the next readings of meter {@code n % meters}.
+     */
+    private LongFunction<HttpRequest> storeRequests() {
+        int readingsPerRequest = Integer.parseInt(option("readings-per-request", "100"));
+        long firstReading = Long.parseLong(option("first-reading", "1440"));
+        boolean binary = option("format", "json").equals("binary");
+        String contentType = binary ? MeterReadingsFrameConverter.MEDIA_TYPE_VALUE : "application/json";
+        URI uri = baseUrl.resolve("/readings/store");
+        return n -> {
+            int meter = (int) (n % fleet.meters());
+            long reading = firstReading + n / fleet.meters() * readingsPerRequest;
+            String smartMeterId = fleet.smartMeterId(meter);
+            byte[] body;
+            try {
+                body = binary
+                        ? frame(smartMeterId, meter, reading, readingsPerRequest)
+                        : objectMapper.writeValueAsBytes(new MeterReadings(
+                                smartMeterId, fleet.generate(meter, reading, readingsPerRequest)));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return HttpRequest.newBuilder(uri)
+                    .header("Content-Type", contentType)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+        };
+    }
+
+    /**
+     * Requests alternate between comparing and recommending plans, for meters picked at random from the seed.
+     */
+    private LongFunction<HttpRequest> pricePlanRequests() {
+        long seed = Long.parseLong(option("seed", "42"));
+        return n -> {
+            String smartMeterId = fleet.smartMeterId(new SplittableRandom(seed + n).nextInt(fleet.meters()));
+            String path = n % 2 == 0 ? "/price-plans/compare-all/" : "/price-plans/recommend/";
+            return HttpRequest.newBuilder(baseUrl.resolve(path + smartMeterId))
+                    .GET()
+                    .build();
+        };
+    }
+
+    private byte[] frame(String smartMeterId, int meter, long firstReading, int count) throws IOException {
+        ReadingBatch readings = new ReadingBatch(count);
+        fleet.generate(meter, firstReading, count, readings);
+        FrameBody body = new FrameBody(new HttpHeaders(), new ByteArrayOutputStream());
+        frameConverter.write(
+                new MeterReadingsFrame(smartMeterId, readings), MeterReadingsFrameConverter.MEDIA_TYPE, body);
+        return body.bytes().toByteArray();
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private static final class Workload {
+
+        private final String name;
+        private final long periodNanos;
+        private final LongFunction<HttpRequest> requests;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final AtomicLong ok = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private long sent;
+
+        Workload(String name, double rate, LongFunction<HttpRequest> requests) {
+            this.name = name;
+            this.periodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+            this.requests = requests;
+        }
+
+        /**
+         * Sends every request when it is due until {@code end}, waiting for a permit when too many are in flight.
+         */
+        void schedule(HttpClient client, ExecutorService executor, Semaphore inFlight, long start, long end) {
+            for (long n = 0; ; n++) {
+                long due = start + n * periodNanos;
+                if (due >= end) {
+                    return;
+                }
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquireUninterruptibly();
+                long request = n;
+                sent++;
+                executor.execute(() -> {
+                    try {
+                        HttpResponse<Void> response =
+                                client.send(requests.apply(request), HttpResponse.BodyHandlers.discarding());
+                        (response.statusCode() / 100 == 2 ? ok : failed).incrementAndGet();
+                    } catch (IOException | RuntimeException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        errors.incrementAndGet();
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        latencies.record(System.nanoTime() - due);
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+
+        void report(double seconds) {
+            System.out.printf(
+                    "%-12s %10d %10d %8d %8d %10.1f", name, sent, ok.get(), failed.get(), errors.get(), sent / seconds);
+            for (double percentile : PERCENTILES) {
+                System.out.printf(" %9.2f", latencies.percentile(percentile) / 1e6);
+            }
+            System.out.printf(" %9.2f%n", latencies.max() / 1e6);
+        }
+    }
+
+    private record FrameBody(HttpHeaders headers, ByteArrayOutputStream bytes) implements HttpOutputMessage {
+
+        @Override
+        public OutputStream getBody() {
+            return bytes;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package uk.tw.energy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uk.tw.energy.controller.ConcurrencyLimitInterceptor;
+
+/**
+ * Keeps long analytical requests from crowding out ingestion. Requests run on virtual threads, so a thread pool no
+ * longer bounds how many are handled at once; instead ingestion and analytics each get their own number of permits,
+ * and analytics give up quickly when all of theirs are taken.
+ *
+ * <p>Virtual threads are not preempted, so analytics computing on more virtual threads than there are processors
+ * would hold every carrier thread. By default analytics get half the processors, leaving the rest to ingestion.
+ */
+@Configuration
+public class RequestConcurrencyConfiguration implements WebMvcConfigurer {
+
+    static final String[] INGEST_PATHS = {"/readings/store", "/readings/store-stream", "/readings/store-batch"};
+    static final String[] ANALYTICS_PATHS = {
+        "/price-plans/compare-all/**",
+        "/price-plans/recommend/**",
+        "/price-plans/recommend-fleet/**",
+        "/price-plans/summary/**"
+    };
+
+    private static final String HALF_THE_PROCESSORS =
+            "#{T(java.lang.Math).max(1, T(java.lang.Runtime).getRuntime().availableProcessors() / 2)}";
+
+    private final ConcurrencyLimitInterceptor ingestLimit;
+    private final ConcurrencyLimitInterceptor analyticsLimit;
+
+    public RequestConcurrencyConfiguration(
+            MeterRegistry meterRegistry,
+            @Value("${requests.ingest.max-concurrent:256}") int ingestMaxConcurrent,
+            @Value("${requests.ingest.max-wait:PT1S}") Duration ingestMaxWait,
+            @Value("${requests.analytics.max-concurrent:" + HALF_THE_PROCESSORS + "}") int analyticsMaxConcurrent,
+            @Value("${requests.analytics.max-wait:PT0.1S}") Duration analyticsMaxWait) {
+        this.ingestLimit = new ConcurrencyLimitInterceptor("ingest", ingestMaxConcurrent, ingestMaxWait, meterRegistry);
+        this.analyticsLimit =
+                new ConcurrencyLimitInterceptor("analytics", analyticsMaxConcurrent, analyticsMaxWait, meterRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(ingestLimit).addPathPatterns(INGEST_PATHS);
+        registry.addInterceptor(analyticsLimit).addPathPatterns(ANALYTICS_PATHS);
+    }
+}
@@ -4,18 +4,30 @@ import static java.util.Collections.emptyList;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
-import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.PricePlan;
 import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.generator.FleetGenerator;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.DurableReadingStore;
+import uk.tw.energy.store.OffHeapReadingStore;
+import uk.tw.energy.store.ReadingLog;
+import uk.tw.energy.store.ReadingSnapshots;
+import uk.tw.energy.store.ReadingStore;
 
 @Configuration
 public class SeedingApplicationDataConfiguration {
@@ -23,6 +35,9 @@ public class SeedingApplicationDataConfiguration {
     private static final String MOST_EVIL_PRICE_PLAN_ID = "price-plan-0";
     private static final String RENEWABLES_PRICE_PLAN_ID = "price-plan-1";
     private static final String STANDARD_PRICE_PLAN_ID = "price-plan-2";
+    private static final List<String> PRICE_PLAN_IDS =
+            List.of(MOST_EVIL_PRICE_PLAN_ID, RENEWABLES_PRICE_PLAN_ID, STANDARD_PRICE_PLAN_ID);
+    private static final int FLEET_SEED_BATCH_SIZE = 4096;
 
     @Bean
     public List<PricePlan> pricePlans() {
@@ -33,24 +48,95 @@ public class SeedingApplicationDataConfiguration {
         return pricePlans;
     }
 
+    /**
+     * Without a {@code readings.log.directory} readings only live in memory and are seeded on every start. With one,
+     * every append is logged there, snapshots are written there, and both are recovered on start; readings are only
+     * seeded when there is nothing to recover.
+     *
+     * <p>With {@code readings.store.off-heap.enabled} the compressed readings are kept in direct memory.
+     *
+     * <p>Seeding also stores the first {@code readings.seed.fleet.readings-per-meter} readings of every meter in the
+     * synthetic fleet, generated in parallel.
+     */
     @Bean
-    public Map<String, List<ElectricityReading>> perMeterElectricityReadings() {
-        final Map<String, List<ElectricityReading>> readings = new HashMap<>();
+    public ReadingStore perMeterElectricityReadings(
+            Map<String, String> smartMeterToPricePlanAccounts,
+            FleetGenerator syntheticFleet,
+            @Value("${readings.seed.fleet.readings-per-meter:1440}") long fleetReadingsPerMeter,
+            @Value("${readings.log.directory:}") String logDirectory,
+            @Value("${readings.log.segment-bytes:67108864}") long segmentBytes,
+            @Value("${readings.log.sync:GROUP_COMMIT}") ReadingLog.Sync sync,
+            @Value("${readings.log.sync-interval:PT0.1S}") Duration syncInterval,
+            @Value("${readings.store.off-heap.enabled:false}") boolean offHeap,
+            @Value("${readings.store.off-heap.slab-bytes:4194304}") int slabBytes)
+            throws IOException {
+        final ColumnarReadingStore readings =
+                offHeap ? new OffHeapReadingStore(slabBytes) : new ColumnarReadingStore();
+        if (logDirectory.isEmpty()) {
+            seed(readings, smartMeterToPricePlanAccounts, syntheticFleet, fleetReadingsPerMeter);
+            return readings;
+        }
+        final Path directory = Path.of(logDirectory);
+        final DurableReadingStore durableReadings = new DurableReadingStore(
+                readings,
+                new ReadingLog(directory, segmentBytes, sync, syncInterval),
+                new ReadingSnapshots(directory));
+        if (!durableReadings.recover()) {
+            seed(durableReadings, smartMeterToPricePlanAccounts, syntheticFleet, fleetReadingsPerMeter);
+        }
+        return durableReadings;
+    }
+
+    private void seed(
+            ReadingStore readings,
+            Map<String, String> smartMeterToPricePlanAccounts,
+            FleetGenerator syntheticFleet,
+            long fleetReadingsPerMeter) {
         final ElectricityReadingsGenerator electricityReadingsGenerator = new ElectricityReadingsGenerator();
-        smartMeterToPricePlanAccounts()
-                .keySet()
-                .forEach(smartMeterId -> readings.put(smartMeterId, electricityReadingsGenerator.generate(20)));
-        return readings;
+        smartMeterToPricePlanAccounts.keySet().stream()
+                .filter(smartMeterId -> !syntheticFleet.isFleetMeter(smartMeterId))
+                .forEach(smartMeterId -> readings.append(smartMeterId, electricityReadingsGenerator.generate(20)));
+        syntheticFleet.generateInParallel(fleetReadingsPerMeter, FLEET_SEED_BATCH_SIZE, readings::append);
+    }
+
+    /**
+     * A deterministic fleet of {@code readings.seed.fleet.meters} meters, none by default, to try the application at
+     * scale with.
+     */
+    @Bean
+    public FleetGenerator syntheticFleet(
+            @Value("${readings.seed.fleet.meters:0}") int meters,
+            @Value("${readings.seed.fleet.seed:42}") long seed,
+            @Value("${readings.seed.fleet.start:2024-01-01T00:00:00Z}") Instant start,
+            @Value("${readings.seed.fleet.interval:PT1M}") Duration interval) {
+        return new FleetGenerator(seed, meters, start, interval);
     }
 
+    /**
+     * Taken from the accounts last saved in {@code readings.log.directory} when there are any. Otherwise every meter
+     * of the synthetic fleet gets an account too.
+     */
     @Bean
-    public Map<String, String> smartMeterToPricePlanAccounts() {
+    public Map<String, String> smartMeterToPricePlanAccounts(
+            @Value("${readings.log.directory:}") String logDirectory, FleetGenerator syntheticFleet)
+            throws IOException {
+        if (!logDirectory.isEmpty()) {
+            Optional<Map<String, String>> snapshotAccounts =
+                    new ReadingSnapshots(Path.of(logDirectory)).latestAccounts();
+            if (snapshotAccounts.isPresent()) {
+                return snapshotAccounts.get();
+            }
+        }
         final Map<String, String> smartMeterToPricePlanAccounts = new HashMap<>();
         smartMeterToPricePlanAccounts.put("smart-meter-0", MOST_EVIL_PRICE_PLAN_ID);
         smartMeterToPricePlanAccounts.put("smart-meter-1", RENEWABLES_PRICE_PLAN_ID);
         smartMeterToPricePlanAccounts.put("smart-meter-2", MOST_EVIL_PRICE_PLAN_ID);
         smartMeterToPricePlanAccounts.put("smart-meter-3", STANDARD_PRICE_PLAN_ID);
         smartMeterToPricePlanAccounts.put("smart-meter-4", RENEWABLES_PRICE_PLAN_ID);
+        for (int meter = 0; meter < syntheticFleet.meters(); meter++) {
+            smartMeterToPricePlanAccounts.put(
+                    syntheticFleet.smartMeterId(meter), syntheticFleet.pricePlanId(meter, PRICE_PLAN_IDS));
+        }
         return smartMeterToPricePlanAccounts;
     }
 
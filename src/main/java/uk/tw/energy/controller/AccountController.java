@@ -0,0 +1,46 @@
+package uk.tw.energy.controller;
+
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import uk.tw.energy.service.AccountService;
+import uk.tw.energy.service.PricePlanCatalogue;
+
+@RestController
+@RequestMapping("/accounts")
+public class AccountController {
+
+    private final AccountService accountService;
+    private final PricePlanCatalogue pricePlanCatalogue;
+
+    public AccountController(AccountService accountService, PricePlanCatalogue pricePlanCatalogue) {
+        this.accountService = accountService;
+        this.pricePlanCatalogue = pricePlanCatalogue;
+    }
+
+    /**
+     * Puts each smart meter in the body on its price plan, opening accounts for meters that have none. Nothing is
+     * switched when any of the plans is not in the catalogue.
+     */
+    @PutMapping
+    public ResponseEntity<Void> updateAccounts(@RequestBody Map<String, String> accounts) {
+        if (!isAccountsValid(accounts)) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        accountService.updateAccounts(accounts);
+        return ResponseEntity.noContent().build();
+    }
+
+    private boolean isAccountsValid(Map<String, String> accounts) {
+        return accounts != null
+                && accounts.entrySet().stream()
+                        .allMatch(account -> account.getKey() != null
+                                && !account.getKey().isEmpty()
+                                && account.getValue() != null
+                                && pricePlanCatalogue.get(account.getValue()).isPresent());
+    }
+}
@@ -0,0 +1,89 @@
+package uk.tw.energy.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Caps how many requests of one kind of workload are handled at once. A request waits up to the given time for a
+ * permit and is turned away with 503 Service Unavailable when none frees up, rather than queueing behind work of its
+ * own kind.
+ *
+ * <p>The permit is held until the response is complete, including a body that is streamed after the handler returned.
+ * Rejections are counted as {@code requests.rejected} and requests holding a permit reported as
+ * {@code requests.in-flight}, both tagged with the workload.
+ */
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final String permitAttribute;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+    private final Counter rejected;
+
+    public ConcurrencyLimitInterceptor(
+            String workload, int maxConcurrent, Duration maxWait, MeterRegistry meterRegistry) {
+        this.permitAttribute = ConcurrencyLimitInterceptor.class.getName() + "." + workload;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.rejected = Counter.builder("requests.rejected")
+                .description("Requests turned away for want of a permit")
+                .tag("workload", workload)
+                .register(meterRegistry);
+        Gauge.builder("requests.in-flight", this, ConcurrencyLimitInterceptor::inFlight)
+                .description("Requests holding a permit")
+                .tag("workload", workload)
+                .register(meterRegistry);
+    }
+
+    /**
+     * A request dispatched again to complete a streamed body already holds its permit.
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(permitAttribute) != null) {
+            return true;
+        }
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            return false;
+        }
+        request.setAttribute(permitAttribute, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * Not called once a handler starts streaming its body, but only after the body is complete.
+     */
+    @Override
+    public void afterCompletion(
+            HttpServletRequest request, HttpServletResponse response, Object handler, Exception exception) {
+        if (request.getAttribute(permitAttribute) != null) {
+            request.removeAttribute(permitAttribute);
+            permits.release();
+        }
+    }
+
+    int inFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+}
@@ -1,38 +1,139 @@
 package uk.tw.energy.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.tw.energy.domain.BatchIngestResult;
 import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadingAggregate;
 import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.domain.ReadingRollup;
+import uk.tw.energy.domain.ReadingsPage;
+import uk.tw.energy.domain.RollupTier;
+import uk.tw.energy.ingest.AsyncReadingIngest;
+import uk.tw.energy.ingest.MeterReadingsFrame;
+import uk.tw.energy.ingest.MeterReadingsFrameConverter;
+import uk.tw.energy.ingest.StreamingMeterReadingsReader;
 import uk.tw.energy.service.MeterReadingService;
 
 @RestController
 @RequestMapping("/readings")
 public class MeterReadingController {
 
+    public static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+
+    static final int STREAM_FLUSH_READINGS = 1024;
+
     private final MeterReadingService meterReadingService;
+    private final StreamingMeterReadingsReader streamingMeterReadingsReader;
+    private final AsyncReadingIngest asyncReadingIngest;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter readingWriter;
 
-    public MeterReadingController(MeterReadingService meterReadingService) {
+    public MeterReadingController(
+            MeterReadingService meterReadingService,
+            StreamingMeterReadingsReader streamingMeterReadingsReader,
+            AsyncReadingIngest asyncReadingIngest,
+            ObjectMapper objectMapper) {
         this.meterReadingService = meterReadingService;
+        this.streamingMeterReadingsReader = streamingMeterReadingsReader;
+        this.asyncReadingIngest = asyncReadingIngest;
+        this.objectMapper = objectMapper;
+        this.readingWriter = objectMapper
+                .writerFor(ElectricityReading.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
+    /**
+     * With asynchronous ingest on, readings are answered with 202 Accepted once they are queued, or 429 Too Many
+     * Requests when the queue is full; more readings than fit in a queue slot are still stored straight away.
+     */
     @PostMapping("/store")
     public ResponseEntity storeReadings(@RequestBody MeterReadings meterReadings) {
         if (!isMeterReadingsValid(meterReadings)) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
+        if (asyncReadingIngest.accepts(meterReadings.electricityReadings())) {
+            return offerReadings(meterReadings);
+        }
         meterReadingService.storeReadings(meterReadings.smartMeterId(), meterReadings.electricityReadings());
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * The binary alternative to a JSON body, decoded by {@link MeterReadingsFrameConverter}. Its readings are always
+     * stored straight away, as they are never turned into a list of readings to queue.
+     */
+    @PostMapping(value = "/store", consumes = MeterReadingsFrameConverter.MEDIA_TYPE_VALUE)
+    public ResponseEntity storeReadingsFrame(@RequestBody MeterReadingsFrame frame) {
+        if (frame.smartMeterId().isEmpty() || frame.readings().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        meterReadingService.storeReadings(frame.smartMeterId(), frame.readings());
+        return ResponseEntity.ok().build();
+    }
+
+    private ResponseEntity offerReadings(MeterReadings meterReadings) {
+        AsyncReadingIngest.Offer offer;
+        try {
+            offer = asyncReadingIngest.offer(meterReadings.smartMeterId(), meterReadings.electricityReadings());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        return switch (offer) {
+            case ACCEPTED -> ResponseEntity.accepted().build();
+            case FULL -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+            case STOPPED -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        };
+    }
+
+    /**
+     * Readings are stored in chunks as the body is read, so a body that is malformed part way through is answered with
+     * 500 but keeps the chunks stored before that. The smart meter id has to come before more than a chunk of readings.
+     */
+    @PostMapping(value = "/store-stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity storeStreamedReadings(InputStream body) throws IOException {
+        int stored;
+        try {
+            stored = streamingMeterReadingsReader.readAndStore(body);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        return stored > 0
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    }
+
+    @PostMapping("/store-batch")
+    public ResponseEntity<BatchIngestResult> storeBatchOfReadings(@RequestBody List<MeterReadings> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        return ResponseEntity.ok(meterReadingService.storeReadings(batch));
+    }
+
     private boolean isMeterReadingsValid(MeterReadings meterReadings) {
         String smartMeterId = meterReadings.smartMeterId();
         List<ElectricityReading> electricityReadings = meterReadings.electricityReadings();
@@ -43,10 +144,112 @@ public class MeterReadingController {
     }
 
     @GetMapping("/read/{smartMeterId}")
-    public ResponseEntity readReadings(@PathVariable String smartMeterId) {
-        Optional<List<ElectricityReading>> readings = meterReadingService.getReadings(smartMeterId);
-        return readings.isPresent()
-                ? ResponseEntity.ok(readings.get())
+    public ResponseEntity readReadings(
+            @PathVariable String smartMeterId,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        if (from == null && to == null && limit == null && cursor == null) {
+            Optional<List<ElectricityReading>> readings = meterReadingService.getReadings(smartMeterId);
+            return readings.isPresent()
+                    ? ResponseEntity.ok(readings.get())
+                    : ResponseEntity.notFound().build();
+        }
+        Instant after = cursor == null ? null : decodeCursor(cursor);
+        if ((limit != null && limit <= 0) || (cursor != null && after == null)) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+
+        Optional<ReadingsPage> page = meterReadingService.getReadings(
+                smartMeterId, from, to, after, limit == null ? Integer.MAX_VALUE : limit);
+        if (!page.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.get().nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, encodeCursor(page.get().nextCursor()));
+        }
+        return response.body(page.get().readings());
+    }
+
+    /**
+     * The cursor is the time of the last reading on the page, so that the next page carries on after it wherever
+     * readings merged in or dropped since have moved it. Clients pass it back as it is.
+     */
+    static String encodeCursor(Instant after) {
+        return after.getEpochSecond() + "." + after.getNano();
+    }
+
+    /**
+     * @return the time encoded in the cursor, or {@code null} when it is not one handed out by this controller
+     */
+    static Instant decodeCursor(String cursor) {
+        int separator = cursor.indexOf('.');
+        try {
+            long epochSecond = Long.parseLong(cursor.substring(0, Math.max(separator, 0)));
+            int nano = Integer.parseInt(cursor.substring(separator + 1));
+            return nano < 0 || nano > 999_999_999 ? null : Instant.ofEpochSecond(epochSecond, nano);
+        } catch (NumberFormatException | DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The readings as newline delimited JSON, written one at a time straight from the store through a single
+     * generator, which passes them on every {@link #STREAM_FLUSH_READINGS} readings or whenever its buffer fills. The
+     * store decodes a block of readings at a time, so memory stays the same however long the history is. All readings
+     * in time order, or only those with {@code from <= time < to}.
+     */
+    @GetMapping(value = "/read/{smartMeterId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamReadings(
+            @PathVariable String smartMeterId,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to) {
+        Optional<List<ElectricityReading>> readings = from == null && to == null
+                ? meterReadingService.getReadings(smartMeterId)
+                : meterReadingService
+                        .getReadings(smartMeterId, from, to, null, Integer.MAX_VALUE)
+                        .map(ReadingsPage::readings);
+        if (!readings.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                int written = 0;
+                for (ElectricityReading reading : readings.get()) {
+                    readingWriter.writeValue(generator, reading);
+                    generator.writeRaw('\n');
+                    if (++written % STREAM_FLUSH_READINGS == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/summary/{smartMeterId}")
+    public ResponseEntity<MeterReadingAggregate> readSummary(
+            @PathVariable String smartMeterId,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to) {
+        Optional<MeterReadingAggregate> summary = meterReadingService.getAggregate(smartMeterId, from, to);
+        return summary.isPresent()
+                ? ResponseEntity.ok(summary.get())
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/rollups/{smartMeterId}")
+    public ResponseEntity<List<ReadingRollup>> readRollups(
+            @PathVariable String smartMeterId,
+            @RequestParam(value = "tier", defaultValue = "HOUR") RollupTier tier,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to) {
+        Optional<List<ReadingRollup>> rollups = meterReadingService.getRollups(smartMeterId, tier, from, to);
+        return rollups.isPresent()
+                ? ResponseEntity.ok(rollups.get())
                 : ResponseEntity.notFound().build();
     }
 }
@@ -1,18 +1,27 @@
 package uk.tw.energy.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.tw.energy.domain.CostCacheStats;
+import uk.tw.energy.domain.FleetRecommendationSummary;
+import uk.tw.energy.domain.MeterRecommendation;
+import uk.tw.energy.domain.PricePlanSummary;
 import uk.tw.energy.service.AccountService;
 import uk.tw.energy.service.PricePlanService;
 
@@ -24,17 +33,24 @@ public class PricePlanComparatorController {
     public static final String PRICE_PLAN_COMPARISONS_KEY = "pricePlanComparisons";
     private final PricePlanService pricePlanService;
     private final AccountService accountService;
+    private final ObjectMapper objectMapper;
 
-    public PricePlanComparatorController(PricePlanService pricePlanService, AccountService accountService) {
+    public PricePlanComparatorController(
+            PricePlanService pricePlanService, AccountService accountService, ObjectMapper objectMapper) {
         this.pricePlanService = pricePlanService;
         this.accountService = accountService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/compare-all/{smartMeterId}")
-    public ResponseEntity<Map<String, Object>> calculatedCostForEachPricePlan(@PathVariable String smartMeterId) {
+    public ResponseEntity<Map<String, Object>> calculatedCostForEachPricePlan(
+            @PathVariable String smartMeterId,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to) {
         String pricePlanId = accountService.getPricePlanIdForSmartMeterId(smartMeterId);
-        Optional<Map<String, BigDecimal>> consumptionsForPricePlans =
-                pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(smartMeterId);
+        Optional<Map<String, BigDecimal>> consumptionsForPricePlans = from == null && to == null
+                ? pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(smartMeterId)
+                : pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(smartMeterId, from, to);
 
         if (!consumptionsForPricePlans.isPresent()) {
             return ResponseEntity.notFound().build();
@@ -52,21 +68,64 @@ public class PricePlanComparatorController {
     @GetMapping("/recommend/{smartMeterId}")
     public ResponseEntity<List<Map.Entry<String, BigDecimal>>> recommendCheapestPricePlans(
             @PathVariable String smartMeterId, @RequestParam(value = "limit", required = false) Integer limit) {
-        Optional<Map<String, BigDecimal>> consumptionsForPricePlans =
-                pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(smartMeterId);
+        Optional<List<Map.Entry<String, BigDecimal>>> recommendations =
+                pricePlanService.recommendCheapestPricePlans(smartMeterId, limit);
 
-        if (!consumptionsForPricePlans.isPresent()) {
-            return ResponseEntity.notFound().build();
-        }
+        return recommendations.isPresent()
+                ? ResponseEntity.ok(recommendations.get())
+                : ResponseEntity.notFound().build();
+    }
 
-        List<Map.Entry<String, BigDecimal>> recommendations =
-                new ArrayList<>(consumptionsForPricePlans.get().entrySet());
-        recommendations.sort(Comparator.comparing(Map.Entry::getValue));
+    /**
+     * The cheapest price plan of every meter with an account, written out as a JSON array a slice of meters at a time
+     * while the rest of the fleet is still being priced.
+     */
+    @GetMapping(value = "/recommend-fleet", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> recommendCheapestPricePlansForFleet() {
+        Map<String, String> accounts = accountService.getSmartMeterToPricePlanAccounts();
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer =
+                    objectMapper.writerFor(MeterRecommendation.class).writeValuesAsArray(outputStream)) {
+                pricePlanService.recommendCheapestPricePlansForFleet(accounts, slice -> {
+                    try {
+                        writer.writeAll(slice);
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 
-        if (limit != null && limit < recommendations.size()) {
-            recommendations = recommendations.subList(0, limit);
-        }
+    @GetMapping("/recommend-fleet/summary")
+    public ResponseEntity<FleetRecommendationSummary> summariseCheapestPricePlansForFleet() {
+        Map<String, String> accounts = accountService.getSmartMeterToPricePlanAccounts();
+        return ResponseEntity.ok(pricePlanService.summariseCheapestPricePlansForFleet(accounts));
+    }
+
+    /**
+     * What the meters on the plan cost on it and how many of them would save by switching, from the plan's own
+     * meters rather than every account.
+     */
+    @GetMapping("/summary/{pricePlanId}")
+    public ResponseEntity<PricePlanSummary> summarisePricePlan(@PathVariable String pricePlanId) {
+        Optional<PricePlanSummary> summary = pricePlanService.summarisePricePlan(
+                pricePlanId, accountService.getSmartMeterIdsOnPricePlan(pricePlanId));
+
+        return summary.isPresent()
+                ? ResponseEntity.ok(summary.get())
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<List<PricePlanSummary>> summarisePricePlans() {
+        return ResponseEntity.ok(pricePlanService.summarisePricePlans(accountService::getSmartMeterIdsOnPricePlan));
+    }
 
-        return ResponseEntity.ok(recommendations);
+    @GetMapping("/cost-cache")
+    public ResponseEntity<CostCacheStats> costCacheStats() {
+        return ResponseEntity.ok(pricePlanService.getCostCacheStats());
     }
 }
@@ -0,0 +1,9 @@
+package uk.tw.energy.domain;
+
+import java.util.Map;
+
+/**
+ * @param meters per smart meter, how many of its readings were stored and how many were rejected
+ * @param rejectedEntries entries of the batch that were dropped as a whole because they had no smart meter id
+ */
+public record BatchIngestResult(Map<String, MeterIngestResult> meters, int rejectedEntries) {}
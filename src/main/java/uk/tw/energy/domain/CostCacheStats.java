@@ -0,0 +1,9 @@
+package uk.tw.energy.domain;
+
+/**
+ * @param hits lookups answered from the cache
+ * @param misses lookups that found no entry, or one for an older version of the meter's readings
+ * @param evictions entries dropped to keep the cache within its maximum size
+ * @param size entries currently cached
+ */
+public record CostCacheStats(long hits, long misses, long evictions, long size) {}
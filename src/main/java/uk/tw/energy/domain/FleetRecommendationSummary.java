@@ -0,0 +1,17 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * @param meters smart meters that got a recommendation; meters without usage are left out
+ * @param recommendedPricePlans per price plan, the number of meters it is the cheapest for
+ * @param totalSavings the savings of all meters that are on a known price plan, summed
+ * @param savingsPercentiles the savings at the 50th, 90th, 99th and 100th percentile, keyed {@code p50} to
+ *     {@code max}; empty when no meter is on a known price plan
+ */
+public record FleetRecommendationSummary(
+        int meters,
+        Map<String, Long> recommendedPricePlans,
+        BigDecimal totalSavings,
+        Map<String, BigDecimal> savingsPercentiles) {}
@@ -0,0 +1,18 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * @param sum kW, summed over all readings
+ * @param min kW, the lowest reading, {@code null} when there are none
+ * @param max kW, the highest reading, {@code null} when there are none
+ * @param earliest time of the earliest reading, {@code null} when there are none
+ * @param latest time of the latest reading, {@code null} when there are none
+ */
+public record MeterReadingAggregate(
+        long count, BigDecimal sum, BigDecimal min, BigDecimal max, Instant earliest, Instant latest) {
+
+    public static final MeterReadingAggregate EMPTY =
+            new MeterReadingAggregate(0, BigDecimal.ZERO, null, null, null, null);
+}
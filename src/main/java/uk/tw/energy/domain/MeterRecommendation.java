@@ -0,0 +1,15 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * The cheapest price plan for a smart meter's usage so far. The current plan, its cost and the savings are
+ * {@code null} when the meter has no account or its plan is not offered.
+ */
+public record MeterRecommendation(
+        String smartMeterId,
+        String currentPricePlanId,
+        BigDecimal currentCost,
+        String recommendedPricePlanId,
+        BigDecimal recommendedCost,
+        BigDecimal savings) {}
@@ -0,0 +1,18 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * @param meters smart meters on the price plan
+ * @param metersWithUsage meters on the plan that have usage to cost; the others are left out of the totals
+ * @param totalCost what the meters with usage cost on the plan, summed
+ * @param metersThatWouldSave meters for which another plan is cheaper
+ * @param totalSavings what those meters would save on their cheapest plan, summed
+ */
+public record PricePlanSummary(
+        String pricePlanId,
+        int meters,
+        int metersWithUsage,
+        BigDecimal totalCost,
+        int metersThatWouldSave,
+        BigDecimal totalSavings) {}
@@ -0,0 +1,9 @@
+package uk.tw.energy.domain;
+
+import java.time.Instant;
+
+/**
+ * @param start start of the bucket, which spans one {@link RollupTier} from there
+ * @param aggregate of the readings taken within the bucket
+ */
+public record ReadingRollup(Instant start, MeterReadingAggregate aggregate) {}
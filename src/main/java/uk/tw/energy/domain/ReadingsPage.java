@@ -0,0 +1,11 @@
+package uk.tw.energy.domain;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * @param readings in time order
+ * @param nextCursor time of the last reading on this page, to fetch the readings after it as the next page;
+ *     {@code null} when this is the last page
+ */
+public record ReadingsPage(List<ElectricityReading> readings, Instant nextCursor) {}
@@ -0,0 +1,26 @@
+package uk.tw.energy.domain;
+
+import java.time.Duration;
+
+/**
+ * Resolutions at which readings are rolled up as they arrive, finest first.
+ */
+public enum RollupTier {
+    MINUTE(Duration.ofMinutes(1)),
+    HOUR(Duration.ofHours(1)),
+    DAY(Duration.ofDays(1));
+
+    private final long seconds;
+
+    RollupTier(Duration width) {
+        this.seconds = width.getSeconds();
+    }
+
+    public long getSeconds() {
+        return seconds;
+    }
+
+    public long bucketStart(long epochSecond) {
+        return Math.floorDiv(epochSecond, seconds) * seconds;
+    }
+}
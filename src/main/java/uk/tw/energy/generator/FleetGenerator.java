@@ -0,0 +1,187 @@
+package uk.tw.energy.generator;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * A synthetic fleet of smart meters whose readings follow a household's day: a low night-time base load, a morning
+ * peak, a larger evening peak, and the odd appliance switching on. Every meter has its own size, and every reading its
+ * own noise.
+ *
+ * <p>Each reading is a pure function of the seed, the meter and the reading's position, so the same seed always gives
+ * the same fleet, any stretch of any meter can be generated on its own, and meters can be generated in parallel
+ * without sharing anything. Nothing is held per meter, so the fleet can be as large as its ids allow.
+ */
+public final class FleetGenerator {
+
+    public static final String SMART_METER_ID_PREFIX = "fleet-meter-";
+    public static final int READING_SCALE = 4;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long SIZE_SALT = 1;
+    private static final long OFFSET_SALT = 2;
+    private static final long PLAN_SALT = 3;
+    private static final long NOISE_SALT = 4;
+    private static final long APPLIANCE_SALT = 5;
+    private static final double SECONDS_PER_HOUR = 3600.0;
+    private static final double APPLIANCE_CHANCE = 0.02;
+    private static final double READING_UNITS = Math.pow(10, READING_SCALE);
+
+    private final long seed;
+    private final int meters;
+    private final long startEpochSecond;
+    private final long intervalSeconds;
+
+    /**
+     * @param start the time of every meter's first reading, give or take an offset within the first interval
+     * @param interval the time between two readings of a meter, in whole seconds
+     */
+    public FleetGenerator(long seed, int meters, Instant start, Duration interval) {
+        if (meters < 0) {
+            throw new IllegalArgumentException("A fleet cannot have a negative number of meters: " + meters);
+        }
+        if (interval.getSeconds() < 1 || interval.getNano() != 0) {
+            throw new IllegalArgumentException("Readings must be a whole number of seconds apart: " + interval);
+        }
+        this.seed = seed;
+        this.meters = meters;
+        this.startEpochSecond = start.getEpochSecond();
+        this.intervalSeconds = interval.getSeconds();
+    }
+
+    public int meters() {
+        return meters;
+    }
+
+    public String smartMeterId(int meter) {
+        return SMART_METER_ID_PREFIX + meter;
+    }
+
+    public boolean isFleetMeter(String smartMeterId) {
+        if (!smartMeterId.startsWith(SMART_METER_ID_PREFIX)) {
+            return false;
+        }
+        try {
+            int meter = Integer.parseInt(smartMeterId.substring(SMART_METER_ID_PREFIX.length()));
+            return meter >= 0 && meter < meters;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return one of the plans, picked for the meter the same way every time
+     */
+    public String pricePlanId(int meter, List<String> pricePlanIds) {
+        return pricePlanIds.get((int) ((mix(meter, -1, PLAN_SALT) >>> 1) % pricePlanIds.size()));
+    }
+
+    public long epochSecond(int meter, long reading) {
+        long offset = (mix(meter, -1, OFFSET_SALT) >>> 1) % intervalSeconds;
+        return startEpochSecond + offset + reading * intervalSeconds;
+    }
+
+    /**
+     * @return the reading in kW times 10^{@value #READING_SCALE}
+     */
+    public long unscaledReading(int meter, long reading) {
+        double hourOfDay = Math.floorMod(epochSecond(meter, reading), 86_400L) / SECONDS_PER_HOUR;
+        double size = 0.5 + 1.5 * uniform(meter, -1, SIZE_SALT);
+        double kW = size * dailyLoad(hourOfDay) * (0.8 + 0.4 * uniform(meter, reading, NOISE_SALT));
+        double appliance = uniform(meter, reading, APPLIANCE_SALT);
+        if (appliance < APPLIANCE_CHANCE) {
+            kW += 1.5 + 75 * appliance;
+        }
+        return Math.max(1, Math.round(kW * READING_UNITS));
+    }
+
+    /**
+     * Adds {@code count} readings of the meter, starting at its {@code firstReading}th, to the batch.
+     */
+    public void generate(int meter, long firstReading, int count, ReadingBatch batch) {
+        for (long reading = firstReading; reading < firstReading + count; reading++) {
+            batch.add(epochSecond(meter, reading), 0, unscaledReading(meter, reading), READING_SCALE);
+        }
+    }
+
+    public List<ElectricityReading> generate(int meter, long firstReading, int count) {
+        List<ElectricityReading> readings = new ArrayList<>(count);
+        for (long reading = firstReading; reading < firstReading + count; reading++) {
+            readings.add(new ElectricityReading(
+                    Instant.ofEpochSecond(epochSecond(meter, reading)),
+                    BigDecimal.valueOf(unscaledReading(meter, reading), READING_SCALE)));
+        }
+        return readings;
+    }
+
+    /**
+     * The first {@code readingsPerMeter} readings of every meter, meter by meter, in bodies of up to
+     * {@code readingsPerBody}. Bodies are only generated as the stream is consumed, and the stream splits evenly when
+     * made parallel.
+     */
+    public Stream<MeterReadings> stream(long readingsPerMeter, int readingsPerBody) {
+        long bodiesPerMeter = (readingsPerMeter + readingsPerBody - 1) / readingsPerBody;
+        return LongStream.range(0, meters * bodiesPerMeter).mapToObj(body -> {
+            int meter = (int) (body / bodiesPerMeter);
+            long firstReading = body % bodiesPerMeter * readingsPerBody;
+            int count = (int) Math.min(readingsPerBody, readingsPerMeter - firstReading);
+            return new MeterReadings(smartMeterId(meter), generate(meter, firstReading, count));
+        });
+    }
+
+    /**
+     * Generates the first {@code readingsPerMeter} readings of every meter on the common fork-join pool, handing each
+     * meter's readings to {@code sink} in batches of up to {@code readingsPerBatch}. The batches of a meter reuse one
+     * buffer, so {@code sink} must be done with each when it returns, and must be safe to call from several threads.
+     */
+    public void generateInParallel(long readingsPerMeter, int readingsPerBatch, BiConsumer<String, ReadingBatch> sink) {
+        IntStream.range(0, meters).parallel().forEach(meter -> {
+            String smartMeterId = smartMeterId(meter);
+            ReadingBatch batch = new ReadingBatch(readingsPerBatch);
+            for (long firstReading = 0; firstReading < readingsPerMeter; firstReading += readingsPerBatch) {
+                int count = (int) Math.min(readingsPerBatch, readingsPerMeter - firstReading);
+                batch.clear();
+                generate(meter, firstReading, count, batch);
+                sink.accept(smartMeterId, batch);
+            }
+        });
+    }
+
+    /**
+     * @return kW drawn by an average household at the given hour, between about 0.3 at night and 1.5 in the evening
+     */
+    static double dailyLoad(double hourOfDay) {
+        return 0.3 + 0.6 * peak(hourOfDay, 7.5, 1.2) + 1.2 * peak(hourOfDay, 19, 1.8);
+    }
+
+    private static double peak(double hourOfDay, double hour, double width) {
+        double distance = Math.abs(hourOfDay - hour);
+        distance = Math.min(distance, 24 - distance);
+        return Math.exp(-distance * distance / (2 * width * width));
+    }
+
+    private double uniform(int meter, long reading, long salt) {
+        return (mix(meter, reading, salt) >>> 11) * 0x1.0p-53;
+    }
+
+    private long mix(int meter, long reading, long salt) {
+        return splitMix(splitMix(splitMix(seed + salt * GOLDEN_GAMMA) ^ meter) ^ reading);
+    }
+
+    private static long splitMix(long value) {
+        long z = value + GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,226 @@
+package uk.tw.energy.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Stores readings off the request thread when {@code readings.ingest.async.enabled} is set. Readings are copied into a
+ * bounded {@link ReadingRingBuffer} and a dedicated writer thread drains it, up to {@code drain-batch} slots at a time,
+ * storing the readings of each meter in the drained slots with a single append. Meters are spread over the writers by
+ * their id, so readings of a meter are still stored in the order they were accepted.
+ *
+ * <p>When a writer's buffer is full readings are refused rather than queued, leaving it to the client to retry. The
+ * depth of the buffers is reported as {@code readings.ingest.queue.depth}, the time from accepting readings to having
+ * stored them as {@code readings.ingest.drain.latency}, and readings that failed to store after they were accepted as
+ * {@code readings.ingest.failed}.
+ */
+@Component
+public class AsyncReadingIngest implements Closeable {
+
+    public enum Offer {
+        ACCEPTED,
+        /** The buffer is full; the readings were not taken. */
+        FULL,
+        /** Asynchronous ingest is not running; the readings were not taken. */
+        STOPPED
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MAX_IDLE_METERS = 4096;
+
+    private final boolean enabled;
+    private final MeterReadingService meterReadingService;
+    private final Writer[] writers;
+    private final Timer drainLatency;
+    private final Counter failed;
+    private volatile boolean running;
+
+    public AsyncReadingIngest(
+            MeterReadingService meterReadingService,
+            MeterRegistry meterRegistry,
+            @Value("${readings.ingest.async.enabled:false}") boolean enabled,
+            @Value("${readings.ingest.async.writers:2}") int writerCount,
+            @Value("${readings.ingest.async.capacity:8192}") int capacity,
+            @Value("${readings.ingest.async.readings-per-slot:64}") int readingsPerSlot,
+            @Value("${readings.ingest.async.drain-batch:512}") int drainBatch) {
+        if (enabled && (writerCount < 1 || capacity < writerCount)) {
+            throw new IllegalArgumentException(
+                    "Asynchronous ingest needs a writer and a slot per writer: " + writerCount + ", " + capacity);
+        }
+        this.enabled = enabled;
+        this.meterReadingService = meterReadingService;
+        this.writers = new Writer[enabled ? writerCount : 0];
+        this.drainLatency = Timer.builder("readings.ingest.drain.latency")
+                .description("Time from accepting readings to having stored them")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.failed = Counter.builder("readings.ingest.failed")
+                .description("Readings accepted for storing that failed to store")
+                .baseUnit("readings")
+                .register(meterRegistry);
+        Gauge.builder("readings.ingest.queue.depth", this, AsyncReadingIngest::depth)
+                .description("Requests accepted and not yet stored")
+                .register(meterRegistry);
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Writer(new ReadingRingBuffer(capacity / writerCount, readingsPerSlot), drainBatch);
+        }
+        running = enabled;
+        for (int i = 0; i < writers.length; i++) {
+            writers[i].thread = new Thread(writers[i], "reading-ingest-writer-" + i);
+            writers[i].thread.setDaemon(true);
+            writers[i].thread.start();
+        }
+    }
+
+    /**
+     * @return whether the readings should be offered, rather than stored straight away: asynchronous ingest is on,
+     *     and there are no more of them than a slot holds
+     */
+    public boolean accepts(List<ElectricityReading> electricityReadings) {
+        return enabled && electricityReadings.size() <= writers[0].ringBuffer.readingsPerSlot();
+    }
+
+    /**
+     * @throws IllegalArgumentException when a reading cannot be stored; none of the readings are taken
+     */
+    public Offer offer(String smartMeterId, List<ElectricityReading> electricityReadings) {
+        if (!enabled) {
+            return Offer.STOPPED;
+        }
+        Writer writer = writers[Math.floorMod(smartMeterId.hashCode(), writers.length)];
+        writer.offering.incrementAndGet();
+        try {
+            if (!running) {
+                return Offer.STOPPED;
+            }
+            if (!writer.ringBuffer.offer(smartMeterId, electricityReadings, System.nanoTime())) {
+                return Offer.FULL;
+            }
+        } finally {
+            writer.offering.decrementAndGet();
+        }
+        if (writer.parked) {
+            LockSupport.unpark(writer.thread);
+        }
+        return Offer.ACCEPTED;
+    }
+
+    public int depth() {
+        int depth = 0;
+        for (Writer writer : writers) {
+            depth += writer.ringBuffer.depth();
+        }
+        return depth;
+    }
+
+    /**
+     * Stops taking readings and waits for the writers to store what they already took.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Writer writer : writers) {
+            LockSupport.unpark(writer.thread);
+        }
+        for (Writer writer : writers) {
+            try {
+                writer.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private final class Writer implements Runnable {
+
+        private final ReadingRingBuffer ringBuffer;
+        private final long[] drainedEnqueuedNanos;
+        private final Map<String, ReadingBatch> readingsPerMeter = new HashMap<>();
+        private final AtomicInteger offering = new AtomicInteger();
+        private Thread thread;
+        private volatile boolean parked;
+
+        Writer(ReadingRingBuffer ringBuffer, int drainBatch) {
+            this.ringBuffer = ringBuffer;
+            this.drainedEnqueuedNanos = new long[drainBatch];
+        }
+
+        /**
+         * Parks when there is nothing to drain. A producer unparks the writer once it has published, and the writer
+         * looks again after announcing that it parks, so a slot published in between is not left waiting. Once stopped,
+         * the writer only exits when no producer is still offering, as one that saw it running may yet publish.
+         */
+        @Override
+        public void run() {
+            while (true) {
+                if (drain() > 0) {
+                    continue;
+                }
+                if (!running) {
+                    if (offering.get() == 0 && ringBuffer.depth() == 0) {
+                        return;
+                    }
+                    Thread.onSpinWait();
+                    continue;
+                }
+                parked = true;
+                if (ringBuffer.peek() == null && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+            }
+        }
+
+        private int drain() {
+            int drained = 0;
+            ReadingRingBuffer.Slot slot;
+            while (drained < drainedEnqueuedNanos.length && (slot = ringBuffer.peek()) != null) {
+                if (slot.smartMeterId() != null) {
+                    readingsPerMeter
+                            .computeIfAbsent(slot.smartMeterId(), smartMeterId -> new ReadingBatch())
+                            .addAll(slot.readings());
+                }
+                drainedEnqueuedNanos[drained++] = slot.enqueuedNanos();
+                ringBuffer.release();
+            }
+            if (drained == 0) {
+                return 0;
+            }
+            for (Map.Entry<String, ReadingBatch> meter : readingsPerMeter.entrySet()) {
+                ReadingBatch readings = meter.getValue();
+                if (readings.isEmpty()) {
+                    continue;
+                }
+                try {
+                    meterReadingService.storeReadings(meter.getKey(), readings);
+                } catch (RuntimeException e) {
+                    failed.increment(readings.size());
+                }
+                readings.clear();
+            }
+            if (readingsPerMeter.size() > MAX_IDLE_METERS) {
+                readingsPerMeter.clear();
+            }
+            long storedNanos = System.nanoTime();
+            for (int i = 0; i < drained; i++) {
+                drainLatency.record(storedNanos - drainedEnqueuedNanos[i], TimeUnit.NANOSECONDS);
+            }
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package uk.tw.energy.ingest;
+
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * The readings of one smart meter as decoded from a {@link MeterReadingsFrameConverter#MEDIA_TYPE_VALUE} body, still
+ * in columns rather than as an {@link uk.tw.energy.domain.ElectricityReading} each.
+ */
+public record MeterReadingsFrame(String smartMeterId, ReadingBatch readings) {}
@@ -0,0 +1,141 @@
+package uk.tw.energy.ingest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Reads and writes the compact binary bodies meter gateways can send instead of JSON. Times and readings are decoded
+ * as integers straight into the columns of a {@link ReadingBatch}, so there is no date or decimal parsing and no object
+ * per reading. A body is one frame; all numbers are big-endian:
+ *
+ * <pre>
+ * int   length of the rest of the frame, in bytes
+ * short length n of the smart meter id, in bytes
+ * n     smart meter id, UTF-8
+ * byte  scale of the readings
+ * int   number of readings c
+ * c *   long epoch millisecond, long reading unscaled by the scale
+ * </pre>
+ *
+ * <p>A reading of {@code 0.0503} with a scale of 4 is sent as {@code 503}.
+ */
+@Component
+public class MeterReadingsFrameConverter extends AbstractHttpMessageConverter<MeterReadingsFrame> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-meter-readings";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    static final int READING_BYTES = Long.BYTES + Long.BYTES;
+
+    private static final int HEADER_BYTES = Short.BYTES + Byte.BYTES + Integer.BYTES;
+    private static final int MAX_INITIAL_CAPACITY = 8192;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    public MeterReadingsFrameConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return MeterReadingsFrame.class == clazz;
+    }
+
+    /**
+     * @throws HttpMessageNotReadableException when the body is not exactly one well formed frame
+     */
+    @Override
+    protected MeterReadingsFrame readInternal(Class<? extends MeterReadingsFrame> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputMessage.getBody(), BUFFER_BYTES));
+        try {
+            long frameLength = Integer.toUnsignedLong(in.readInt());
+            byte[] smartMeterId = new byte[in.readUnsignedShort()];
+            in.readFully(smartMeterId);
+            int readingScale = in.readByte();
+            int count = in.readInt();
+            if (count < 0 || frameLength != HEADER_BYTES + smartMeterId.length + (long) count * READING_BYTES) {
+                throw new HttpMessageNotReadableException(
+                        "Frame length " + frameLength + " does not match its " + count + " readings", inputMessage);
+            }
+
+            ReadingBatch readings = new ReadingBatch(Math.max(1, Math.min(count, MAX_INITIAL_CAPACITY)));
+            for (int i = 0; i < count; i++) {
+                long epochMilli = in.readLong();
+                long unscaledReading = in.readLong();
+                readings.add(
+                        Math.floorDiv(epochMilli, 1000),
+                        Math.floorMod(epochMilli, 1000) * 1_000_000,
+                        unscaledReading,
+                        readingScale);
+            }
+            if (in.read() != -1) {
+                throw new HttpMessageNotReadableException("The body continues after the frame", inputMessage);
+            }
+            return new MeterReadingsFrame(new String(smartMeterId, StandardCharsets.UTF_8), readings);
+        } catch (EOFException e) {
+            throw new HttpMessageNotReadableException("The body ends before the frame does", e, inputMessage);
+        }
+    }
+
+    /**
+     * Writes the readings at the largest scale among them, to which the others are rescaled. Times are cut to the
+     * millisecond, as that is all a frame carries.
+     *
+     * @throws HttpMessageNotWritableException when the readings do not fit in one frame
+     */
+    @Override
+    protected void writeInternal(MeterReadingsFrame frame, HttpOutputMessage outputMessage) throws IOException {
+        ReadingBatch readings = frame.readings();
+        byte[] smartMeterId = frame.smartMeterId().getBytes(StandardCharsets.UTF_8);
+        long frameLength = HEADER_BYTES + smartMeterId.length + (long) readings.size() * READING_BYTES;
+        if (smartMeterId.length > 0xFFFF || frameLength > 0xFFFFFFFFL) {
+            throw new HttpMessageNotWritableException("Too many readings for one frame: " + readings.size());
+        }
+        int readingScale = readings.isEmpty() ? 0 : Byte.MIN_VALUE;
+        for (int i = 0; i < readings.size(); i++) {
+            readingScale = Math.max(readingScale, readings.readingScale(i));
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputMessage.getBody(), BUFFER_BYTES));
+        out.writeInt((int) frameLength);
+        out.writeShort(smartMeterId.length);
+        out.write(smartMeterId);
+        out.writeByte(readingScale);
+        out.writeInt(readings.size());
+        for (int i = 0; i < readings.size(); i++) {
+            out.writeLong(Math.multiplyExact(readings.epochSecond(i), 1000) + readings.nano(i) / 1_000_000);
+            out.writeLong(unscaledReadingAt(readings, i, readingScale));
+        }
+        out.flush();
+    }
+
+    private static long unscaledReadingAt(ReadingBatch readings, int index, int readingScale) {
+        long unscaledReading = readings.unscaledReading(index);
+        if (readings.readingScale(index) == readingScale) {
+            return unscaledReading;
+        }
+        try {
+            return BigDecimal.valueOf(unscaledReading, readings.readingScale(index))
+                    .setScale(readingScale)
+                    .unscaledValue()
+                    .longValueExact();
+        } catch (ArithmeticException e) {
+            throw new HttpMessageNotWritableException(
+                    "Reading does not fit in a frame at a scale of " + readingScale + ": " + unscaledReading, e);
+        }
+    }
+}
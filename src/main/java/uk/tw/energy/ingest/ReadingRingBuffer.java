@@ -0,0 +1,145 @@
+package uk.tw.energy.ingest;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Bounded queue of meter readings for many producers and a single consumer, made of preallocated slots that are
+ * reused forever. Each slot holds up to a fixed number of readings in a {@link ReadingBatch}, so offering readings
+ * copies them into the slot rather than allocating.
+ *
+ * <p>Every slot has a sequence number telling whose turn it is: a producer may fill the slot at position {@code p}
+ * when its sequence is {@code p}, and publishes it by setting it to {@code p + 1}, which is when the consumer may take
+ * it. Taking it sets the sequence to {@code p + capacity}, handing the slot to the producer one lap later. Producers
+ * claim positions with a compare-and-set on the tail, and a producer that finds the slot still taken knows the buffer
+ * is full.
+ */
+final class ReadingRingBuffer {
+
+    static final class Slot {
+
+        private String smartMeterId;
+        private final ReadingBatch readings;
+        private long enqueuedNanos;
+
+        private Slot(int readingsPerSlot) {
+            readings = new ReadingBatch(readingsPerSlot);
+        }
+
+        /**
+         * @return {@code null} for a slot whose readings could not be converted, which holds no readings
+         */
+        String smartMeterId() {
+            return smartMeterId;
+        }
+
+        ReadingBatch readings() {
+            return readings;
+        }
+
+        long enqueuedNanos() {
+            return enqueuedNanos;
+        }
+    }
+
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final int readingsPerSlot;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    ReadingRingBuffer(int capacity, int readingsPerSlot) {
+        int slotCount = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new Slot[slotCount];
+        this.sequences = new AtomicLongArray(slotCount);
+        this.mask = slotCount - 1;
+        this.readingsPerSlot = readingsPerSlot;
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot(readingsPerSlot);
+            sequences.set(i, i);
+        }
+    }
+
+    int readingsPerSlot() {
+        return readingsPerSlot;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Copies the readings into the next free slot. Readings that cannot be stored still use up the slot, as it is
+     * claimed before they are converted, but it is handed on empty.
+     *
+     * @return {@code false} when every slot is taken
+     * @throws IllegalArgumentException when there are more readings than a slot holds, or a reading cannot be stored
+     */
+    boolean offer(String smartMeterId, List<ElectricityReading> electricityReadings, long enqueuedNanos) {
+        if (electricityReadings.size() > readingsPerSlot) {
+            throw new IllegalArgumentException("Too many readings for a slot: " + electricityReadings.size());
+        }
+        long position;
+        while (true) {
+            position = tail.get();
+            long turn = sequences.get(index(position)) - position;
+            if (turn == 0 && tail.compareAndSet(position, position + 1)) {
+                break;
+            } else if (turn < 0) {
+                return false;
+            }
+        }
+        Slot slot = slots[index(position)];
+        slot.readings.clear();
+        slot.smartMeterId = null;
+        slot.enqueuedNanos = enqueuedNanos;
+        try {
+            for (ElectricityReading electricityReading : electricityReadings) {
+                slot.readings.add(electricityReading);
+            }
+            slot.smartMeterId = smartMeterId;
+        } catch (RuntimeException e) {
+            slot.readings.clear();
+            throw e;
+        } finally {
+            sequences.set(index(position), position + 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return the oldest published slot, to be handed back with {@link #release()} once read; {@code null} when there
+     *     is none. For the consumer only.
+     */
+    Slot peek() {
+        long position = head.get();
+        return sequences.get(index(position)) == position + 1 ? slots[index(position)] : null;
+    }
+
+    /**
+     * Hands the slot returned by {@link #peek()} back to the producers. For the consumer only.
+     */
+    void release() {
+        long position = head.get();
+        sequences.set(index(position), position + slots.length);
+        head.lazySet(position + 1);
+    }
+
+    /**
+     * @return slots claimed by producers and not yet released by the consumer
+     */
+    int depth() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    private int index(long position) {
+        return (int) position & mask;
+    }
+}
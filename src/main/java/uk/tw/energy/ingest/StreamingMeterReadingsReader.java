@@ -0,0 +1,249 @@
+package uk.tw.energy.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import org.springframework.stereotype.Component;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Reads a {@link uk.tw.energy.domain.MeterReadings} JSON body token by token and stores the readings in chunks as they
+ * are parsed, so neither the body nor a list of readings is ever held in memory as a whole.
+ *
+ * <p>Readings are only buffered until the smart meter id is known, which is straight away when it is the first field;
+ * a body with more than {@value #CHUNK_SIZE} readings before its smart meter id is rejected. Chunks are stored as they
+ * fill up, so unlike a bound body, one that turns out to be malformed part way through keeps the chunks that were
+ * already stored.
+ */
+@Component
+public class StreamingMeterReadingsReader {
+
+    static final int CHUNK_SIZE = 1024;
+
+    private static final String SMART_METER_ID_FIELD = "smartMeterId";
+    private static final String ELECTRICITY_READINGS_FIELD = "electricityReadings";
+    private static final String TIME_FIELD = "time";
+    private static final String READING_FIELD = "reading";
+
+    private final JsonFactory jsonFactory;
+    private final boolean timestampsInSeconds;
+    private final MeterReadingService meterReadingService;
+
+    public StreamingMeterReadingsReader(ObjectMapper objectMapper, MeterReadingService meterReadingService) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.timestampsInSeconds =
+                objectMapper.isEnabled(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS);
+        this.meterReadingService = meterReadingService;
+    }
+
+    /**
+     * @return the number of readings stored, 0 when the body has no smart meter id or no readings
+     * @throws IllegalArgumentException when the body is malformed, after storing the chunks read before that
+     */
+    public int readAndStore(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return new Ingestion(parser).run();
+        }
+    }
+
+    private final class Ingestion {
+
+        private final JsonParser parser;
+        private final ReadingBatch chunk = new ReadingBatch(CHUNK_SIZE);
+        private String smartMeterId;
+        private int stored;
+
+        private long epochSecond;
+        private int nano;
+        private long unscaledReading;
+        private int readingScale;
+
+        Ingestion(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        int run() throws IOException {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (SMART_METER_ID_FIELD.equals(field)) {
+                    smartMeterId = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    flushIfFull();
+                } else if (ELECTRICITY_READINGS_FIELD.equals(field) && value == JsonToken.START_ARRAY) {
+                    readReadings();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (hasValidSmartMeterId()) {
+                flush();
+            }
+            return stored;
+        }
+
+        private void readReadings() throws IOException {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                expect(parser.currentToken(), JsonToken.START_OBJECT);
+                readReading();
+                flushIfFull();
+            }
+        }
+
+        private void readReading() throws IOException {
+            boolean hasTime = false;
+            boolean hasReading = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (TIME_FIELD.equals(field) && value != JsonToken.VALUE_NULL) {
+                    readTime(value);
+                    hasTime = true;
+                } else if (READING_FIELD.equals(field) && value != JsonToken.VALUE_NULL) {
+                    readReadingValue(value);
+                    hasReading = true;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!hasTime || !hasReading) {
+                throw new IllegalArgumentException("Electricity reading needs both a time and a reading");
+            }
+            if (chunk.size() >= CHUNK_SIZE) {
+                throw new IllegalArgumentException(
+                        "More than " + CHUNK_SIZE + " electricity readings before the smart meter id");
+            }
+            chunk.add(epochSecond, nano, unscaledReading, readingScale);
+        }
+
+        private void readTime(JsonToken value) throws IOException {
+            switch (value) {
+                case VALUE_NUMBER_INT -> setTime(parser.getLongValue());
+                case VALUE_NUMBER_FLOAT -> setTime(parser.getDecimalValue());
+                case VALUE_STRING -> setTime(parser.getText());
+                default -> throw new IllegalArgumentException("Unexpected time value " + value);
+            }
+        }
+
+        private void setTime(long timestamp) {
+            if (timestampsInSeconds) {
+                epochSecond = timestamp;
+                nano = 0;
+            } else {
+                epochSecond = Math.floorDiv(timestamp, 1000);
+                nano = (int) Math.floorMod(timestamp, 1000) * 1_000_000;
+            }
+        }
+
+        private void setTime(BigDecimal epochSeconds) {
+            long seconds = epochSeconds.longValue();
+            int nanos = epochSeconds
+                    .subtract(BigDecimal.valueOf(seconds))
+                    .movePointRight(9)
+                    .intValue();
+            setTime(Instant.ofEpochSecond(seconds, nanos));
+        }
+
+        private void setTime(String text) {
+            try {
+                setTime(Instant.parse(text.trim()));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Not an ISO-8601 instant: " + text, e);
+            }
+        }
+
+        private void setTime(Instant time) {
+            epochSecond = time.getEpochSecond();
+            nano = time.getNano();
+        }
+
+        private void readReadingValue(JsonToken value) throws IOException {
+            try {
+                if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+                    parseDecimal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                } else if (value == JsonToken.VALUE_STRING) {
+                    String text = parser.getText().trim();
+                    parseDecimal(text.toCharArray(), 0, text.length());
+                } else {
+                    throw new IllegalArgumentException("Unexpected reading value " + value);
+                }
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Reading has too many significant digits", e);
+            }
+        }
+
+        /**
+         * Parses a decimal the way {@link BigDecimal#BigDecimal(String)} does, straight into unscaled value and scale.
+         */
+        private void parseDecimal(char[] text, int offset, int length) {
+            int end = offset + length;
+            int i = offset;
+            boolean negative = false;
+            if (i < end && (text[i] == '-' || text[i] == '+')) {
+                negative = text[i] == '-';
+                i++;
+            }
+            long unscaled = 0;
+            int digits = 0;
+            int fractionDigits = 0;
+            boolean inFraction = false;
+            for (; i < end && text[i] != 'e' && text[i] != 'E'; i++) {
+                char c = text[i];
+                if (c == '.' && !inFraction) {
+                    inFraction = true;
+                } else if (c >= '0' && c <= '9') {
+                    unscaled = Math.addExact(Math.multiplyExact(unscaled, 10), c - '0');
+                    digits++;
+                    if (inFraction) {
+                        fractionDigits++;
+                    }
+                } else {
+                    throw new NumberFormatException("Not a decimal: " + new String(text, offset, length));
+                }
+            }
+            if (digits == 0) {
+                throw new NumberFormatException("Not a decimal: " + new String(text, offset, length));
+            }
+            long exponent = 0;
+            if (i < end) {
+                exponent = Long.parseLong(new String(text, i + 1, end - i - 1));
+            }
+            unscaledReading = negative ? -unscaled : unscaled;
+            readingScale = Math.toIntExact(fractionDigits - exponent);
+        }
+
+        private boolean hasValidSmartMeterId() {
+            return smartMeterId != null && !smartMeterId.isEmpty();
+        }
+
+        private void flushIfFull() {
+            if (chunk.size() >= CHUNK_SIZE && hasValidSmartMeterId()) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            meterReadingService.storeReadings(smartMeterId, chunk);
+            stored += chunk.size();
+            chunk.clear();
+        }
+
+        private void expect(JsonToken actual, JsonToken expected) throws IOException {
+            if (actual != expected) {
+                throw new IllegalArgumentException("Expected " + expected + " but found " + actual + " at "
+                        + parser.currentLocation());
+            }
+        }
+    }
+}
@@ -1,18 +1,88 @@
 package uk.tw.energy.service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import uk.tw.energy.store.DurableReadingStore;
+import uk.tw.energy.store.ReadingStore;
 
+/**
+ * Which price plan each smart meter is on, and the other way round, which meters are on each plan. Both are updated
+ * together as a meter switches plans, so the meters of a plan are found without scanning every account.
+ *
+ * <p>Switches of the same meter are applied one at a time. A reader looking at the meters of two plans while a meter
+ * switches between them may briefly find it on both or on neither.
+ */
 @Service
 public class AccountService {
 
-    private final Map<String, String> smartMeterToPricePlanAccounts;
+    private final Map<String, String> smartMeterToPricePlanAccounts = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> pricePlanToSmartMeters = new ConcurrentHashMap<>();
+    private final ReadingStore readingStore;
 
     public AccountService(Map<String, String> smartMeterToPricePlanAccounts) {
-        this.smartMeterToPricePlanAccounts = smartMeterToPricePlanAccounts;
+        this(smartMeterToPricePlanAccounts, null);
+    }
+
+    /**
+     * @param readingStore where switched accounts are saved when it is a {@link DurableReadingStore}
+     */
+    @Autowired
+    public AccountService(Map<String, String> smartMeterToPricePlanAccounts, ReadingStore readingStore) {
+        this.readingStore = readingStore;
+        smartMeterToPricePlanAccounts.forEach(this::setPricePlanId);
     }
 
     public String getPricePlanIdForSmartMeterId(String smartMeterId) {
         return smartMeterToPricePlanAccounts.get(smartMeterId);
     }
+
+    public Map<String, String> getSmartMeterToPricePlanAccounts() {
+        return Collections.unmodifiableMap(smartMeterToPricePlanAccounts);
+    }
+
+    /**
+     * @return a live view of the meters on the plan, which is empty when no meter has ever been on it
+     */
+    public Set<String> getSmartMeterIdsOnPricePlan(String pricePlanId) {
+        Set<String> smartMeterIds = pricePlanToSmartMeters.get(pricePlanId);
+        return smartMeterIds == null ? Set.of() : Collections.unmodifiableSet(smartMeterIds);
+    }
+
+    /**
+     * Puts the meter on the plan, opening an account for it when it has none.
+     */
+    public void setPricePlanId(String smartMeterId, String pricePlanId) {
+        smartMeterToPricePlanAccounts.compute(smartMeterId, (id, previousPricePlanId) -> {
+            if (previousPricePlanId != null && !previousPricePlanId.equals(pricePlanId)) {
+                pricePlanToSmartMeters.get(previousPricePlanId).remove(id);
+            }
+            pricePlanToSmartMeters
+                    .computeIfAbsent(pricePlanId, plan -> ConcurrentHashMap.newKeySet())
+                    .add(id);
+            return pricePlanId;
+        });
+    }
+
+    /**
+     * Puts every meter in {@code accounts} on its plan. Each meter switches on its own, so readers may see some of the
+     * meters switched and others not yet. With a durable reading store the accounts are on disk once this returns.
+     *
+     * @throws UncheckedIOException when the accounts could not be saved, in which case they are switched in memory only
+     */
+    public void updateAccounts(Map<String, String> accounts) {
+        accounts.forEach(this::setPricePlanId);
+        if (readingStore instanceof DurableReadingStore durableReadingStore) {
+            try {
+                durableReadingStore.saveAccounts(getSmartMeterToPricePlanAccounts());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import uk.tw.energy.domain.CostCacheStats;
+
+/**
+ * The energy a meter consumed, which its costs for every price plan are calculated from, tagged with the version of the
+ * readings it was calculated from so that a newer version is a miss rather than a stale hit. Caching the energy rather
+ * than the costs keeps an entry small however many price plans there are.
+ *
+ * <p>Bounded to a maximum number of meters and split into segments, each evicting its least recently used entry once
+ * it is full, so lookups for different meters rarely contend.
+ */
+final class CostCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    CostCache(int maximumSize) {
+        int segmentSize = Math.max(1, maximumSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * @return the cached energy consumed, or {@code null} when there is none for this version of the readings
+     */
+    BigDecimal get(String smartMeterId, long version) {
+        Segment segment = segmentFor(smartMeterId);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(smartMeterId);
+        }
+        if (entry == null || entry.version() != version) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.energyConsumedInKwH();
+    }
+
+    void put(String smartMeterId, long version, BigDecimal energyConsumedInKwH) {
+        Segment segment = segmentFor(smartMeterId);
+        synchronized (segment) {
+            Entry existing = segment.get(smartMeterId);
+            if (existing == null || existing.version() <= version) {
+                segment.put(smartMeterId, new Entry(version, energyConsumedInKwH));
+            }
+        }
+    }
+
+    CostCacheStats stats() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new CostCacheStats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private Segment segmentFor(String smartMeterId) {
+        int hash = smartMeterId.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private record Entry(long version, BigDecimal energyConsumedInKwH) {}
+
+    private final class Segment extends LinkedHashMap<String, Entry> {
+
+        private final int maximumSize;
+
+        Segment(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maximumSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package uk.tw.energy.service;
+
+import java.util.function.Supplier;
+
+/**
+ * How costs are calculated, selected with {@code price-plans.cost-engine}.
+ */
+public enum CostEngine {
+    /** Calculates with {@link java.math.BigDecimal} throughout. */
+    BIG_DECIMAL,
+    /**
+     * Calculates on scaled longs with the same rounding, falling back to {@link #BIG_DECIMAL} for a calculation whose
+     * values do not fit.
+     */
+    FIXED_POINT,
+    /**
+     * Calculates both ways and fails with an {@link IllegalStateException} when they disagree; the {@link #BIG_DECIMAL}
+     * result is the one returned.
+     */
+    CROSS_CHECK;
+
+    /**
+     * @param fixedPoint throws an {@link ArithmeticException} when its values do not fit in a long
+     */
+    <T> T evaluate(Supplier<T> bigDecimal, Supplier<T> fixedPoint) {
+        return switch (this) {
+            case BIG_DECIMAL -> bigDecimal.get();
+            case FIXED_POINT -> {
+                try {
+                    yield fixedPoint.get();
+                } catch (ArithmeticException e) {
+                    yield bigDecimal.get();
+                }
+            }
+            case CROSS_CHECK -> {
+                T expected = bigDecimal.get();
+                T actual;
+                try {
+                    actual = fixedPoint.get();
+                } catch (ArithmeticException e) {
+                    yield expected;
+                }
+                if (!expected.equals(actual)) {
+                    throw new IllegalStateException(
+                            "Fixed point cost " + actual + " differs from BigDecimal cost " + expected);
+                }
+                yield expected;
+            }
+        };
+    }
+}
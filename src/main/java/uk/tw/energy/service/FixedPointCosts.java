@@ -0,0 +1,171 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import uk.tw.energy.domain.MeterReadingAggregate;
+
+/**
+ * Cost arithmetic on the unscaled longs of decimals. Every step rounds where, and how, the {@link BigDecimal}
+ * calculation in {@link PricePlanService} rounds, so the results are the same down to their scale. Operations are
+ * overflow checked and throw an {@link ArithmeticException} when a value does not fit.
+ *
+ * <p>Unit rates are held as micro-units, a long at scale {@value #RATE_SCALE}, so that the costs of all plans for the
+ * same energy are longs at the same scale and compare directly.
+ */
+final class FixedPointCosts {
+
+    static final int RATE_SCALE = 6;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPointCosts() {}
+
+    /**
+     * The average reading divided by the hours between the first and the last reading, both rounded half up at the
+     * scale of the readings' sum. The hours are the same decimal the {@link BigDecimal} calculation divides by, the
+     * shortest that converts back to the same double, read digit by digit into an unscaled long and a scale.
+     */
+    static BigDecimal energyConsumed(MeterReadingAggregate aggregate) {
+        BigDecimal sum = aggregate.sum();
+        long averageReading =
+                divideHalfUp(sum.scaleByPowerOfTen(sum.scale()).longValueExact(), aggregate.count());
+        String hours =
+                Double.toString(Duration.between(aggregate.earliest(), aggregate.latest()).getSeconds() / 3600.0);
+        int point = hours.indexOf('.');
+        int exponent = hours.indexOf('E');
+        int end = exponent < 0 ? hours.length() : exponent;
+        long unscaledHours = unscaledDigits(hours, end);
+        int hoursScale = end - point - 1;
+        if (exponent >= 0) {
+            hoursScale -= Integer.parseInt(hours, exponent + 1, hours.length(), 10);
+        }
+        long energyConsumed = hoursScale >= 0
+                ? multiplyDivideHalfUp(averageReading, powerOfTen(hoursScale), unscaledHours)
+                : divideHalfUp(averageReading, Math.multiplyExact(unscaledHours, powerOfTen(-hoursScale)));
+        return BigDecimal.valueOf(energyConsumed, sum.scale());
+    }
+
+    /**
+     * @return the digits of a positive decimal up to {@code end} as one number, ignoring its point
+     */
+    private static long unscaledDigits(String decimal, int end) {
+        long digits = 0;
+        for (int i = 0; i < end; i++) {
+            char c = decimal.charAt(i);
+            if (c != '.') {
+                digits = Math.addExact(Math.multiplyExact(digits, 10), c - '0');
+            }
+        }
+        return digits;
+    }
+
+    static long unitRateMicros(BigDecimal unitRate) {
+        return unitRate.setScale(RATE_SCALE, RoundingMode.UNNECESSARY)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    /**
+     * @return the energy times the unit rate, at the scale of the energy plus {@value #RATE_SCALE}
+     */
+    static long costMicros(long unscaledEnergyConsumed, long unitRateMicros) {
+        return Math.multiplyExact(unscaledEnergyConsumed, unitRateMicros);
+    }
+
+    /**
+     * @return the cost as the {@link BigDecimal} product of the energy and the unit rate, scale included
+     */
+    static BigDecimal toCost(long costMicros, int energyScale, int unitRateScale) {
+        return BigDecimal.valueOf(costMicros / powerOfTen(RATE_SCALE - unitRateScale), energyScale + unitRateScale);
+    }
+
+    static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.absExact(dividend % divisor);
+        if (remainder != 0 && remainder >= Math.absExact(divisor) - remainder) {
+            quotient += (dividend ^ divisor) < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * {@code multiplicand * multiplier / divisor} rounded half up, with the product held in 128 bits; the hours
+     * typically have 16 decimals, so the average reading times their power of ten rarely fits in a long.
+     */
+    static long multiplyDivideHalfUp(long multiplicand, long multiplier, long divisor) {
+        long magnitude = Math.absExact(multiplicand);
+        long multiplierMagnitude = Math.absExact(multiplier);
+        long divisorMagnitude = Math.absExact(divisor);
+        long high = Math.unsignedMultiplyHigh(magnitude, multiplierMagnitude);
+        long low = magnitude * multiplierMagnitude;
+        if (Long.compareUnsigned(high, divisorMagnitude) >= 0) {
+            throw new ArithmeticException("Quotient does not fit in a long");
+        }
+        long[] remainder = new long[1];
+        long quotient = divideUnsigned(high, low, divisorMagnitude, remainder);
+        if (quotient < 0) {
+            throw new ArithmeticException("Quotient does not fit in a long");
+        }
+        if (remainder[0] != 0 && remainder[0] >= divisorMagnitude - remainder[0]) {
+            quotient = Math.incrementExact(quotient);
+        }
+        return (multiplicand ^ multiplier ^ divisor) < 0 ? -quotient : quotient;
+    }
+
+    /**
+     * Divides the unsigned 128 bit {@code high:low} by {@code divisor}, which must be greater than {@code high}, as in
+     * Hacker's Delight {@code divlu}: normalise the divisor, then find the quotient 32 bits at a time.
+     */
+    private static long divideUnsigned(long high, long low, long divisor, long[] remainder) {
+        final long base = 1L << 32;
+        int shift = Long.numberOfLeadingZeros(divisor);
+        long normalisedDivisor = divisor << shift;
+        long divisorHigh = normalisedDivisor >>> 32;
+        long divisorLow = normalisedDivisor & 0xFFFFFFFFL;
+        long dividendHigh = (high << shift) | (shift == 0 ? 0 : low >>> (64 - shift));
+        long dividendLow = low << shift;
+        long dividendLowHigh = dividendLow >>> 32;
+        long dividendLowLow = dividendLow & 0xFFFFFFFFL;
+
+        long quotientHigh = Long.divideUnsigned(dividendHigh, divisorHigh);
+        long partialRemainder = dividendHigh - quotientHigh * divisorHigh;
+        while (Long.compareUnsigned(quotientHigh, base) >= 0
+                || Long.compareUnsigned(quotientHigh * divisorLow, base * partialRemainder + dividendLowHigh) > 0) {
+            quotientHigh--;
+            partialRemainder += divisorHigh;
+            if (Long.compareUnsigned(partialRemainder, base) >= 0) {
+                break;
+            }
+        }
+
+        long middle = dividendHigh * base + dividendLowHigh - quotientHigh * normalisedDivisor;
+        long quotientLow = Long.divideUnsigned(middle, divisorHigh);
+        partialRemainder = middle - quotientLow * divisorHigh;
+        while (Long.compareUnsigned(quotientLow, base) >= 0
+                || Long.compareUnsigned(quotientLow * divisorLow, base * partialRemainder + dividendLowLow) > 0) {
+            quotientLow--;
+            partialRemainder += divisorHigh;
+            if (Long.compareUnsigned(partialRemainder, base) >= 0) {
+                break;
+            }
+        }
+
+        remainder[0] = (middle * base + dividendLowLow - quotientLow * normalisedDivisor) >>> shift;
+        return quotientHigh * base + quotientLow;
+    }
+
+    private static long powerOfTen(int exponent) {
+        if (exponent < 0 || exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("10^" + exponent + " does not fit in a long");
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+}
@@ -1,29 +1,189 @@
 package uk.tw.energy.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import uk.tw.energy.domain.BatchIngestResult;
 import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterIngestResult;
+import uk.tw.energy.domain.MeterReadingAggregate;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.domain.ReadingRollup;
+import uk.tw.energy.domain.ReadingsPage;
+import uk.tw.energy.domain.RollupTier;
+import uk.tw.energy.store.ReadingBatch;
+import uk.tw.energy.store.ReadingRetention;
+import uk.tw.energy.store.ReadingStore;
 
+/**
+ * Counts the readings stored, as {@code readings.ingested}, and records the number stored per append to a meter, as
+ * {@code readings.batch.size}. Both are registered up front, so recording them on the append path allocates nothing.
+ */
 @Service
 public class MeterReadingService {
 
-    private final Map<String, List<ElectricityReading>> meterAssociatedReadings;
+    private final ReadingStore readingStore;
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Counter readingsIngested;
+    private final DistributionSummary batchSizes;
 
-    public MeterReadingService(Map<String, List<ElectricityReading>> meterAssociatedReadings) {
-        this.meterAssociatedReadings = meterAssociatedReadings;
+    public MeterReadingService(ReadingStore readingStore) {
+        this(readingStore, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public MeterReadingService(ReadingStore readingStore, MeterRegistry meterRegistry) {
+        this.readingStore = readingStore;
+        this.readingsIngested = Counter.builder("readings.ingested")
+                .description("Readings stored")
+                .baseUnit("readings")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("readings.batch.size")
+                .description("Readings stored per append to a meter")
+                .baseUnit("readings")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     public Optional<List<ElectricityReading>> getReadings(String smartMeterId) {
-        return Optional.ofNullable(meterAssociatedReadings.get(smartMeterId));
+        return readingStore.getReadings(smartMeterId);
+    }
+
+    public Optional<ReadingsPage> getReadings(String smartMeterId, Instant from, Instant to, Instant after, int limit) {
+        return readingStore.getReadings(smartMeterId, from, to, after, limit);
+    }
+
+    public Optional<MeterReadingAggregate> getAggregate(String smartMeterId) {
+        return readingStore.getAggregate(smartMeterId);
+    }
+
+    public Optional<MeterReadingAggregate> getAggregate(String smartMeterId, Instant from, Instant to) {
+        return readingStore.getAggregate(smartMeterId, from, to);
+    }
+
+    public Optional<List<ReadingRollup>> getRollups(String smartMeterId, RollupTier tier, Instant from, Instant to) {
+        return readingStore.getRollups(smartMeterId, tier, from, to);
+    }
+
+    /**
+     * A counter that goes up every time readings are stored for the meter, or fail to be, for caching what is derived
+     * from them.
+     * Retention leaves it alone, as it does not change the aggregate of the meter's whole history.
+     */
+    public long getVersion(String smartMeterId) {
+        AtomicLong version = versions.get(smartMeterId);
+        return version == null ? 0 : version.get();
+    }
+
+    public void applyRetention(ReadingRetention retention, Instant now) {
+        readingStore.applyRetention(retention, now);
+    }
+
+    /**
+     * @return the estimated bytes of all meters afterwards
+     */
+    public long applyMemoryBudget(long budgetBytes) {
+        return readingStore.applyMemoryBudget(budgetBytes);
     }
 
+    public void visitFootprints(ReadingStore.FootprintVisitor visitor) {
+        readingStore.visitFootprints(visitor);
+    }
+
+    /**
+     * The meter's version goes up even when the store fails, as a durable store may already have applied the readings
+     * before failing to sync them.
+     */
     public void storeReadings(String smartMeterId, List<ElectricityReading> electricityReadings) {
-        if (!meterAssociatedReadings.containsKey(smartMeterId)) {
-            meterAssociatedReadings.put(smartMeterId, new ArrayList<>());
+        try {
+            readingStore.append(smartMeterId, electricityReadings);
+        } finally {
+            nextVersion(smartMeterId);
+        }
+        stored(electricityReadings.size());
+    }
+
+    /**
+     * As {@link #storeReadings(String, List)}.
+     */
+    public void storeReadings(String smartMeterId, ReadingBatch readings) {
+        try {
+            readingStore.append(smartMeterId, readings);
+        } finally {
+            nextVersion(smartMeterId);
+        }
+        stored(readings.size());
+    }
+
+    /**
+     * Stores readings for many meters at once. Entries for the same meter are merged so that each meter is appended to
+     * once per batch; readings without a time or value are rejected individually.
+     */
+    public BatchIngestResult storeReadings(List<MeterReadings> batch) {
+        Map<String, List<ElectricityReading>> readingsPerMeter = new LinkedHashMap<>();
+        Map<String, Integer> rejectedPerMeter = new LinkedHashMap<>();
+        int rejectedEntries = 0;
+        for (MeterReadings meterReadings : batch) {
+            String smartMeterId = meterReadings.smartMeterId();
+            if (smartMeterId == null || smartMeterId.isEmpty()) {
+                rejectedEntries++;
+                continue;
+            }
+            List<ElectricityReading> accepted = readingsPerMeter.computeIfAbsent(smartMeterId, id -> new ArrayList<>());
+            int rejected = 0;
+            if (meterReadings.electricityReadings() != null) {
+                for (ElectricityReading reading : meterReadings.electricityReadings()) {
+                    if (isReadingValid(reading)) {
+                        accepted.add(reading);
+                    } else {
+                        rejected++;
+                    }
+                }
+            }
+            rejectedPerMeter.merge(smartMeterId, rejected, Integer::sum);
         }
-        meterAssociatedReadings.get(smartMeterId).addAll(electricityReadings);
+
+        Map<String, MeterIngestResult> results = new LinkedHashMap<>();
+        readingsPerMeter.forEach((smartMeterId, readings) -> {
+            int rejected = rejectedPerMeter.get(smartMeterId);
+            try {
+                if (!readings.isEmpty()) {
+                    try {
+                        readingStore.append(smartMeterId, readings);
+                    } finally {
+                        nextVersion(smartMeterId);
+                    }
+                    stored(readings.size());
+                }
+                results.put(smartMeterId, new MeterIngestResult(readings.size(), rejected));
+            } catch (IllegalArgumentException e) {
+                results.put(smartMeterId, new MeterIngestResult(0, rejected + readings.size()));
+            }
+        });
+        return new BatchIngestResult(results, rejectedEntries);
+    }
+
+    private void nextVersion(String smartMeterId) {
+        versions.computeIfAbsent(smartMeterId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    private void stored(int readings) {
+        readingsIngested.increment(readings);
+        batchSizes.record(readings);
+    }
+
+    private static boolean isReadingValid(ElectricityReading reading) {
+        return reading != null && reading.time() != null && reading.reading() != null;
     }
 }
@@ -0,0 +1,293 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntBinaryOperator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.tw.energy.domain.PricePlan;
+
+/**
+ * The price plans on offer, indexed by plan name. The plans are held as one immutable set that {@link #load} replaces
+ * as a whole, so a cost evaluation always sees every plan of the same set.
+ *
+ * <p>The cost of a plan is the energy consumed times its unit rate, so costs are evaluated for all plans of a meter in
+ * one pass over the unit rates, and the cheapest few are picked with a bounded heap rather than a full sort. With the
+ * {@link CostEngine#FIXED_POINT} engine that pass multiplies longs, and only the costs returned become decimals.
+ */
+@Service
+public class PricePlanCatalogue {
+
+    private final CostEngine costEngine;
+    private volatile Plans plans;
+
+    public PricePlanCatalogue(List<PricePlan> pricePlans) {
+        this(pricePlans, CostEngine.BIG_DECIMAL);
+    }
+
+    @Autowired
+    public PricePlanCatalogue(
+            List<PricePlan> pricePlans, @Value("${price-plans.cost-engine:BIG_DECIMAL}") CostEngine costEngine) {
+        this.costEngine = costEngine;
+        load(pricePlans);
+    }
+
+    public CostEngine getCostEngine() {
+        return costEngine;
+    }
+
+    /**
+     * Replaces all plans; of plans with the same name the last one wins.
+     */
+    public void load(Collection<PricePlan> pricePlans) {
+        Map<String, PricePlan> byName = new LinkedHashMap<>();
+        for (PricePlan pricePlan : pricePlans) {
+            byName.put(pricePlan.getPlanName(), pricePlan);
+        }
+        PricePlan[] planArray = byName.values().toArray(PricePlan[]::new);
+        BigDecimal[] unitRates = new BigDecimal[planArray.length];
+        int[] unitRateScales = new int[planArray.length];
+        Map<String, Integer> indexByName = new HashMap<>();
+        for (int i = 0; i < planArray.length; i++) {
+            unitRates[i] = planArray[i].getUnitRate();
+            unitRateScales[i] = unitRates[i].scale();
+            indexByName.put(planArray[i].getPlanName(), i);
+        }
+        plans = new Plans(planArray, unitRates, unitRateMicros(unitRates), unitRateScales, indexByName);
+    }
+
+    /**
+     * @return the unit rates in micro-units, or {@code null} when any of them does not fit, so that every cost is
+     *     calculated with {@link BigDecimal}
+     */
+    private static long[] unitRateMicros(BigDecimal[] unitRates) {
+        long[] unitRateMicros = new long[unitRates.length];
+        try {
+            for (int i = 0; i < unitRates.length; i++) {
+                unitRateMicros[i] = FixedPointCosts.unitRateMicros(unitRates[i]);
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        return unitRateMicros;
+    }
+
+    public Optional<PricePlan> get(String planName) {
+        Plans current = plans;
+        Integer index = current.indexByName().get(planName);
+        return index == null ? Optional.empty() : Optional.of(current.plans()[index]);
+    }
+
+    public List<PricePlan> getAll() {
+        return List.of(plans.plans());
+    }
+
+    public int size() {
+        return plans.plans().length;
+    }
+
+    public Map<String, BigDecimal> costs(BigDecimal energyConsumedInKwH) {
+        Plans current = plans;
+        return costEngine.evaluate(
+                () -> costs(current, current.costs(energyConsumedInKwH)),
+                () -> costs(current, current.fixedPointCosts(energyConsumedInKwH)));
+    }
+
+    /**
+     * @return up to {@code limit} plans with their costs, cheapest first
+     */
+    public List<Map.Entry<String, BigDecimal>> cheapest(BigDecimal energyConsumedInKwH, int limit) {
+        Plans current = plans;
+        return costEngine.evaluate(
+                () -> cheapest(current, current.costs(energyConsumedInKwH), limit),
+                () -> cheapest(current, current.fixedPointCosts(energyConsumedInKwH), limit));
+    }
+
+    /**
+     * The cheapest plan and the cost of the given plan, for the same energy, from the same set of plans.
+     *
+     * @return empty when there are no plans; the current cost is {@code null} when the plan is not offered
+     */
+    Optional<CheapestAndCurrent> cheapestAndCurrent(BigDecimal energyConsumedInKwH, String currentPlanName) {
+        Plans current = plans;
+        Integer currentIndex = currentPlanName == null ? null : current.indexByName().get(currentPlanName);
+        return costEngine.evaluate(
+                () -> cheapestAndCurrent(current, current.costs(energyConsumedInKwH), currentIndex),
+                () -> cheapestAndCurrent(current, current.fixedPointCosts(energyConsumedInKwH), currentIndex));
+    }
+
+    record CheapestAndCurrent(String cheapestPlanName, BigDecimal cheapestCost, BigDecimal currentCost) {}
+
+    private static Map<String, BigDecimal> costs(Plans current, Costs costs) {
+        Map<String, BigDecimal> costsByName = HashMap.newHashMap(costs.size());
+        for (int i = 0; i < costs.size(); i++) {
+            costsByName.put(current.plans()[i].getPlanName(), costs.get(i));
+        }
+        return costsByName;
+    }
+
+    private static List<Map.Entry<String, BigDecimal>> cheapest(Plans current, Costs costs, int limit) {
+        int[] cheapest = cheapest(costs.size(), costs::compare, limit);
+        List<Map.Entry<String, BigDecimal>> entries = new ArrayList<>(cheapest.length);
+        for (int index : cheapest) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(current.plans()[index].getPlanName(), costs.get(index)));
+        }
+        return entries;
+    }
+
+    private static Optional<CheapestAndCurrent> cheapestAndCurrent(Plans current, Costs costs, Integer currentIndex) {
+        int[] cheapest = cheapest(costs.size(), costs::compare, 1);
+        if (cheapest.length == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new CheapestAndCurrent(
+                current.plans()[cheapest[0]].getPlanName(),
+                costs.get(cheapest[0]),
+                currentIndex == null ? null : costs.get(currentIndex)));
+    }
+
+    /**
+     * Keeps the {@code limit} cheapest seen so far in a heap with the most expensive of them on top, so each further
+     * plan costs a comparison with the top and only the ones that make it in cost a log {@code limit} update. Plans of
+     * equal cost come in the order they were loaded.
+     */
+    private static int[] cheapest(int count, IntBinaryOperator compareCosts, int limit) {
+        IntBinaryOperator compare = (index, otherIndex) -> {
+            int byCost = compareCosts.applyAsInt(index, otherIndex);
+            return byCost != 0 ? byCost : Integer.compare(index, otherIndex);
+        };
+        int[] heap = new int[Math.max(0, Math.min(limit, count))];
+        int size = 0;
+        for (int i = 0; i < count && heap.length > 0; i++) {
+            if (size < heap.length) {
+                heap[size] = i;
+                siftUp(heap, size++, compare);
+            } else if (compare.applyAsInt(i, heap[0]) < 0) {
+                heap[0] = i;
+                siftDown(heap, size, compare);
+            }
+        }
+        for (int end = size - 1; end > 0; end--) {
+            int mostExpensive = heap[0];
+            heap[0] = heap[end];
+            heap[end] = mostExpensive;
+            siftDown(heap, end, compare);
+        }
+        return heap;
+    }
+
+    private static void siftUp(int[] heap, int position, IntBinaryOperator compare) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (compare.applyAsInt(heap[position], heap[parent]) <= 0) {
+                return;
+            }
+            int swapped = heap[parent];
+            heap[parent] = heap[position];
+            heap[position] = swapped;
+            position = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, IntBinaryOperator compare) {
+        int position = 0;
+        while (true) {
+            int largest = position;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                if (compare.applyAsInt(heap[child], heap[largest]) > 0) {
+                    largest = child;
+                }
+            }
+            if (largest == position) {
+                return;
+            }
+            int swapped = heap[largest];
+            heap[largest] = heap[position];
+            heap[position] = swapped;
+            position = largest;
+        }
+    }
+
+    /**
+     * The costs of all plans for one energy, turned into decimals only when asked for.
+     */
+    private interface Costs {
+
+        int size();
+
+        BigDecimal get(int index);
+
+        int compare(int index, int otherIndex);
+    }
+
+    private record Plans(
+            PricePlan[] plans,
+            BigDecimal[] unitRates,
+            long[] unitRateMicros,
+            int[] unitRateScales,
+            Map<String, Integer> indexByName) {
+
+        Costs costs(BigDecimal energyConsumedInKwH) {
+            BigDecimal[] costs = new BigDecimal[unitRates.length];
+            for (int i = 0; i < unitRates.length; i++) {
+                costs[i] = energyConsumedInKwH.multiply(unitRates[i]);
+            }
+            return new Costs() {
+                @Override
+                public int size() {
+                    return costs.length;
+                }
+
+                @Override
+                public BigDecimal get(int index) {
+                    return costs[index];
+                }
+
+                @Override
+                public int compare(int index, int otherIndex) {
+                    return costs[index].compareTo(costs[otherIndex]);
+                }
+            };
+        }
+
+        /**
+         * @throws ArithmeticException when a unit rate has more than {@value FixedPointCosts#RATE_SCALE} decimals, or
+         *     the energy or a cost does not fit in a long
+         */
+        Costs fixedPointCosts(BigDecimal energyConsumedInKwH) {
+            if (unitRateMicros == null) {
+                throw new ArithmeticException("Unit rates do not all fit in micro-units");
+            }
+            long unscaledEnergyConsumed = energyConsumedInKwH.unscaledValue().longValueExact();
+            int energyScale = energyConsumedInKwH.scale();
+            long[] costMicros = new long[unitRateMicros.length];
+            for (int i = 0; i < unitRateMicros.length; i++) {
+                costMicros[i] = FixedPointCosts.costMicros(unscaledEnergyConsumed, unitRateMicros[i]);
+            }
+            return new Costs() {
+                @Override
+                public int size() {
+                    return costMicros.length;
+                }
+
+                @Override
+                public BigDecimal get(int index) {
+                    return FixedPointCosts.toCost(costMicros[index], energyScale, unitRateScales[index]);
+                }
+
+                @Override
+                public int compare(int index, int otherIndex) {
+                    return Long.compare(costMicros[index], costMicros[otherIndex]);
+                }
+            };
+        }
+    }
+}
@@ -1,65 +1,393 @@
 package uk.tw.energy.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Duration;
-import java.util.Comparator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.CostCacheStats;
+import uk.tw.energy.domain.FleetRecommendationSummary;
+import uk.tw.energy.domain.MeterReadingAggregate;
+import uk.tw.energy.domain.MeterRecommendation;
 import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.domain.PricePlanSummary;
 
+/**
+ * Times cost calculations as {@code price-plans.cost.calculation}, tagged with the operation: one meter against all
+ * plans, over all time or a range, a recommendation, a slice of the fleet, or the meters of a plan. Cost cache hits are
+ * timed too, as they are what most calls are, and so are meters with nothing to cost.
+ */
 @Service
 public class PricePlanService {
 
-    private final List<PricePlan> pricePlans;
+    static final int FLEET_SLICE_SIZE = 8192;
+    private static final int DEFAULT_COST_CACHE_SIZE = 100_000;
+    private static final int FLEET_TASK_SIZE = 256;
+    private static final int[] SAVINGS_PERCENTILES = {50, 90, 99, 100};
+
+    private final PricePlanCatalogue pricePlanCatalogue;
     private final MeterReadingService meterReadingService;
+    private final CostCache costCache;
+    private final Timer compareAllTimer;
+    private final Timer compareRangeTimer;
+    private final Timer recommendTimer;
+    private final Timer fleetTimer;
+    private final Timer planSummaryTimer;
 
     public PricePlanService(List<PricePlan> pricePlans, MeterReadingService meterReadingService) {
-        this.pricePlans = pricePlans;
+        this(new PricePlanCatalogue(pricePlans), meterReadingService, DEFAULT_COST_CACHE_SIZE);
+    }
+
+    public PricePlanService(
+            PricePlanCatalogue pricePlanCatalogue, MeterReadingService meterReadingService, int costCacheSize) {
+        this(pricePlanCatalogue, meterReadingService, costCacheSize, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public PricePlanService(
+            PricePlanCatalogue pricePlanCatalogue,
+            MeterReadingService meterReadingService,
+            @Value("${price-plans.cost-cache.maximum-size:100000}") int costCacheSize,
+            MeterRegistry meterRegistry) {
+        this.pricePlanCatalogue = pricePlanCatalogue;
         this.meterReadingService = meterReadingService;
+        this.costCache = new CostCache(costCacheSize);
+        this.compareAllTimer = costTimer("compare-all", meterRegistry);
+        this.compareRangeTimer = costTimer("compare-range", meterRegistry);
+        this.recommendTimer = costTimer("recommend", meterRegistry);
+        this.fleetTimer = costTimer("fleet", meterRegistry);
+        this.planSummaryTimer = costTimer("plan-summary", meterRegistry);
+    }
+
+    private static Timer costTimer(String operation, MeterRegistry meterRegistry) {
+        return Timer.builder("price-plans.cost.calculation")
+                .description("Time taken to cost readings against the price plans")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     public Optional<Map<String, BigDecimal>> getConsumptionCostOfElectricityReadingsForEachPricePlan(
             String smartMeterId) {
-        Optional<List<ElectricityReading>> electricityReadings = meterReadingService.getReadings(smartMeterId);
+        long start = System.nanoTime();
+        Optional<Map<String, BigDecimal>> costs = getEnergyConsumed(smartMeterId).map(pricePlanCatalogue::costs);
+        compareAllTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return costs;
+    }
 
-        if (!electricityReadings.isPresent()) {
+    /**
+     * @return up to {@code limit} price plans with their costs, cheapest first; all of them without a limit
+     */
+    public Optional<List<Map.Entry<String, BigDecimal>>> recommendCheapestPricePlans(
+            String smartMeterId, Integer limit) {
+        long start = System.nanoTime();
+        int planLimit = limit == null ? Integer.MAX_VALUE : limit;
+        Optional<List<Map.Entry<String, BigDecimal>>> cheapest = getEnergyConsumed(smartMeterId)
+                .map(energyConsumedInKwH -> pricePlanCatalogue.cheapest(energyConsumedInKwH, planLimit));
+        recommendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return cheapest;
+    }
+
+    public CostCacheStats getCostCacheStats() {
+        return costCache.stats();
+    }
+
+    /**
+     * Costs of the readings with {@code from <= time < to}; empty when the meter is unknown or has no readings there.
+     */
+    public Optional<Map<String, BigDecimal>> getConsumptionCostOfElectricityReadingsForEachPricePlan(
+            String smartMeterId, Instant from, Instant to) {
+        long start = System.nanoTime();
+        Optional<Map<String, BigDecimal>> costs = meterReadingService
+                .getAggregate(smartMeterId, from, to)
+                .filter(aggregate -> aggregate.count() > 0)
+                .map(aggregate -> pricePlanCatalogue.costs(calculateEnergyConsumed(aggregate)));
+        compareRangeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return costs;
+    }
+
+    /**
+     * Recommends the cheapest price plan for every meter in {@code accounts} that has usage, spreading the meters over
+     * the common fork-join pool. Recommendations are handed to {@code slices} in smart meter id order, a slice of up to
+     * {@link #FLEET_SLICE_SIZE} meters at a time, as soon as each slice is done.
+     */
+    public void recommendCheapestPricePlansForFleet(
+            Map<String, String> accounts, Consumer<List<MeterRecommendation>> slices) {
+        String[] smartMeterIds = accounts.keySet().toArray(String[]::new);
+        Arrays.sort(smartMeterIds);
+        for (int from = 0; from < smartMeterIds.length; from += FLEET_SLICE_SIZE) {
+            int to = Math.min(smartMeterIds.length, from + FLEET_SLICE_SIZE);
+            MeterRecommendation[] recommendations = new MeterRecommendation[to - from];
+            long start = System.nanoTime();
+            ForkJoinPool.commonPool()
+                    .invoke(new FleetRecommendationTask(smartMeterIds, accounts, recommendations, from, from, to));
+            fleetTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            List<MeterRecommendation> slice = new ArrayList<>(recommendations.length);
+            for (MeterRecommendation recommendation : recommendations) {
+                if (recommendation != null) {
+                    slice.add(recommendation);
+                }
+            }
+            slices.accept(slice);
+        }
+    }
+
+    public FleetRecommendationSummary summariseCheapestPricePlansForFleet(Map<String, String> accounts) {
+        List<MeterRecommendation> recommendations = new ArrayList<>();
+        recommendCheapestPricePlansForFleet(accounts, recommendations::addAll);
+
+        Map<String, Long> recommendedPricePlans = new TreeMap<>();
+        List<BigDecimal> savings = new ArrayList<>();
+        BigDecimal totalSavings = BigDecimal.ZERO;
+        for (MeterRecommendation recommendation : recommendations) {
+            recommendedPricePlans.merge(recommendation.recommendedPricePlanId(), 1L, Long::sum);
+            if (recommendation.savings() != null) {
+                savings.add(recommendation.savings());
+                totalSavings = totalSavings.add(recommendation.savings());
+            }
+        }
+        savings.sort(null);
+        Map<String, BigDecimal> savingsPercentiles = new LinkedHashMap<>();
+        if (!savings.isEmpty()) {
+            for (int percentile : SAVINGS_PERCENTILES) {
+                int rank = (int) Math.ceil(percentile / 100.0 * savings.size());
+                savingsPercentiles.put(percentile == 100 ? "max" : "p" + percentile, savings.get(rank - 1));
+            }
+        }
+        return new FleetRecommendationSummary(
+                recommendations.size(), recommendedPricePlans, totalSavings, savingsPercentiles);
+    }
+
+    /**
+     * Totals what the given meters, all on {@code pricePlanId}, cost on it and what they would save on their cheapest
+     * plan, spreading the meters over the common fork-join pool. Only the meters given are visited.
+     *
+     * @return empty when the plan is not offered
+     */
+    public Optional<PricePlanSummary> summarisePricePlan(String pricePlanId, Collection<String> smartMeterIds) {
+        if (pricePlanCatalogue.get(pricePlanId).isEmpty()) {
             return Optional.empty();
         }
+        long start = System.nanoTime();
+        String[] meters = smartMeterIds.toArray(String[]::new);
+        PlanTotals totals = ForkJoinPool.commonPool().invoke(new PlanTotalsTask(pricePlanId, meters, 0, meters.length));
+        planSummaryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Optional.of(new PricePlanSummary(
+                pricePlanId,
+                meters.length,
+                totals.metersWithUsage(),
+                totals.totalCost(),
+                totals.metersThatWouldSave(),
+                totals.totalSavings()));
+    }
 
-        return Optional.of(pricePlans.stream()
-                .collect(Collectors.toMap(PricePlan::getPlanName, t -> calculateCost(electricityReadings.get(), t))));
+    /**
+     * A summary of every plan on offer, in the order the plans were loaded.
+     */
+    public List<PricePlanSummary> summarisePricePlans(Function<String, Collection<String>> smartMeterIdsOnPricePlan) {
+        List<PricePlanSummary> summaries = new ArrayList<>();
+        for (PricePlan pricePlan : pricePlanCatalogue.getAll()) {
+            String pricePlanId = pricePlan.getPlanName();
+            summarisePricePlan(pricePlanId, smartMeterIdsOnPricePlan.apply(pricePlanId))
+                    .ifPresent(summaries::add);
+        }
+        return summaries;
     }
 
-    private BigDecimal calculateCost(List<ElectricityReading> electricityReadings, PricePlan pricePlan) {
-        final BigDecimal averageReadingInKw = calculateAverageReading(electricityReadings);
-        final BigDecimal usageTimeInHours = calculateUsageTimeInHours(electricityReadings);
-        final BigDecimal energyConsumedInKwH = averageReadingInKw.divide(usageTimeInHours, RoundingMode.HALF_UP);
-        final BigDecimal cost = energyConsumedInKwH.multiply(pricePlan.getUnitRate());
-        return cost;
+    /**
+     * @return {@code null} when the meter has no readings, or not enough time between them to tell its usage
+     */
+    private MeterRecommendation recommendCheapestPricePlan(String smartMeterId, String currentPricePlanId) {
+        Optional<MeterReadingAggregate> aggregate = meterReadingService.getAggregate(smartMeterId);
+        if (!aggregate.isPresent() || !hasUsage(aggregate.get())) {
+            return null;
+        }
+
+        return pricePlanCatalogue
+                .cheapestAndCurrent(calculateEnergyConsumed(aggregate.get()), currentPricePlanId)
+                .map(costs -> new MeterRecommendation(
+                        smartMeterId,
+                        costs.currentCost() == null ? null : currentPricePlanId,
+                        costs.currentCost(),
+                        costs.cheapestPlanName(),
+                        costs.cheapestCost(),
+                        costs.currentCost() == null ? null : costs.currentCost().subtract(costs.cheapestCost())))
+                .orElse(null);
     }
 
-    private BigDecimal calculateAverageReading(List<ElectricityReading> electricityReadings) {
-        BigDecimal summedReadings = electricityReadings.stream()
-                .map(ElectricityReading::reading)
-                .reduce(BigDecimal.ZERO, (reading, accumulator) -> reading.add(accumulator));
+    private static boolean hasUsage(MeterReadingAggregate aggregate) {
+        return aggregate.count() > 0
+                && Duration.between(aggregate.earliest(), aggregate.latest()).getSeconds() > 0;
+    }
 
-        return summedReadings.divide(BigDecimal.valueOf(electricityReadings.size()), RoundingMode.HALF_UP);
+    /**
+     * Recommends for the meters {@code from} to {@code to}, writing each into its own slot of the slice starting at
+     * {@code sliceStart}, so the halves never share anything but the read-only store.
+     */
+    private final class FleetRecommendationTask extends RecursiveAction {
+
+        private final String[] smartMeterIds;
+        private final Map<String, String> accounts;
+        private final MeterRecommendation[] slice;
+        private final int sliceStart;
+        private final int from;
+        private final int to;
+
+        FleetRecommendationTask(
+                String[] smartMeterIds,
+                Map<String, String> accounts,
+                MeterRecommendation[] slice,
+                int sliceStart,
+                int from,
+                int to) {
+            this.smartMeterIds = smartMeterIds;
+            this.accounts = accounts;
+            this.slice = slice;
+            this.sliceStart = sliceStart;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FLEET_TASK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    String smartMeterId = smartMeterIds[i];
+                    slice[i - sliceStart] = recommendCheapestPricePlan(smartMeterId, accounts.get(smartMeterId));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new FleetRecommendationTask(smartMeterIds, accounts, slice, sliceStart, from, middle),
+                    new FleetRecommendationTask(smartMeterIds, accounts, slice, sliceStart, middle, to));
+        }
+    }
+
+    private PlanTotals costOnPricePlan(String smartMeterId, String pricePlanId) {
+        Optional<MeterReadingAggregate> aggregate = meterReadingService.getAggregate(smartMeterId);
+        if (!aggregate.isPresent() || !hasUsage(aggregate.get())) {
+            return PlanTotals.NONE;
+        }
+
+        return pricePlanCatalogue
+                .cheapestAndCurrent(calculateEnergyConsumed(aggregate.get()), pricePlanId)
+                .filter(costs -> costs.currentCost() != null)
+                .map(costs -> {
+                    BigDecimal savings = costs.currentCost().subtract(costs.cheapestCost());
+                    return new PlanTotals(1, costs.currentCost(), savings.signum() > 0 ? 1 : 0, savings);
+                })
+                .orElse(PlanTotals.NONE);
+    }
+
+    private record PlanTotals(
+            int metersWithUsage, BigDecimal totalCost, int metersThatWouldSave, BigDecimal totalSavings) {
+
+        static final PlanTotals NONE = new PlanTotals(0, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+
+        PlanTotals plus(PlanTotals other) {
+            return new PlanTotals(
+                    metersWithUsage + other.metersWithUsage,
+                    totalCost.add(other.totalCost),
+                    metersThatWouldSave + other.metersThatWouldSave,
+                    totalSavings.add(other.totalSavings));
+        }
+    }
+
+    /**
+     * Totals the meters {@code from} to {@code to} of a plan, halving the range until it is small enough.
+     */
+    private final class PlanTotalsTask extends RecursiveTask<PlanTotals> {
+
+        private final String pricePlanId;
+        private final String[] smartMeterIds;
+        private final int from;
+        private final int to;
+
+        PlanTotalsTask(String pricePlanId, String[] smartMeterIds, int from, int to) {
+            this.pricePlanId = pricePlanId;
+            this.smartMeterIds = smartMeterIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PlanTotals compute() {
+            if (to - from <= FLEET_TASK_SIZE) {
+                PlanTotals totals = PlanTotals.NONE;
+                for (int i = from; i < to; i++) {
+                    totals = totals.plus(costOnPricePlan(smartMeterIds[i], pricePlanId));
+                }
+                return totals;
+            }
+            int middle = (from + to) >>> 1;
+            PlanTotalsTask secondHalf = new PlanTotalsTask(pricePlanId, smartMeterIds, middle, to);
+            secondHalf.fork();
+            PlanTotals firstHalf = new PlanTotalsTask(pricePlanId, smartMeterIds, from, middle).compute();
+            return firstHalf.plus(secondHalf.join());
+        }
     }
 
-    private BigDecimal calculateUsageTimeInHours(List<ElectricityReading> electricityReadings) {
-        ElectricityReading first = electricityReadings.stream()
-                .min(Comparator.comparing(ElectricityReading::time))
-                .get();
+    /**
+     * The energy consumed over a meter's whole history, which all its costs are calculated from. Served from the cost
+     * cache until readings are stored for the meter again.
+     */
+    private Optional<BigDecimal> getEnergyConsumed(String smartMeterId) {
+        long version = meterReadingService.getVersion(smartMeterId);
+        BigDecimal cachedEnergyConsumed = costCache.get(smartMeterId, version);
+        if (cachedEnergyConsumed != null) {
+            return Optional.of(cachedEnergyConsumed);
+        }
+
+        Optional<MeterReadingAggregate> aggregate = meterReadingService.getAggregate(smartMeterId);
+
+        if (!aggregate.isPresent()) {
+            return Optional.empty();
+        }
 
-        ElectricityReading last = electricityReadings.stream()
-                .max(Comparator.comparing(ElectricityReading::time))
-                .get();
+        final BigDecimal energyConsumedInKwH = calculateEnergyConsumed(aggregate.get());
+        costCache.put(smartMeterId, version, energyConsumedInKwH);
+        return Optional.of(energyConsumedInKwH);
+    }
+
+    private BigDecimal calculateEnergyConsumed(MeterReadingAggregate aggregate) {
+        return pricePlanCatalogue
+                .getCostEngine()
+                .evaluate(
+                        () -> calculateEnergyConsumedInDecimals(aggregate),
+                        () -> FixedPointCosts.energyConsumed(aggregate));
+    }
+
+    private BigDecimal calculateEnergyConsumedInDecimals(MeterReadingAggregate aggregate) {
+        final BigDecimal averageReadingInKw = calculateAverageReading(aggregate);
+        final BigDecimal usageTimeInHours = calculateUsageTimeInHours(aggregate);
+        return averageReadingInKw.divide(usageTimeInHours, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal calculateAverageReading(MeterReadingAggregate aggregate) {
+        return aggregate.sum().divide(BigDecimal.valueOf(aggregate.count()), RoundingMode.HALF_UP);
+    }
 
-        return BigDecimal.valueOf(Duration.between(first.time(), last.time()).getSeconds() / 3600.0);
+    private BigDecimal calculateUsageTimeInHours(MeterReadingAggregate aggregate) {
+        return BigDecimal.valueOf(Duration.between(aggregate.earliest(), aggregate.latest()).getSeconds() / 3600.0);
     }
 }
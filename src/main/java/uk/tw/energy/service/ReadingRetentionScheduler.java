@@ -0,0 +1,47 @@
+package uk.tw.energy.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import uk.tw.energy.store.ReadingRetention;
+
+/**
+ * Periodically drops aged raw readings and rollups. Nothing is dropped unless {@code readings.retention.raw} or
+ * {@code readings.retention.raw-count} is set; minute and hour rollups are kept forever unless their own retention is
+ * set too.
+ *
+ * <p>When {@code readings.memory-budget} is set, the heaviest meters then shed their oldest detail until the store's
+ * estimated size fits in it.
+ */
+@Component
+public class ReadingRetentionScheduler {
+
+    private final MeterReadingService meterReadingService;
+    private final ReadingRetention retention;
+    private final DataSize memoryBudget;
+
+    public ReadingRetentionScheduler(
+            MeterReadingService meterReadingService,
+            @Value("${readings.retention.raw:#{null}}") Duration raw,
+            @Value("${readings.retention.minute:#{null}}") Duration minute,
+            @Value("${readings.retention.hour:#{null}}") Duration hour,
+            @Value("${readings.retention.raw-count:#{null}}") Integer rawCount,
+            @Value("${readings.memory-budget:#{null}}") DataSize memoryBudget) {
+        this.meterReadingService = meterReadingService;
+        this.retention = new ReadingRetention(raw, minute, hour, rawCount);
+        this.memoryBudget = memoryBudget;
+    }
+
+    @Scheduled(fixedDelayString = "${readings.retention.interval:PT1H}")
+    public void applyRetention() {
+        if (retention.dropsRaw()) {
+            meterReadingService.applyRetention(retention, Instant.now());
+        }
+        if (memoryBudget != null) {
+            meterReadingService.applyMemoryBudget(memoryBudget.toBytes());
+        }
+    }
+}
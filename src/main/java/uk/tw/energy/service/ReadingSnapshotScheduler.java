@@ -0,0 +1,37 @@
+package uk.tw.energy.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uk.tw.energy.store.DurableReadingStore;
+import uk.tw.energy.store.ReadingStore;
+
+/**
+ * Periodically snapshots a durable reading store together with the accounts, which bounds how much of the log has to
+ * be replayed on start. Does nothing when readings only live in memory.
+ */
+@Component
+public class ReadingSnapshotScheduler {
+
+    private final ReadingStore readingStore;
+    private final AccountService accountService;
+
+    public ReadingSnapshotScheduler(ReadingStore readingStore, AccountService accountService) {
+        this.readingStore = readingStore;
+        this.accountService = accountService;
+    }
+
+    @Scheduled(
+            initialDelayString = "${readings.snapshot.interval:PT15M}",
+            fixedDelayString = "${readings.snapshot.interval:PT15M}")
+    public void snapshot() {
+        if (readingStore instanceof DurableReadingStore durableReadingStore) {
+            try {
+                durableReadingStore.snapshot(accountService.getSmartMeterToPricePlanAccounts());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
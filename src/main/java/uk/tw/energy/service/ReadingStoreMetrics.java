@@ -0,0 +1,98 @@
+package uk.tw.energy.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uk.tw.energy.store.ReadingStore;
+
+/**
+ * Reports how much the reading store holds: the number of meters, readings and estimated bytes in total, and the
+ * readings and estimated bytes of the largest meters tagged with their smart meter id. Only the largest few meters are
+ * tagged, as a time series for every meter would outgrow any metrics backend.
+ *
+ * <p>Walking all meters is not free, so the figures are gathered every {@code metrics.store.refresh-interval} rather
+ * than on every scrape.
+ */
+@Component
+public class ReadingStoreMetrics {
+
+    private static final Comparator<Footprint> BY_SIZE =
+            Comparator.comparingLong(Footprint::estimatedBytes).thenComparingInt(Footprint::readings);
+
+    private final MeterReadingService meterReadingService;
+    private final int largestMeters;
+    private final MultiGauge largestMeterReadings;
+    private final MultiGauge largestMeterBytes;
+    private volatile Totals totals = new Totals(0, 0, 0);
+
+    public ReadingStoreMetrics(
+            MeterReadingService meterReadingService,
+            MeterRegistry meterRegistry,
+            @Value("${metrics.store.largest-meters:10}") int largestMeters) {
+        this.meterReadingService = meterReadingService;
+        this.largestMeters = largestMeters;
+        Gauge.builder("readings.store.meters", this, metrics -> metrics.totals.meters())
+                .description("Smart meters with readings in the store")
+                .register(meterRegistry);
+        Gauge.builder("readings.store.readings", this, metrics -> metrics.totals.readings())
+                .description("Raw readings held in the store")
+                .baseUnit("readings")
+                .register(meterRegistry);
+        Gauge.builder("readings.store.size", this, metrics -> metrics.totals.estimatedBytes())
+                .description("Estimated heap taken by the readings and rollups in the store")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.largestMeterReadings = MultiGauge.builder("readings.store.meter.readings")
+                .description("Raw readings held for the largest meters")
+                .baseUnit("readings")
+                .register(meterRegistry);
+        this.largestMeterBytes = MultiGauge.builder("readings.store.meter.size")
+                .description("Estimated heap taken by the readings and rollups of the largest meters")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${metrics.store.refresh-interval:PT1M}")
+    public void refresh() {
+        PriorityQueue<Footprint> largest = new PriorityQueue<>(largestMeters + 1, BY_SIZE);
+        long[] sums = new long[3];
+        meterReadingService.visitFootprints((smartMeterId, readings, estimatedBytes) -> {
+            sums[0]++;
+            sums[1] += readings;
+            sums[2] += estimatedBytes;
+            if (largestMeters == 0) {
+                return;
+            }
+            Footprint footprint = new Footprint(smartMeterId, readings, estimatedBytes);
+            if (largest.size() < largestMeters) {
+                largest.add(footprint);
+            } else if (BY_SIZE.compare(footprint, largest.peek()) > 0) {
+                largest.poll();
+                largest.add(footprint);
+            }
+        });
+        totals = new Totals(sums[0], sums[1], sums[2]);
+
+        List<MultiGauge.Row<?>> readingRows = new ArrayList<>(largest.size());
+        List<MultiGauge.Row<?>> byteRows = new ArrayList<>(largest.size());
+        for (Footprint footprint : largest) {
+            Tags tags = Tags.of("smart-meter-id", footprint.smartMeterId());
+            readingRows.add(MultiGauge.Row.of(tags, footprint.readings()));
+            byteRows.add(MultiGauge.Row.of(tags, footprint.estimatedBytes()));
+        }
+        largestMeterReadings.register(readingRows, true);
+        largestMeterBytes.register(byteRows, true);
+    }
+
+    private record Footprint(String smartMeterId, int readings, long estimatedBytes) {}
+
+    private record Totals(long meters, long readings, long estimatedBytes) {}
+}
@@ -0,0 +1,126 @@
+package uk.tw.energy.store;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import uk.tw.energy.domain.MeterReadingAggregate;
+
+/**
+ * Mutable count, sum, min, max and time range of readings, fed one reading or one rollup bucket at a time.
+ */
+final class AggregateAccumulator {
+
+    private long count;
+    private final DecimalSum sum = new DecimalSum();
+    private long minUnscaled;
+    private int minScale;
+    private long maxUnscaled;
+    private int maxScale;
+    private long earliestSecond;
+    private int earliestNano;
+    private long latestSecond;
+    private int latestNano;
+
+    void add(long epochSecond, int nano, long unscaledReading, int readingScale) {
+        sum.add(unscaledReading, readingScale);
+        includeTimes(epochSecond, nano, epochSecond, nano);
+        include(1, unscaledReading, readingScale, unscaledReading, readingScale);
+    }
+
+    /**
+     * Swaps a reading already added for another one taken at the same time, leaving the count and time range as they
+     * are. Min and max take in the new value but cannot let go of the old one, so they may still reflect it.
+     */
+    void replace(long replacedUnscaled, int replacedScale, long unscaledReading, int readingScale) {
+        sum.subtract(replacedUnscaled, replacedScale);
+        sum.add(unscaledReading, readingScale);
+        include(0, unscaledReading, readingScale, unscaledReading, readingScale);
+    }
+
+    void add(AggregateAccumulator other) {
+        if (other.count == 0) {
+            return;
+        }
+        sum.add(other.sum);
+        includeTimes(other.earliestSecond, other.earliestNano, other.latestSecond, other.latestNano);
+        include(other.count, other.minUnscaled, other.minScale, other.maxUnscaled, other.maxScale);
+    }
+
+    long count() {
+        return count;
+    }
+
+    AggregateAccumulator copy() {
+        AggregateAccumulator copy = new AggregateAccumulator();
+        copy.add(this);
+        return copy;
+    }
+
+    void writeTo(SnapshotOutput out) throws IOException {
+        out.writeLong(count);
+        sum.writeTo(out);
+        out.writeLong(minUnscaled);
+        out.writeInt(minScale);
+        out.writeLong(maxUnscaled);
+        out.writeInt(maxScale);
+        out.writeLong(earliestSecond);
+        out.writeInt(earliestNano);
+        out.writeLong(latestSecond);
+        out.writeInt(latestNano);
+    }
+
+    static AggregateAccumulator readFrom(SnapshotInput in) throws IOException {
+        AggregateAccumulator accumulator = new AggregateAccumulator();
+        accumulator.count = in.readLong();
+        accumulator.sum.readFrom(in);
+        accumulator.minUnscaled = in.readLong();
+        accumulator.minScale = in.readInt();
+        accumulator.maxUnscaled = in.readLong();
+        accumulator.maxScale = in.readInt();
+        accumulator.earliestSecond = in.readLong();
+        accumulator.earliestNano = in.readInt();
+        accumulator.latestSecond = in.readLong();
+        accumulator.latestNano = in.readInt();
+        return accumulator;
+    }
+
+    MeterReadingAggregate toAggregate() {
+        if (count == 0) {
+            return MeterReadingAggregate.EMPTY;
+        }
+        return new MeterReadingAggregate(
+                count,
+                sum.toBigDecimal(),
+                BigDecimal.valueOf(minUnscaled, minScale),
+                BigDecimal.valueOf(maxUnscaled, maxScale),
+                Instant.ofEpochSecond(earliestSecond, earliestNano),
+                Instant.ofEpochSecond(latestSecond, latestNano));
+    }
+
+    private void include(long readings, long lowUnscaled, int lowScale, long highUnscaled, int highScale) {
+        if (count == 0 || DecimalSum.compare(lowUnscaled, lowScale, minUnscaled, minScale) < 0) {
+            minUnscaled = lowUnscaled;
+            minScale = lowScale;
+        }
+        if (count == 0 || DecimalSum.compare(highUnscaled, highScale, maxUnscaled, maxScale) > 0) {
+            maxUnscaled = highUnscaled;
+            maxScale = highScale;
+        }
+        count += readings;
+    }
+
+    private void includeTimes(long fromSecond, int fromNano, long toSecond, int toNano) {
+        if (count == 0 || isBefore(fromSecond, fromNano, earliestSecond, earliestNano)) {
+            earliestSecond = fromSecond;
+            earliestNano = fromNano;
+        }
+        if (count == 0 || isBefore(latestSecond, latestNano, toSecond, toNano)) {
+            latestSecond = toSecond;
+            latestNano = toNano;
+        }
+    }
+
+    static boolean isBefore(long epochSecond, int nano, long otherEpochSecond, int otherNano) {
+        return epochSecond < otherEpochSecond || (epochSecond == otherEpochSecond && nano < otherNano);
+    }
+}
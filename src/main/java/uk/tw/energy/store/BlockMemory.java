@@ -0,0 +1,19 @@
+package uk.tw.energy.store;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Where the encoded bytes of {@link CompressedBlock}s are kept once they are sealed.
+ */
+interface BlockMemory {
+
+    BlockMemory HEAP = (data, length) -> ByteBuffer.wrap(length == data.length ? data : Arrays.copyOf(data, length));
+
+    /**
+     * Copies the first {@code length} bytes of {@code data}, which the caller may reuse afterwards.
+     *
+     * @return a buffer holding exactly the copied bytes from index 0, which is never written to again
+     */
+    ByteBuffer store(byte[] data, int length);
+}
@@ -0,0 +1,124 @@
+package uk.tw.energy.store;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadingAggregate;
+import uk.tw.energy.domain.ReadingRollup;
+import uk.tw.energy.domain.ReadingsPage;
+import uk.tw.energy.domain.RollupTier;
+
+/**
+ * Safe for concurrent use: meters are created atomically and each meter has its own append lock, so writes to different
+ * meters never contend while readers always see a consistent, lock-free snapshot.
+ */
+public class ColumnarReadingStore implements ReadingStore {
+
+    private final Map<String, MeterReadingColumns> meterColumns = new ConcurrentHashMap<>();
+    private final BlockMemory blockMemory;
+
+    public ColumnarReadingStore() {
+        this(BlockMemory.HEAP);
+    }
+
+    ColumnarReadingStore(BlockMemory blockMemory) {
+        this.blockMemory = blockMemory;
+    }
+
+    @Override
+    public Optional<List<ElectricityReading>> getReadings(String smartMeterId) {
+        return Optional.ofNullable(meterColumns.get(smartMeterId)).map(MeterReadingColumns::asList);
+    }
+
+    @Override
+    public Optional<ReadingsPage> getReadings(String smartMeterId, Instant from, Instant to, Instant after, int limit) {
+        return Optional.ofNullable(meterColumns.get(smartMeterId))
+                .map(columns -> columns.page(from, to, after, limit));
+    }
+
+    @Override
+    public Optional<MeterReadingAggregate> getAggregate(String smartMeterId) {
+        return Optional.ofNullable(meterColumns.get(smartMeterId)).map(MeterReadingColumns::aggregate);
+    }
+
+    @Override
+    public Optional<MeterReadingAggregate> getAggregate(String smartMeterId, Instant from, Instant to) {
+        return Optional.ofNullable(meterColumns.get(smartMeterId)).map(columns -> columns.aggregate(from, to));
+    }
+
+    @Override
+    public Optional<List<ReadingRollup>> getRollups(String smartMeterId, RollupTier tier, Instant from, Instant to) {
+        return Optional.ofNullable(meterColumns.get(smartMeterId)).map(columns -> columns.rollups(tier, from, to));
+    }
+
+    @Override
+    public void append(String smartMeterId, List<ElectricityReading> electricityReadings) {
+        columnsFor(smartMeterId).appendAll(electricityReadings);
+    }
+
+    @Override
+    public void append(String smartMeterId, ReadingBatch readings) {
+        columnsFor(smartMeterId).appendAll(readings);
+    }
+
+    @Override
+    public void applyRetention(ReadingRetention retention, Instant now) {
+        for (MeterReadingColumns columns : meterColumns.values()) {
+            columns.applyRetention(retention, now);
+        }
+    }
+
+    /**
+     * Halves the detail of the heaviest meter at a time, so that the meters that hold the most lose their oldest
+     * readings first and no meter is emptied while others still hold more.
+     */
+    @Override
+    public long applyMemoryBudget(long budgetBytes) {
+        PriorityQueue<Footprint> heaviest =
+                new PriorityQueue<>(Comparator.comparingLong(Footprint::estimatedBytes).reversed());
+        long total = 0;
+        for (MeterReadingColumns columns : meterColumns.values()) {
+            Footprint footprint = new Footprint(columns, columns.estimatedBytes());
+            heaviest.add(footprint);
+            total += footprint.estimatedBytes();
+        }
+        while (total > budgetBytes && !heaviest.isEmpty()) {
+            Footprint footprint = heaviest.poll();
+            if (footprint.columns().shedOlderHalf()) {
+                Footprint shed = new Footprint(footprint.columns(), footprint.columns().estimatedBytes());
+                heaviest.add(shed);
+                total += shed.estimatedBytes() - footprint.estimatedBytes();
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void visitFootprints(FootprintVisitor visitor) {
+        meterColumns.forEach(
+                (smartMeterId, columns) -> visitor.visit(smartMeterId, columns.size(), columns.estimatedBytes()));
+    }
+
+    Map<String, MeterReadingColumns> meters() {
+        return meterColumns;
+    }
+
+    BlockMemory blockMemory() {
+        return blockMemory;
+    }
+
+    MeterReadingColumns columnsFor(String smartMeterId) {
+        MeterReadingColumns columns = meterColumns.get(smartMeterId);
+        if (columns == null) {
+            columns = meterColumns.computeIfAbsent(smartMeterId, id -> new MeterReadingColumns(blockMemory));
+        }
+        return columns;
+    }
+
+    private record Footprint(MeterReadingColumns columns, long estimatedBytes) {}
+}
@@ -0,0 +1,213 @@
+package uk.tw.energy.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An immutable, compressed run of readings in time order with one reading per time, as {@link MeterReadingColumns}
+ * keeps them.
+ *
+ * <p>Times are stored as delta-of-delta seconds and delta nanos, reading values as deltas of their unscaled value, all
+ * zig-zag encoded into variable width bit fields, and the scale only when it changes. Readings taken at a steady
+ * interval with the same scale therefore cost three bits plus the bits of their value delta, typically around three
+ * bytes instead of 21.
+ *
+ * <p>The encoded bytes are kept wherever the {@link BlockMemory} puts them, on the heap or in direct memory, and are
+ * decoded from there.
+ */
+final class CompressedBlock {
+
+    static final int READINGS = 1024;
+
+    private static final int NANO_BITS = 30;
+
+    private final ByteBuffer data;
+    private final int count;
+    private final long lastEpochSecond;
+    private final int lastNano;
+
+    private CompressedBlock(ByteBuffer data, int count, long lastEpochSecond, int lastNano) {
+        this.data = data;
+        this.count = count;
+        this.lastEpochSecond = lastEpochSecond;
+        this.lastNano = lastNano;
+    }
+
+    static CompressedBlock encode(
+            long[] epochSeconds,
+            int[] nanos,
+            long[] unscaledReadings,
+            byte[] readingScales,
+            int count,
+            BlockMemory memory) {
+        BitWriter out = new BitWriter(count * 4 + 32);
+        out.write(epochSeconds[0], Long.SIZE);
+        out.write(nanos[0], NANO_BITS);
+        out.write(readingScales[0], Byte.SIZE);
+        out.write(unscaledReadings[0], Long.SIZE);
+        long secondsDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long nextSecondsDelta = epochSeconds[i] - epochSeconds[i - 1];
+            out.writeZigZag(nextSecondsDelta - secondsDelta);
+            secondsDelta = nextSecondsDelta;
+            out.writeZigZag(nanos[i] - nanos[i - 1]);
+            if (readingScales[i] == readingScales[i - 1]) {
+                out.write(0, 1);
+            } else {
+                out.write(1, 1);
+                out.write(readingScales[i], Byte.SIZE);
+            }
+            out.writeZigZag(unscaledReadings[i] - unscaledReadings[i - 1]);
+        }
+        ByteBuffer data = memory.store(out.bytes(), out.length());
+        return new CompressedBlock(data, count, epochSeconds[count - 1], nanos[count - 1]);
+    }
+
+    /**
+     * Decodes all readings into the given columns from {@code offset} on, which must have room for {@link #size()}.
+     */
+    void decode(long[] epochSeconds, int[] nanos, long[] unscaledReadings, byte[] readingScales, int offset) {
+        BitReader in = new BitReader(data);
+        epochSeconds[offset] = in.read(Long.SIZE);
+        nanos[offset] = (int) in.read(NANO_BITS);
+        readingScales[offset] = (byte) in.read(Byte.SIZE);
+        unscaledReadings[offset] = in.read(Long.SIZE);
+        long secondsDelta = 0;
+        for (int i = offset + 1; i < offset + count; i++) {
+            secondsDelta += in.readZigZag();
+            epochSeconds[i] = epochSeconds[i - 1] + secondsDelta;
+            nanos[i] = (int) (nanos[i - 1] + in.readZigZag());
+            readingScales[i] = in.read(1) == 0 ? readingScales[i - 1] : (byte) in.read(Byte.SIZE);
+            unscaledReadings[i] = unscaledReadings[i - 1] + in.readZigZag();
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    long lastEpochSecond() {
+        return lastEpochSecond;
+    }
+
+    int lastNano() {
+        return lastNano;
+    }
+
+    int sizeInBytes() {
+        return data.capacity();
+    }
+
+    void writeTo(SnapshotOutput out) throws IOException {
+        out.writeInt(count);
+        out.writeLong(lastEpochSecond);
+        out.writeInt(lastNano);
+        out.writeInt(data.capacity());
+        out.writeBytes(data);
+    }
+
+    static CompressedBlock readFrom(SnapshotInput in, BlockMemory memory) throws IOException {
+        int count = in.readInt();
+        long lastEpochSecond = in.readLong();
+        int lastNano = in.readInt();
+        byte[] data = new byte[in.readInt()];
+        in.readBytes(data, data.length);
+        return new CompressedBlock(memory.store(data, data.length), count, lastEpochSecond, lastNano);
+    }
+
+    private static final class BitWriter {
+
+        private byte[] bytes;
+        private long bits;
+
+        BitWriter(int expectedBytes) {
+            bytes = new byte[expectedBytes];
+        }
+
+        /**
+         * Zero takes one bit; anything else a prefix of two to four bits and 7, 16, 32 or 64 bits of value.
+         */
+        void writeZigZag(long value) {
+            long zigZag = (value << 1) ^ (value >> 63);
+            if (zigZag == 0) {
+                write(0, 1);
+            } else if (zigZag >>> 7 == 0) {
+                write(0b10, 2);
+                write(zigZag, 7);
+            } else if (zigZag >>> 16 == 0) {
+                write(0b110, 3);
+                write(zigZag, 16);
+            } else if (zigZag >>> 32 == 0) {
+                write(0b1110, 4);
+                write(zigZag, 32);
+            } else {
+                write(0b1111, 4);
+                write(zigZag, 64);
+            }
+        }
+
+        void write(long value, int count) {
+            if (((bits + count + 7) >>> 3) > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, (int) ((bits + count + 7) >>> 3)));
+            }
+            int remaining = count;
+            while (remaining > 0) {
+                int bitInByte = (int) (bits & 7);
+                int take = Math.min(8 - bitInByte, remaining);
+                int chunk = (int) (value >>> (remaining - take)) & ((1 << take) - 1);
+                bytes[(int) (bits >>> 3)] |= (byte) (chunk << (8 - bitInByte - take));
+                bits += take;
+                remaining -= take;
+            }
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int length() {
+            return (int) ((bits + 7) >>> 3);
+        }
+    }
+
+    private static final class BitReader {
+
+        private final ByteBuffer bytes;
+        private long bits;
+
+        BitReader(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        long readZigZag() {
+            long zigZag;
+            if (read(1) == 0) {
+                return 0;
+            } else if (read(1) == 0) {
+                zigZag = read(7);
+            } else if (read(1) == 0) {
+                zigZag = read(16);
+            } else if (read(1) == 0) {
+                zigZag = read(32);
+            } else {
+                zigZag = read(64);
+            }
+            return (zigZag >>> 1) ^ -(zigZag & 1);
+        }
+
+        long read(int count) {
+            long value = 0;
+            int remaining = count;
+            while (remaining > 0) {
+                int bitInByte = (int) (bits & 7);
+                int take = Math.min(8 - bitInByte, remaining);
+                int chunk = ((bytes.get((int) (bits >>> 3)) & 0xFF) >>> (8 - bitInByte - take)) & ((1 << take) - 1);
+                value = (value << take) | chunk;
+                bits += take;
+                remaining -= take;
+            }
+            return value;
+        }
+    }
+}
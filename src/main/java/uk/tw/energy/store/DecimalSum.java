@@ -0,0 +1,232 @@
+package uk.tw.energy.store;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Running sum of decimal values given as unscaled value and scale. Kept in a single {@code long} while it fits and
+ * switched to {@link BigDecimal} once it does not. The result is the same as adding the values with
+ * {@link BigDecimal#add}, including its scale.
+ *
+ * <p>That scale is the largest of the values summed, so the number of values of each scale is counted too: when the
+ * last value of the largest scale is subtracted again the sum drops back to the next one, as if it had never been
+ * added.
+ */
+final class DecimalSum {
+
+    private static final int[] NO_SCALES = new int[0];
+    private static final long[] NO_COUNTS = new long[0];
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private long unscaledSum;
+    private int scale;
+    private BigDecimal overflowed;
+
+    /**
+     * The distinct scales of the values in the sum and how many values have each, or {@code null} when not known for a
+     * sum restored from a snapshot written before they were counted, whose scale then never drops back.
+     */
+    private int[] valueScales = NO_SCALES;
+    private long[] valueScaleCounts = NO_COUNTS;
+    private int distinctScales;
+
+    void add(long unscaledValue, int valueScale) {
+        addValue(unscaledValue, valueScale);
+        countScale(valueScale, 1);
+    }
+
+    private void addValue(long unscaledValue, int valueScale) {
+        if (overflowed == null) {
+            try {
+                addExact(unscaledValue, valueScale);
+                return;
+            } catch (ArithmeticException e) {
+                overflowed = BigDecimal.valueOf(unscaledSum, scale);
+            }
+        }
+        overflowed = overflowed.add(BigDecimal.valueOf(unscaledValue, valueScale));
+    }
+
+    /**
+     * Takes a value added before back out again, as when a reading is replaced, leaving the sum with the scale of the
+     * values still in it.
+     */
+    void subtract(long unscaledValue, int valueScale) {
+        if (unscaledValue != Long.MIN_VALUE) {
+            addValue(-unscaledValue, valueScale);
+        } else {
+            if (overflowed == null) {
+                overflowed = BigDecimal.valueOf(unscaledSum, scale);
+            }
+            overflowed = overflowed.subtract(BigDecimal.valueOf(unscaledValue, valueScale));
+        }
+        countScale(valueScale, -1);
+        dropScaleToValues();
+    }
+
+    void add(DecimalSum other) {
+        if (other.overflowed == null) {
+            addValue(other.unscaledSum, other.scale);
+        } else {
+            if (overflowed == null) {
+                overflowed = BigDecimal.valueOf(unscaledSum, scale);
+            }
+            overflowed = overflowed.add(other.overflowed);
+        }
+        if (other.valueScales == null) {
+            valueScales = null;
+        }
+        for (int i = 0; i < other.distinctScales && valueScales != null; i++) {
+            countScale(other.valueScales[i], other.valueScaleCounts[i]);
+        }
+    }
+
+    private void countScale(int valueScale, long values) {
+        if (valueScales == null) {
+            return;
+        }
+        int index = 0;
+        while (index < distinctScales && valueScales[index] != valueScale) {
+            index++;
+        }
+        if (index == distinctScales) {
+            if (distinctScales == valueScales.length) {
+                valueScales = Arrays.copyOf(valueScales, Math.max(1, distinctScales * 2));
+                valueScaleCounts = Arrays.copyOf(valueScaleCounts, valueScales.length);
+            }
+            valueScales[index] = valueScale;
+            valueScaleCounts[index] = 0;
+            distinctScales++;
+        }
+        valueScaleCounts[index] += values;
+        if (valueScaleCounts[index] == 0) {
+            distinctScales--;
+            valueScales[index] = valueScales[distinctScales];
+            valueScaleCounts[index] = valueScaleCounts[distinctScales];
+        }
+    }
+
+    /**
+     * Lowers the scale of the sum to the largest scale of the values left in it, and never below zero, which is where
+     * an empty sum starts. The sum is exact at that scale, so nothing is rounded.
+     */
+    private void dropScaleToValues() {
+        if (valueScales == null) {
+            return;
+        }
+        int valuesScale = 0;
+        for (int i = 0; i < distinctScales; i++) {
+            valuesScale = Math.max(valuesScale, valueScales[i]);
+        }
+        if (overflowed != null) {
+            if (valuesScale < overflowed.scale()) {
+                overflowed = overflowed.setScale(valuesScale, RoundingMode.UNNECESSARY);
+            }
+        } else if (valuesScale < scale) {
+            unscaledSum /= POWERS_OF_TEN[scale - valuesScale];
+            scale = valuesScale;
+        }
+    }
+
+    BigDecimal toBigDecimal() {
+        return overflowed != null ? overflowed : BigDecimal.valueOf(unscaledSum, scale);
+    }
+
+    /**
+     * Writes a kind byte: bit 0 set when the sum has overflowed, bit 1 set when the scale counts follow the sum.
+     */
+    void writeTo(SnapshotOutput out) throws IOException {
+        int countsScales = valueScales == null ? 0 : 2;
+        if (overflowed == null) {
+            out.writeByte(countsScales);
+            out.writeLong(unscaledSum);
+            out.writeInt(scale);
+        } else {
+            byte[] unscaled = overflowed.unscaledValue().toByteArray();
+            out.writeByte(countsScales | 1);
+            out.writeInt(unscaled.length);
+            out.writeBytes(unscaled, unscaled.length);
+            out.writeInt(overflowed.scale());
+        }
+        if (valueScales != null) {
+            out.writeInt(distinctScales);
+            for (int i = 0; i < distinctScales; i++) {
+                out.writeInt(valueScales[i]);
+                out.writeLong(valueScaleCounts[i]);
+            }
+        }
+    }
+
+    void readFrom(SnapshotInput in) throws IOException {
+        byte kind = in.readByte();
+        if ((kind & 1) == 0) {
+            unscaledSum = in.readLong();
+            scale = in.readInt();
+            overflowed = null;
+        } else {
+            byte[] unscaled = new byte[in.readInt()];
+            in.readBytes(unscaled, unscaled.length);
+            overflowed = new BigDecimal(new BigInteger(unscaled), in.readInt());
+        }
+        if ((kind & 2) == 0) {
+            valueScales = null;
+            valueScaleCounts = null;
+            distinctScales = 0;
+            return;
+        }
+        distinctScales = in.readInt();
+        valueScales = new int[distinctScales];
+        valueScaleCounts = new long[distinctScales];
+        for (int i = 0; i < distinctScales; i++) {
+            valueScales[i] = in.readInt();
+            valueScaleCounts[i] = in.readLong();
+        }
+    }
+
+    private void addExact(long unscaledValue, int valueScale) {
+        int resultScale = Math.max(scale, valueScale);
+        long rescaledSum = rescale(unscaledSum, scale, resultScale);
+        long rescaledValue = rescale(unscaledValue, valueScale, resultScale);
+        unscaledSum = Math.addExact(rescaledSum, rescaledValue);
+        scale = resultScale;
+    }
+
+    /**
+     * @throws ArithmeticException when the rescaled value does not fit in a {@code long}
+     */
+    static long rescale(long unscaledValue, int fromScale, int toScale) {
+        if (toScale == fromScale) {
+            return unscaledValue;
+        }
+        int exponent = toScale - fromScale;
+        if (exponent < 0 || exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Cannot rescale from " + fromScale + " to " + toScale);
+        }
+        return Math.multiplyExact(unscaledValue, POWERS_OF_TEN[exponent]);
+    }
+
+    /**
+     * Compares two decimals given as unscaled value and scale, like {@link BigDecimal#compareTo}.
+     */
+    static int compare(long unscaledValue, int scale, long otherUnscaledValue, int otherScale) {
+        int commonScale = Math.max(scale, otherScale);
+        try {
+            return Long.compare(
+                    rescale(unscaledValue, scale, commonScale), rescale(otherUnscaledValue, otherScale, commonScale));
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(unscaledValue, scale)
+                    .compareTo(BigDecimal.valueOf(otherUnscaledValue, otherScale));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package uk.tw.energy.store;
+
+import java.io.Closeable;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps block bytes in direct memory, carved out of large slabs so that millions of blocks cost a handful of direct
+ * buffers rather than one each.
+ *
+ * <p>Regions come in size classes, four to every doubling from {@value #MIN_REGION_BYTES} bytes, so a block wastes at
+ * most a fifth of its region. A freed region goes onto the free list of its class and is handed out again before the
+ * slab is bumped any further; blocks that do not fit in a slab get a direct buffer of their own.
+ *
+ * <p>Readers decode blocks without any lock, from views that may outlive the meter's current columns, so a region is
+ * only freed once the buffer handed out for it is unreachable, by a {@link Cleaner}. After {@link #close()} nothing is
+ * stored any more and the slabs are dropped; their memory goes back to the system once the last buffer handed out of
+ * them is unreachable as well.
+ */
+final class DirectBlockArena implements BlockMemory, Closeable {
+
+    static final int MIN_REGION_BYTES = 64;
+
+    private static final int CLASSES_PER_DOUBLING = 4;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int slabBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private int slabPosition;
+    private final long[][] freeRegions;
+    private final int[] freeCounts;
+    private long reservedBytes;
+    private long usedBytes;
+    private boolean closed;
+
+    DirectBlockArena(int slabBytes) {
+        if (slabBytes < MIN_REGION_BYTES) {
+            throw new IllegalArgumentException("Slabs must hold at least " + MIN_REGION_BYTES + " bytes: " + slabBytes);
+        }
+        this.slabBytes = slabBytes;
+        int classes = sizeClass(slabBytes) + 1;
+        freeRegions = new long[classes][];
+        freeCounts = new int[classes];
+    }
+
+    /**
+     * @throws IllegalStateException once the arena is closed
+     */
+    @Override
+    public ByteBuffer store(byte[] data, int length) {
+        int sizeClass = sizeClass(length);
+        int regionBytes = regionBytes(sizeClass);
+        ByteBuffer region;
+        long address;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The off-heap reading store is closed");
+            }
+            if (regionBytes > slabBytes) {
+                region = ByteBuffer.allocateDirect(length);
+                address = -1;
+                reservedBytes += length;
+            } else {
+                address = allocate(sizeClass, regionBytes);
+                region = slabs.get(slab(address)).slice(offset(address), length);
+            }
+            usedBytes += region.capacity();
+        } finally {
+            lock.unlock();
+        }
+        region.put(0, data, 0, length);
+        CLEANER.register(region, new Release(this, address, sizeClass, region.capacity()));
+        return region;
+    }
+
+    /**
+     * @return the direct memory taken by slabs and oversized blocks
+     */
+    long reservedBytes() {
+        lock.lock();
+        try {
+            return reservedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the bytes of the blocks still reachable, not counting what their regions round them up to
+     */
+    long usedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            slabs.clear();
+            Arrays.fill(freeRegions, null);
+            Arrays.fill(freeCounts, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long allocate(int sizeClass, int regionBytes) {
+        if (freeCounts[sizeClass] > 0) {
+            return freeRegions[sizeClass][--freeCounts[sizeClass]];
+        }
+        if (slabs.isEmpty() || slabPosition + regionBytes > slabBytes) {
+            slabs.add(ByteBuffer.allocateDirect(slabBytes));
+            reservedBytes += slabBytes;
+            slabPosition = 0;
+        }
+        long address = ((long) (slabs.size() - 1) << Integer.SIZE) | slabPosition;
+        slabPosition += regionBytes;
+        return address;
+    }
+
+    private void release(long address, int sizeClass, int bytes) {
+        lock.lock();
+        try {
+            usedBytes -= bytes;
+            if (address < 0) {
+                reservedBytes -= bytes;
+                return;
+            }
+            if (closed) {
+                return;
+            }
+            long[] free = freeRegions[sizeClass];
+            if (free == null || freeCounts[sizeClass] == free.length) {
+                free = freeRegions[sizeClass] = free == null ? new long[16] : Arrays.copyOf(free, free.length * 2);
+            }
+            free[freeCounts[sizeClass]++] = address;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the smallest class whose regions hold the given bytes
+     */
+    static int sizeClass(int bytes) {
+        if (bytes <= MIN_REGION_BYTES) {
+            return 0;
+        }
+        int doubling = 31 - Integer.numberOfLeadingZeros(bytes - 1);
+        int step = 1 << (doubling - 2);
+        int steps = (bytes - (1 << doubling) + step - 1) / step;
+        return (doubling - Integer.numberOfTrailingZeros(MIN_REGION_BYTES)) * CLASSES_PER_DOUBLING + steps;
+    }
+
+    static int regionBytes(int sizeClass) {
+        if (sizeClass == 0) {
+            return MIN_REGION_BYTES;
+        }
+        int doubling = Integer.numberOfTrailingZeros(MIN_REGION_BYTES) + (sizeClass - 1) / CLASSES_PER_DOUBLING;
+        int steps = (sizeClass - 1) % CLASSES_PER_DOUBLING + 1;
+        return (1 << doubling) + steps * (1 << (doubling - 2));
+    }
+
+    private static int slab(long address) {
+        return (int) (address >>> Integer.SIZE);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Must not hold on to the region it frees, or the region would never become unreachable.
+     */
+    private record Release(DirectBlockArena arena, long address, int sizeClass, int bytes) implements Runnable {
+
+        @Override
+        public void run() {
+            arena.release(address, sizeClass, bytes);
+        }
+    }
+}
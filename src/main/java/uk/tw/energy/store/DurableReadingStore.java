@@ -0,0 +1,159 @@
+package uk.tw.energy.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadingAggregate;
+import uk.tw.energy.domain.ReadingRollup;
+import uk.tw.energy.domain.ReadingsPage;
+import uk.tw.energy.domain.RollupTier;
+
+/**
+ * Writes every append to a {@link ReadingLog} before applying it to the store it wraps, so that the store can be
+ * rebuilt after a restart from the latest of its {@link ReadingSnapshots} and the log after it. Retention is not
+ * logged; it is simply applied again after a restart.
+ *
+ * <p>A meter's append lock is held from writing to the log until the readings are in the store, so that the log has
+ * the appends of a meter in the order they were applied and a snapshot can cut each meter at an exact log position.
+ * It is a {@link java.util.concurrent.locks.ReentrantLock}, so a virtual thread writing to the log under it does not
+ * pin its carrier thread.
+ */
+public class DurableReadingStore implements ReadingStore, Closeable {
+
+    private final ColumnarReadingStore readingStore;
+    private final ReadingLog readingLog;
+    private final ReadingSnapshots readingSnapshots;
+
+    public DurableReadingStore(
+            ColumnarReadingStore readingStore, ReadingLog readingLog, ReadingSnapshots readingSnapshots) {
+        this.readingStore = readingStore;
+        this.readingLog = readingLog;
+        this.readingSnapshots = readingSnapshots;
+    }
+
+    /**
+     * Restores the latest snapshot into the wrapped store, which must be empty, and replays the log after it.
+     *
+     * @return whether there was anything to restore
+     */
+    public boolean recover() throws IOException {
+        Optional<ReadingSnapshots.Restored> restored = readingSnapshots.restoreLatest(readingStore);
+        long fromPosition = restored.map(ReadingSnapshots.Restored::logPosition).orElse(0L);
+        Map<String, Long> meterCuts = restored.map(ReadingSnapshots.Restored::meterCuts).orElse(Map.of());
+        boolean[] replayed = new boolean[1];
+        readingLog.replay(fromPosition, (position, smartMeterId, readings) -> {
+            Long cut = meterCuts.get(smartMeterId);
+            if (cut == null || position >= cut) {
+                readingStore.append(smartMeterId, readings);
+                replayed[0] = true;
+            }
+        });
+        return restored.isPresent() || replayed[0];
+    }
+
+    /**
+     * Writes a snapshot while appends carry on, then deletes the log segments and snapshots it makes redundant.
+     */
+    public void snapshot(Map<String, String> accounts) throws IOException {
+        long logPosition = readingSnapshots.write(readingStore, readingLog, accounts);
+        readingLog.deleteSegmentsBefore(logPosition);
+    }
+
+    /**
+     * Writes the accounts to disk straight away, rather than with the next snapshot, so that switches of price plan
+     * survive a restart as soon as this returns.
+     */
+    public void saveAccounts(Map<String, String> accounts) throws IOException {
+        readingSnapshots.writeAccounts(accounts);
+    }
+
+    @Override
+    public Optional<List<ElectricityReading>> getReadings(String smartMeterId) {
+        return readingStore.getReadings(smartMeterId);
+    }
+
+    @Override
+    public Optional<ReadingsPage> getReadings(String smartMeterId, Instant from, Instant to, Instant after, int limit) {
+        return readingStore.getReadings(smartMeterId, from, to, after, limit);
+    }
+
+    @Override
+    public Optional<MeterReadingAggregate> getAggregate(String smartMeterId) {
+        return readingStore.getAggregate(smartMeterId);
+    }
+
+    @Override
+    public Optional<MeterReadingAggregate> getAggregate(String smartMeterId, Instant from, Instant to) {
+        return readingStore.getAggregate(smartMeterId, from, to);
+    }
+
+    @Override
+    public Optional<List<ReadingRollup>> getRollups(String smartMeterId, RollupTier tier, Instant from, Instant to) {
+        return readingStore.getRollups(smartMeterId, tier, from, to);
+    }
+
+    @Override
+    public void append(String smartMeterId, List<ElectricityReading> electricityReadings) {
+        ReadingBatch readings = new ReadingBatch(electricityReadings.size());
+        for (ElectricityReading electricityReading : electricityReadings) {
+            readings.add(electricityReading);
+        }
+        append(smartMeterId, readings);
+    }
+
+    /**
+     * @throws UncheckedIOException when the readings could not be logged, or could not be synced after they were
+     *     applied, in which case reads already return them
+     */
+    @Override
+    public void append(String smartMeterId, ReadingBatch readings) {
+        MeterReadingColumns columns = readingStore.columnsFor(smartMeterId);
+        try {
+            long end;
+            columns.appendLock().lock();
+            try {
+                end = readingLog.write(smartMeterId, readings);
+                columns.appendAll(readings);
+            } finally {
+                columns.appendLock().unlock();
+            }
+            readingLog.awaitDurable(end);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not log readings of " + smartMeterId, e);
+        }
+    }
+
+    @Override
+    public void applyRetention(ReadingRetention retention, Instant now) {
+        readingStore.applyRetention(retention, now);
+    }
+
+    @Override
+    public long applyMemoryBudget(long budgetBytes) {
+        return readingStore.applyMemoryBudget(budgetBytes);
+    }
+
+    @Override
+    public void visitFootprints(FootprintVisitor visitor) {
+        readingStore.visitFootprints(visitor);
+    }
+
+    /**
+     * Closes the log, and then the wrapped store when it holds resources of its own.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            readingLog.close();
+        } finally {
+            if (readingStore instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
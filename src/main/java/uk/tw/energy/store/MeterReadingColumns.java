@@ -0,0 +1,1048 @@
+package uk.tw.energy.store;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadingAggregate;
+import uk.tw.energy.domain.ReadingRollup;
+import uk.tw.energy.domain.ReadingsPage;
+import uk.tw.energy.domain.RollupTier;
+
+/**
+ * The readings of a single smart meter held as parallel primitive columns. The reading value keeps its unscaled value
+ * and scale so that it is handed back exactly as it was stored.
+ *
+ * <p>New readings go into a head of plain columns at 21 bytes a reading. Every {@link CompressedBlock#READINGS}
+ * readings the head is sealed into an immutable {@link CompressedBlock}, which typically takes around three bytes a
+ * reading, and blocks are only decoded a block at a time when their readings are read.
+ *
+ * <p>Readings are always held in time order with one reading per time. A batch that carries on after the latest
+ * reading, as nearly all do, is simply appended. A batch that is not in order itself is first sorted by merging the
+ * runs it is already in order in, and one that reaches back before the latest reading is merged in: only the block
+ * where it starts and everything after it is decoded and stored again. A reading taken at the same time as one
+ * already stored, or as an earlier one in the same batch, replaces it.
+ *
+ * <p>Appends are serialised per meter by its {@link #appendLock()}, which {@link DurableReadingStore} also holds while
+ * it logs them. Readers never lock: every append publishes an immutable view through a volatile field. Appends in
+ * order only write past the published size, and merges store the readings from where they start into new columns, so
+ * a view stays consistent without being copied.
+ *
+ * <p>Count, sum and time range are maintained as readings are appended and published together with the view they
+ * describe, so summary questions are answered without touching the readings. A replaced reading is taken back out of
+ * the count and sum; the min and max may still reflect it.
+ *
+ * <p>Time range queries binary search the readings, skipping whole blocks by their last time.
+ *
+ * <p>Readings are also rolled up into minute, hour and day buckets as they arrive. Once raw readings or finer buckets
+ * are dropped by the {@link ReadingRetention}, the history aggregate and the coarser tiers still cover them. Rollups
+ * are queried under the append lock.
+ *
+ * <p>Sealed blocks keep their bytes in the {@link BlockMemory} of the store, which may be off the heap; the head and
+ * the rollups are always on the heap.
+ */
+final class MeterReadingColumns {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int BLOCK_SIZE = CompressedBlock.READINGS;
+    private static final int HEAD_BYTES_PER_READING = Long.BYTES + Integer.BYTES + Long.BYTES + Byte.BYTES;
+    private static final int OBJECT_OVERHEAD_BYTES = 16;
+
+    private final BlockMemory blockMemory;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private CompressedBlock[] blocks = new CompressedBlock[0];
+    private int blockCount;
+    private long[] epochSeconds = new long[INITIAL_CAPACITY];
+    private int[] nanos = new int[INITIAL_CAPACITY];
+    private long[] unscaledReadings = new long[INITIAL_CAPACITY];
+    private byte[] readingScales = new byte[INITIAL_CAPACITY];
+    private int headSize;
+    private long lastEpochSecond;
+    private int lastNano;
+
+    private AggregateAccumulator history = new AggregateAccumulator();
+    private final RollupBuckets[] rollups = new RollupBuckets[RollupTier.values().length];
+    private long rawHorizon = ReadingRetention.KEEP;
+    private final long[] rollupHorizons = new long[RollupTier.values().length];
+
+    private volatile Snapshot published = new Snapshot(
+            new ReadingsView(blocks, 0, new Chunk(0, epochSeconds, nanos, unscaledReadings, readingScales, 0)),
+            MeterReadingAggregate.EMPTY);
+
+    MeterReadingColumns() {
+        this(BlockMemory.HEAP);
+    }
+
+    MeterReadingColumns(BlockMemory blockMemory) {
+        this.blockMemory = blockMemory;
+        for (RollupTier tier : RollupTier.values()) {
+            rollups[tier.ordinal()] = new RollupBuckets(tier);
+            rollupHorizons[tier.ordinal()] = ReadingRetention.KEEP;
+        }
+    }
+
+    /**
+     * Converts all readings before appending any, so that a reading which cannot be stored rejects them all.
+     */
+    void appendAll(List<ElectricityReading> electricityReadings) {
+        ReadingBatch batch = new ReadingBatch(electricityReadings.size());
+        for (ElectricityReading electricityReading : electricityReadings) {
+            batch.add(electricityReading);
+        }
+        appendAll(batch);
+    }
+
+    /**
+     * The lock appends of this meter are serialised by, for callers that have to do something in step with them.
+     */
+    ReentrantLock appendLock() {
+        return appendLock;
+    }
+
+    void appendAll(ReadingBatch batch) {
+        appendLock.lock();
+        try {
+            Chunk readings = inTimeOrder(batch);
+            if (readings.size() == 0) {
+                return;
+            }
+            if (size() == 0
+                    || AggregateAccumulator.isBefore(
+                            lastEpochSecond, lastNano, readings.epochSeconds()[0], readings.nanos()[0])) {
+                store(
+                        readings.epochSeconds(),
+                        readings.nanos(),
+                        readings.unscaledReadings(),
+                        readings.readingScales(),
+                        readings.size(),
+                        true);
+            } else {
+                merge(readings);
+            }
+            publish();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return the readings of the batch in time order with the last one given for each time, which are the columns of
+     *     the batch itself when they are in strict time order already
+     */
+    private static Chunk inTimeOrder(ReadingBatch batch) {
+        Chunk readings = new Chunk(
+                0, batch.epochSeconds, batch.nanos, batch.unscaledReadings, batch.readingScales, batch.size());
+        for (int i = 1; i < readings.size(); i++) {
+            if (!readings.isBefore(i - 1, i)) {
+                return sortedByTime(readings);
+            }
+        }
+        return readings;
+    }
+
+    /**
+     * @return a copy of the readings in time order, keeping the last of the readings taken at the same time
+     */
+    private static Chunk sortedByTime(Chunk readings) {
+        int[] order = timeOrder(readings);
+        int kept = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i == order.length - 1 || readings.isBefore(order[i], order[i + 1])) {
+                order[kept++] = order[i];
+            }
+        }
+        return readings.reordered(order, kept);
+    }
+
+    /**
+     * Sorts the positions of the readings by time, keeping readings taken at the same time in the order they were
+     * given. Late readings mostly leave a batch in a few ordered runs, so the runs are found first and merged pairwise
+     * until one is left, which takes a single pass for a batch that is nearly in order.
+     */
+    private static int[] timeOrder(Chunk readings) {
+        int size = readings.size();
+        int[] order = new int[size];
+        int[] runEnds = new int[size];
+        int runs = 0;
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            if (i == size - 1 || readings.isBefore(i + 1, i)) {
+                runEnds[runs++] = i + 1;
+            }
+        }
+        int[] merged = new int[size];
+        while (runs > 1) {
+            int mergedRuns = 0;
+            for (int run = 0; run < runs; run += 2) {
+                int from = run == 0 ? 0 : runEnds[run - 1];
+                int to = run + 1 < runs ? runEnds[run + 1] : runEnds[run];
+                mergeRuns(readings, order, merged, from, runEnds[run], to);
+                runEnds[mergedRuns++] = to;
+            }
+            runs = mergedRuns;
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+        return order;
+    }
+
+    private static void mergeRuns(Chunk readings, int[] order, int[] merged, int from, int middle, int to) {
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && !readings.isBefore(order[right], order[left]))) {
+                merged[i] = order[left++];
+            } else {
+                merged[i] = order[right++];
+            }
+        }
+    }
+
+    /**
+     * Merges readings in time order that reach back before the latest stored one. The block where they start and
+     * everything after it is decoded, merged with them and stored again into new columns, so views that were handed
+     * out before are left untouched. A stored reading taken at the same time as a new one is replaced by it.
+     */
+    private void merge(Chunk readings) {
+        ReadingsView stored = published.readings();
+        int firstBlock = Math.min(
+                stored.lowerBound(readings.epochSeconds()[0], readings.nanos()[0]) / BLOCK_SIZE, blockCount);
+        Chunk tail = stored.decodeFrom(firstBlock);
+        int capacity = tail.size() + readings.size();
+        Chunk merged =
+                new Chunk(0, new long[capacity], new int[capacity], new long[capacity], new byte[capacity], capacity);
+        int size = 0;
+        int fromTail = 0;
+        int fromReadings = 0;
+        while (fromTail < tail.size() || fromReadings < readings.size()) {
+            if (fromReadings == readings.size()
+                    || (fromTail < tail.size() && tail.isBefore(fromTail, readings, fromReadings))) {
+                tail.copyTo(fromTail++, merged, size++);
+                continue;
+            }
+            if (fromTail < tail.size() && !readings.isBefore(fromReadings, tail, fromTail)) {
+                replace(tail, fromTail++, readings, fromReadings);
+            } else {
+                accumulate(
+                        readings.epochSeconds()[fromReadings],
+                        readings.nanos()[fromReadings],
+                        readings.unscaledReadings()[fromReadings],
+                        readings.readingScales()[fromReadings]);
+            }
+            readings.copyTo(fromReadings++, merged, size++);
+        }
+
+        truncate(firstBlock);
+        store(merged.epochSeconds(), merged.nanos(), merged.unscaledReadings(), merged.readingScales(), size, false);
+    }
+
+    private void store(
+            long[] fromEpochSeconds,
+            int[] fromNanos,
+            long[] fromUnscaledReadings,
+            byte[] fromReadingScales,
+            int count,
+            boolean accumulate) {
+        for (int stored = 0; stored < count; ) {
+            if (headSize == BLOCK_SIZE) {
+                seal();
+            }
+            int chunk = Math.min(count - stored, BLOCK_SIZE - headSize);
+            ensureCapacity(headSize + chunk);
+            System.arraycopy(fromEpochSeconds, stored, epochSeconds, headSize, chunk);
+            System.arraycopy(fromNanos, stored, nanos, headSize, chunk);
+            System.arraycopy(fromUnscaledReadings, stored, unscaledReadings, headSize, chunk);
+            System.arraycopy(fromReadingScales, stored, readingScales, headSize, chunk);
+            if (accumulate) {
+                for (int i = headSize; i < headSize + chunk; i++) {
+                    accumulate(epochSeconds[i], nanos[i], unscaledReadings[i], readingScales[i]);
+                }
+            }
+            headSize += chunk;
+            stored += chunk;
+            lastEpochSecond = epochSeconds[headSize - 1];
+            lastNano = nanos[headSize - 1];
+        }
+    }
+
+    /**
+     * Keeps only the first {@code keptBlocks} blocks and starts a new head, leaving the block array and the head that
+     * were published to the views that share them.
+     */
+    private void truncate(int keptBlocks) {
+        blocks = Arrays.copyOf(blocks, blocks.length);
+        Arrays.fill(blocks, keptBlocks, blockCount, null);
+        blockCount = keptBlocks;
+        epochSeconds = new long[INITIAL_CAPACITY];
+        nanos = new int[INITIAL_CAPACITY];
+        unscaledReadings = new long[INITIAL_CAPACITY];
+        readingScales = new byte[INITIAL_CAPACITY];
+        headSize = 0;
+    }
+
+    private void accumulate(long epochSecond, int nano, long unscaledReading, byte readingScale) {
+        history.add(epochSecond, nano, unscaledReading, readingScale);
+        for (RollupBuckets buckets : rollups) {
+            buckets.add(epochSecond, nano, unscaledReading, readingScale);
+        }
+    }
+
+    private void replace(Chunk replaced, int replacedIndex, Chunk readings, int index) {
+        long replacedUnscaled = replaced.unscaledReadings()[replacedIndex];
+        byte replacedScale = replaced.readingScales()[replacedIndex];
+        long unscaledReading = readings.unscaledReadings()[index];
+        byte readingScale = readings.readingScales()[index];
+        history.replace(replacedUnscaled, replacedScale, unscaledReading, readingScale);
+        for (RollupBuckets buckets : rollups) {
+            buckets.replace(
+                    readings.epochSeconds()[index], replacedUnscaled, replacedScale, unscaledReading, readingScale);
+        }
+    }
+
+    /**
+     * Compresses the full head into a block and starts a new head, leaving the old one to the views that share it.
+     */
+    private void seal() {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, Math.max(4, blocks.length * 2));
+        }
+        blocks[blockCount++] =
+                CompressedBlock.encode(epochSeconds, nanos, unscaledReadings, readingScales, headSize, blockMemory);
+        epochSeconds = new long[BLOCK_SIZE];
+        nanos = new int[BLOCK_SIZE];
+        unscaledReadings = new long[BLOCK_SIZE];
+        readingScales = new byte[BLOCK_SIZE];
+        headSize = 0;
+    }
+
+    private void publish() {
+        Chunk head = new Chunk(blockCount * BLOCK_SIZE, epochSeconds, nanos, unscaledReadings, readingScales, headSize);
+        published = new Snapshot(new ReadingsView(blocks, blockCount, head), history.toAggregate());
+    }
+
+    int size() {
+        return published.readings().size();
+    }
+
+    /**
+     * Roughly the heap taken by the blocks, the head and the rollups, counting array capacity rather than size. Views
+     * that still hold on to replaced columns, and blocks decoded while reading, are not counted.
+     */
+    long estimatedBytes() {
+        appendLock.lock();
+        try {
+            long bytes = (long) blocks.length * Integer.BYTES;
+            for (int i = 0; i < blockCount; i++) {
+                bytes += OBJECT_OVERHEAD_BYTES * 2 + blocks[i].sizeInBytes();
+            }
+            bytes += (long) epochSeconds.length * HEAD_BYTES_PER_READING;
+            for (RollupBuckets buckets : rollups) {
+                bytes += buckets.estimatedBytes();
+            }
+            return bytes;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    List<ElectricityReading> asList() {
+        return published.readings();
+    }
+
+    MeterReadingAggregate aggregate() {
+        return published.aggregate();
+    }
+
+    ReadingsPage page(Instant from, Instant to, Instant after, int limit) {
+        return published.readings().page(from, to, after, limit);
+    }
+
+    /**
+     * Aggregate of the readings with {@code from <= time < to}, built from the coarsest buckets that fit in the range
+     * and raw readings only for the edges. Where raw readings or finer buckets have been dropped, the edges are widened
+     * to the finest tier still kept there.
+     */
+    MeterReadingAggregate aggregate(Instant from, Instant to) {
+        appendLock.lock();
+        try {
+            MeterReadingAggregate whole = published.aggregate();
+            if (whole.count() == 0) {
+                return whole;
+            }
+            Instant end = whole.latest().plusNanos(1);
+            boolean fromStart = from == null || !from.isAfter(whole.earliest());
+            boolean toEnd = to == null || !to.isBefore(end);
+            if (fromStart && toEnd) {
+                return whole;
+            }
+            Instant rangeFrom = alignDownToKeptTier(fromStart ? whole.earliest() : from);
+            Instant rangeTo = alignUpToKeptTier(toEnd ? end : to);
+            AggregateAccumulator accumulator = new AggregateAccumulator();
+            accumulate(rangeFrom, rangeTo, RollupTier.DAY.ordinal(), accumulator);
+            return accumulator.toAggregate();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void accumulate(Instant from, Instant to, int tierIndex, AggregateAccumulator accumulator) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (tierIndex < 0) {
+            published.readings().accumulate(from, to, accumulator);
+            return;
+        }
+        RollupBuckets buckets = rollups[tierIndex];
+        long firstBucket = alignUp(from, buckets.tier());
+        long endOfBuckets = buckets.tier().bucketStart(to.getEpochSecond());
+        if (firstBucket >= endOfBuckets) {
+            accumulate(from, to, tierIndex - 1, accumulator);
+            return;
+        }
+        buckets.accumulate(firstBucket, endOfBuckets, accumulator);
+        accumulate(from, Instant.ofEpochSecond(firstBucket), tierIndex - 1, accumulator);
+        accumulate(Instant.ofEpochSecond(endOfBuckets), to, tierIndex - 1, accumulator);
+    }
+
+    private Instant alignDownToKeptTier(Instant time) {
+        RollupTier tier = finestTierKeptAt(time);
+        return tier == null ? time : Instant.ofEpochSecond(tier.bucketStart(time.getEpochSecond()));
+    }
+
+    private Instant alignUpToKeptTier(Instant time) {
+        RollupTier tier = finestTierKeptAt(time);
+        return tier == null ? time : Instant.ofEpochSecond(alignUp(time, tier));
+    }
+
+    /**
+     * @return the finest rollup tier complete at the given time, or {@code null} when raw readings still are
+     */
+    private RollupTier finestTierKeptAt(Instant time) {
+        if (time.getEpochSecond() >= rawHorizon) {
+            return null;
+        }
+        for (RollupTier tier : RollupTier.values()) {
+            if (time.getEpochSecond() >= rollupHorizons[tier.ordinal()]) {
+                return tier;
+            }
+        }
+        return RollupTier.DAY;
+    }
+
+    private static long alignUp(Instant time, RollupTier tier) {
+        long start = tier.bucketStart(time.getEpochSecond());
+        return start == time.getEpochSecond() && time.getNano() == 0 ? start : start + tier.getSeconds();
+    }
+
+    List<ReadingRollup> rollups(RollupTier tier, Instant from, Instant to) {
+        appendLock.lock();
+        try {
+            long fromStart = from == null ? Long.MIN_VALUE : tier.bucketStart(from.getEpochSecond());
+            long toStart = to == null ? Long.MAX_VALUE : alignUp(to, tier);
+            return rollups[tier.ordinal()].rollups(Math.max(fromStart, rollupHorizons[tier.ordinal()]), toStart);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Drops raw readings and rollup buckets that are past their retention. The history aggregate is left as it is.
+     */
+    void applyRetention(ReadingRetention retention, Instant now) {
+        appendLock.lock();
+        try {
+            dropBefore(
+                    Math.max(retention.rawCutoff(now), rawCountCutoff(retention.rawCount())),
+                    retention.cutoff(RollupTier.MINUTE, now),
+                    retention.cutoff(RollupTier.HOUR, now));
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the older half, by time, of the span still covered by hour rollups: the raw readings and the minute and
+     * hour rollups there, leaving it to the day rollups. Each cutoff is aligned to the tier above it, like retention.
+     *
+     * @return whether anything was dropped, which is not the case once the meter spans too little time to split
+     */
+    boolean shedOlderHalf() {
+        appendLock.lock();
+        try {
+            MeterReadingAggregate whole = published.aggregate();
+            if (whole.count() == 0) {
+                return false;
+            }
+            long detailStart = Math.max(whole.earliest().getEpochSecond(), rollupHorizons[RollupTier.HOUR.ordinal()]);
+            long middle = detailStart + (whole.latest().getEpochSecond() + 1 - detailStart) / 2;
+            return dropBefore(
+                    RollupTier.MINUTE.bucketStart(middle),
+                    RollupTier.HOUR.bucketStart(middle),
+                    RollupTier.DAY.bucketStart(middle));
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return the start of the minute of the {@code rawCount}th latest reading, before which raw readings can be
+     *     dropped while keeping at least that many, or {@link ReadingRetention#KEEP}
+     */
+    private long rawCountCutoff(Integer rawCount) {
+        ReadingsView readings = published.readings();
+        if (rawCount == null || readings.size() <= rawCount) {
+            return ReadingRetention.KEEP;
+        }
+        return RollupTier.MINUTE.bucketStart(readings.epochSecondAt(readings.size() - rawCount));
+    }
+
+    /**
+     * @return whether any horizon moved
+     */
+    private boolean dropBefore(long rawCutoff, long minuteCutoff, long hourCutoff) {
+        boolean dropped = dropRollupsBefore(RollupTier.MINUTE, minuteCutoff);
+        dropped |= dropRollupsBefore(RollupTier.HOUR, hourCutoff);
+        if (rawCutoff > rawHorizon) {
+            rawHorizon = rawCutoff;
+            dropRawBefore(rawCutoff);
+            dropped = true;
+        }
+        return dropped;
+    }
+
+    private boolean dropRollupsBefore(RollupTier tier, long cutoff) {
+        if (cutoff <= rollupHorizons[tier.ordinal()]) {
+            return false;
+        }
+        rollupHorizons[tier.ordinal()] = cutoff;
+        rollups[tier.ordinal()].dropBefore(cutoff);
+        return true;
+    }
+
+    /**
+     * Stores the readings to keep afresh, so views that were handed out before are left untouched.
+     */
+    private void dropRawBefore(long cutoff) {
+        Chunk all = published.readings().decodeFrom(0);
+        int kept = 0;
+        for (int i = 0; i < all.size(); i++) {
+            if (all.epochSeconds()[i] >= cutoff) {
+                kept++;
+            }
+        }
+        if (kept == all.size()) {
+            return;
+        }
+        long[] keptEpochSeconds = new long[kept];
+        int[] keptNanos = new int[kept];
+        long[] keptUnscaledReadings = new long[kept];
+        byte[] keptReadingScales = new byte[kept];
+        int index = 0;
+        for (int i = 0; i < all.size(); i++) {
+            if (all.epochSeconds()[i] >= cutoff) {
+                keptEpochSeconds[index] = all.epochSeconds()[i];
+                keptNanos[index] = all.nanos()[i];
+                keptUnscaledReadings[index] = all.unscaledReadings()[i];
+                keptReadingScales[index] = all.readingScales()[i];
+                index++;
+            }
+        }
+        truncate(0);
+        store(keptEpochSeconds, keptNanos, keptUnscaledReadings, keptReadingScales, kept, false);
+        publish();
+    }
+
+    /**
+     * A copy to write out while appends carry on. The readings are shared rather than copied: appends never write
+     * below the published size, and retention replaces the columns rather than changing them.
+     */
+    MeterReadingColumns copy() {
+        appendLock.lock();
+        try {
+            MeterReadingColumns copy = new MeterReadingColumns(blockMemory);
+            copy.blocks = blocks;
+            copy.blockCount = blockCount;
+            copy.epochSeconds = epochSeconds;
+            copy.nanos = nanos;
+            copy.unscaledReadings = unscaledReadings;
+            copy.readingScales = readingScales;
+            copy.headSize = headSize;
+            copy.lastEpochSecond = lastEpochSecond;
+            copy.lastNano = lastNano;
+            copy.history = history.copy();
+            copy.rawHorizon = rawHorizon;
+            for (RollupTier tier : RollupTier.values()) {
+                copy.rollups[tier.ordinal()] = rollups[tier.ordinal()].copy();
+                copy.rollupHorizons[tier.ordinal()] = rollupHorizons[tier.ordinal()];
+            }
+            copy.published = published;
+            return copy;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    void writeTo(SnapshotOutput out) throws IOException {
+        appendLock.lock();
+        try {
+            out.writeInt(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                blocks[i].writeTo(out);
+            }
+            out.writeInt(headSize);
+            out.writeLongs(epochSeconds, headSize);
+            out.writeInts(nanos, headSize);
+            out.writeLongs(unscaledReadings, headSize);
+            out.writeBytes(readingScales, headSize);
+            out.writeByte(1); // in time order, which snapshots written by earlier versions may not be
+            out.writeLong(lastEpochSecond);
+            out.writeInt(lastNano);
+            out.writeLong(rawHorizon);
+            history.writeTo(out);
+            for (RollupTier tier : RollupTier.values()) {
+                out.writeLong(rollupHorizons[tier.ordinal()]);
+                rollups[tier.ordinal()].writeTo(out);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    static MeterReadingColumns readFrom(SnapshotInput in, BlockMemory blockMemory) throws IOException {
+        MeterReadingColumns columns = new MeterReadingColumns(blockMemory);
+        columns.blockCount = in.readInt();
+        columns.blocks = new CompressedBlock[columns.blockCount];
+        for (int i = 0; i < columns.blockCount; i++) {
+            columns.blocks[i] = CompressedBlock.readFrom(in, blockMemory);
+        }
+        int headSize = in.readInt();
+        columns.ensureCapacity(headSize);
+        in.readLongs(columns.epochSeconds, headSize);
+        in.readInts(columns.nanos, headSize);
+        in.readLongs(columns.unscaledReadings, headSize);
+        in.readBytes(columns.readingScales, headSize);
+        columns.headSize = headSize;
+        boolean timeOrdered = in.readByte() != 0;
+        columns.lastEpochSecond = in.readLong();
+        columns.lastNano = in.readInt();
+        columns.rawHorizon = in.readLong();
+        columns.history = AggregateAccumulator.readFrom(in);
+        for (RollupTier tier : RollupTier.values()) {
+            columns.rollupHorizons[tier.ordinal()] = in.readLong();
+            columns.rollups[tier.ordinal()] = RollupBuckets.readFrom(tier, in);
+        }
+        columns.publish();
+        if (!timeOrdered) {
+            columns.restoreTimeOrder();
+        }
+        return columns;
+    }
+
+    /**
+     * Sorts and de-duplicates readings restored from a snapshot written while readings were still kept in the order
+     * they arrived. The history aggregate and rollups are restored as they were written.
+     */
+    private void restoreTimeOrder() {
+        Chunk sorted = sortedByTime(published.readings().decodeFrom(0));
+        truncate(0);
+        store(
+                sorted.epochSeconds(),
+                sorted.nanos(),
+                sorted.unscaledReadings(),
+                sorted.readingScales(),
+                sorted.size(),
+                false);
+        publish();
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= epochSeconds.length) {
+            return;
+        }
+        int capacity = Math.min(BLOCK_SIZE, Math.max(required, epochSeconds.length + (epochSeconds.length >> 1)));
+        epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+        nanos = Arrays.copyOf(nanos, capacity);
+        unscaledReadings = Arrays.copyOf(unscaledReadings, capacity);
+        readingScales = Arrays.copyOf(readingScales, capacity);
+    }
+
+    private record Snapshot(ReadingsView readings, MeterReadingAggregate aggregate) {}
+
+    /**
+     * Plain columns holding the readings at positions {@code firstPosition} to {@code firstPosition + size}.
+     */
+    private record Chunk(
+            int firstPosition,
+            long[] epochSeconds,
+            int[] nanos,
+            long[] unscaledReadings,
+            byte[] readingScales,
+            int size) {
+
+        ElectricityReading readingAt(int position) {
+            int index = position - firstPosition;
+            return new ElectricityReading(
+                    Instant.ofEpochSecond(epochSeconds[index], nanos[index]),
+                    BigDecimal.valueOf(unscaledReadings[index], readingScales[index]));
+        }
+
+        int endPosition() {
+            return firstPosition + size;
+        }
+
+        /**
+         * @return the first position whose time is not before the given one, assuming the chunk is in time order
+         */
+        int lowerBound(long epochSecond, int nano) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (AggregateAccumulator.isBefore(epochSeconds[middle], nanos[middle], epochSecond, nano)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return firstPosition + low;
+        }
+
+        void accumulate(int fromPosition, int toPosition, AggregateAccumulator accumulator) {
+            for (int i = fromPosition - firstPosition; i < toPosition - firstPosition; i++) {
+                accumulator.add(epochSeconds[i], nanos[i], unscaledReadings[i], readingScales[i]);
+            }
+        }
+
+        boolean isBefore(int index, int otherIndex) {
+            return isBefore(index, this, otherIndex);
+        }
+
+        boolean isBefore(int index, Chunk other, int otherIndex) {
+            return AggregateAccumulator.isBefore(
+                    epochSeconds[index], nanos[index], other.epochSeconds[otherIndex], other.nanos[otherIndex]);
+        }
+
+        void copyTo(int index, Chunk other, int otherIndex) {
+            other.epochSeconds[otherIndex] = epochSeconds[index];
+            other.nanos[otherIndex] = nanos[index];
+            other.unscaledReadings[otherIndex] = unscaledReadings[index];
+            other.readingScales[otherIndex] = readingScales[index];
+        }
+
+        /**
+         * @return the first {@code count} readings of {@code order} in that order
+         */
+        Chunk reordered(int[] order, int count) {
+            long[] orderedEpochSeconds = new long[count];
+            int[] orderedNanos = new int[count];
+            long[] orderedUnscaledReadings = new long[count];
+            byte[] orderedReadingScales = new byte[count];
+            for (int i = 0; i < count; i++) {
+                orderedEpochSeconds[i] = epochSeconds[order[i]];
+                orderedNanos[i] = nanos[order[i]];
+                orderedUnscaledReadings[i] = unscaledReadings[order[i]];
+                orderedReadingScales[i] = readingScales[order[i]];
+            }
+            return new Chunk(
+                    firstPosition,
+                    orderedEpochSeconds,
+                    orderedNanos,
+                    orderedUnscaledReadings,
+                    orderedReadingScales,
+                    count);
+        }
+    }
+
+    /**
+     * Read-only list over the sealed blocks and the first {@code size} entries of the head, in time order,
+     * materialising readings as they are accessed. Appends only ever write past the head's size, into a new head or
+     * past the block count, and merges store into new columns, so the view never changes underneath.
+     *
+     * <p>The view is shared by every reader of the meter, so it keeps nothing decoded itself. Each iterator keeps the
+     * block it is in decoded instead, so iterating decodes every block once however many readers iterate at the same
+     * time, while {@link #get} decodes the block of the reading on every call. The view is therefore not
+     * {@link java.util.RandomAccess}, which leads JSON serialisation, streams and {@code equals} to iterate it.
+     */
+    private static final class ReadingsView extends AbstractList<ElectricityReading> {
+
+        private final CompressedBlock[] blocks;
+        private final int blockCount;
+        private final Chunk head;
+        private final int size;
+
+        ReadingsView(CompressedBlock[] blocks, int blockCount, Chunk head) {
+            this.blocks = blocks;
+            this.blockCount = blockCount;
+            this.head = head;
+            this.size = head.endPosition();
+        }
+
+        @Override
+        public ElectricityReading get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return chunkAt(index).readingAt(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<ElectricityReading> iterator() {
+            return listIterator();
+        }
+
+        @Override
+        public ListIterator<ElectricityReading> listIterator(int index) {
+            Objects.checkIndex(index, size + 1);
+            return new ReadingsIterator(this, 0, size, index);
+        }
+
+        @Override
+        public List<ElectricityReading> subList(int fromIndex, int toIndex) {
+            Objects.checkFromToIndex(fromIndex, toIndex, size);
+            return new ReadingsRange(this, fromIndex, toIndex);
+        }
+
+        /**
+         * @return the head, or the block holding the position freshly decoded
+         */
+        private Chunk chunkAt(int position) {
+            int block = position / BLOCK_SIZE;
+            if (block >= blockCount) {
+                return head;
+            }
+            Chunk chunk = new Chunk(
+                    block * BLOCK_SIZE,
+                    new long[BLOCK_SIZE],
+                    new int[BLOCK_SIZE],
+                    new long[BLOCK_SIZE],
+                    new byte[BLOCK_SIZE],
+                    BLOCK_SIZE);
+            blocks[block].decode(
+                    chunk.epochSeconds(), chunk.nanos(), chunk.unscaledReadings(), chunk.readingScales(), 0);
+            return chunk;
+        }
+
+        long epochSecondAt(int index) {
+            Chunk chunk = chunkAt(index);
+            return chunk.epochSeconds()[index - chunk.firstPosition()];
+        }
+
+        private Instant timeAt(int index) {
+            Chunk chunk = chunkAt(index);
+            return Instant.ofEpochSecond(
+                    chunk.epochSeconds()[index - chunk.firstPosition()], chunk.nanos()[index - chunk.firstPosition()]);
+        }
+
+        /**
+         * @return the readings from the start of the given block to the end decoded into plain columns
+         */
+        Chunk decodeFrom(int firstBlock) {
+            int firstPosition = firstBlock * BLOCK_SIZE;
+            int count = size - firstPosition;
+            Chunk all =
+                    new Chunk(firstPosition, new long[count], new int[count], new long[count], new byte[count], count);
+            for (int block = firstBlock; block < blockCount; block++) {
+                blocks[block].decode(
+                        all.epochSeconds(),
+                        all.nanos(),
+                        all.unscaledReadings(),
+                        all.readingScales(),
+                        (block - firstBlock) * BLOCK_SIZE);
+            }
+            int headStart = head.firstPosition() - firstPosition;
+            System.arraycopy(head.epochSeconds(), 0, all.epochSeconds(), headStart, head.size());
+            System.arraycopy(head.nanos(), 0, all.nanos(), headStart, head.size());
+            System.arraycopy(head.unscaledReadings(), 0, all.unscaledReadings(), headStart, head.size());
+            System.arraycopy(head.readingScales(), 0, all.readingScales(), headStart, head.size());
+            return all;
+        }
+
+        /**
+         * Readings with {@code from <= time < to} taken after {@code after}, with the time of the last one returned as
+         * the cursor for the next page.
+         */
+        ReadingsPage page(Instant from, Instant to, Instant after, int limit) {
+            int lower = from == null ? 0 : lowerBound(from.getEpochSecond(), from.getNano());
+            int upper = to == null ? size : lowerBound(to.getEpochSecond(), to.getNano());
+            int start = after == null ? lower : Math.max(lower, upperBound(after.getEpochSecond(), after.getNano()));
+            int end = Math.max(start, (int) Math.min(upper, (long) start + limit));
+            Instant nextCursor = end < upper && end > start ? timeAt(end - 1) : null;
+            return new ReadingsPage(subList(start, end), nextCursor);
+        }
+
+        void accumulate(Instant from, Instant to, AggregateAccumulator accumulator) {
+            int lower = lowerBound(from.getEpochSecond(), from.getNano());
+            int upper = lowerBound(to.getEpochSecond(), to.getNano());
+            for (int position = lower; position < upper; ) {
+                Chunk chunk = chunkAt(position);
+                int end = Math.min(upper, chunk.endPosition());
+                chunk.accumulate(position, end, accumulator);
+                position = end;
+            }
+        }
+
+        /**
+         * @return the first position whose time is not before the given one, found by skipping whole blocks by their
+         *     last time and decoding only the block it falls in
+         */
+        int lowerBound(long epochSecond, int nano) {
+            int low = 0;
+            int high = blockCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                CompressedBlock block = blocks[middle];
+                if (AggregateAccumulator.isBefore(block.lastEpochSecond(), block.lastNano(), epochSecond, nano)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return chunkAt(low * BLOCK_SIZE).lowerBound(epochSecond, nano);
+        }
+
+        /**
+         * @return the first position whose time is after the given one
+         */
+        private int upperBound(long epochSecond, int nano) {
+            return nano == 999_999_999 ? lowerBound(epochSecond + 1, 0) : lowerBound(epochSecond, nano + 1);
+        }
+    }
+
+    /**
+     * The readings of a view from one position to another, iterated the same way as the whole view.
+     */
+    private static final class ReadingsRange extends AbstractList<ElectricityReading> {
+
+        private final ReadingsView readings;
+        private final int from;
+        private final int to;
+
+        ReadingsRange(ReadingsView readings, int from, int to) {
+            this.readings = readings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public ElectricityReading get(int index) {
+            Objects.checkIndex(index, size());
+            return readings.get(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public Iterator<ElectricityReading> iterator() {
+            return listIterator();
+        }
+
+        @Override
+        public ListIterator<ElectricityReading> listIterator(int index) {
+            Objects.checkIndex(index, size() + 1);
+            return new ReadingsIterator(readings, from, to, from + index);
+        }
+
+        @Override
+        public List<ElectricityReading> subList(int fromIndex, int toIndex) {
+            Objects.checkFromToIndex(fromIndex, toIndex, size());
+            return new ReadingsRange(readings, from + fromIndex, from + toIndex);
+        }
+    }
+
+    /**
+     * Read-only iterator over the positions {@code from} to {@code to} of a view that keeps the block it is in decoded,
+     * so that it decodes every block it passes once.
+     */
+    private static final class ReadingsIterator implements ListIterator<ElectricityReading> {
+
+        private final ReadingsView readings;
+        private final int from;
+        private final int to;
+        private int position;
+        private Chunk chunk;
+
+        ReadingsIterator(ReadingsView readings, int from, int to, int position) {
+            this.readings = readings;
+            this.from = from;
+            this.to = to;
+            this.position = position;
+            this.chunk = readings.head;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < to;
+        }
+
+        @Override
+        public ElectricityReading next() {
+            if (position >= to) {
+                throw new NoSuchElementException();
+            }
+            return readingAt(position++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return position > from;
+        }
+
+        @Override
+        public ElectricityReading previous() {
+            if (position <= from) {
+                throw new NoSuchElementException();
+            }
+            return readingAt(--position);
+        }
+
+        @Override
+        public int nextIndex() {
+            return position - from;
+        }
+
+        @Override
+        public int previousIndex() {
+            return position - from - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(ElectricityReading reading) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(ElectricityReading reading) {
+            throw new UnsupportedOperationException();
+        }
+
+        private ElectricityReading readingAt(int readingPosition) {
+            if (readingPosition < chunk.firstPosition() || readingPosition >= chunk.endPosition()) {
+                chunk = readings.chunkAt(readingPosition);
+            }
+            return chunk.readingAt(readingPosition);
+        }
+    }
+}
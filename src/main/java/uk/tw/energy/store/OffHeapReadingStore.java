@@ -0,0 +1,49 @@
+package uk.tw.energy.store;
+
+import java.io.Closeable;
+
+/**
+ * A {@link ColumnarReadingStore} that keeps the compressed blocks of every meter in direct memory, so that the bulk of
+ * the readings is neither copied by young collections nor scanned by the collector at all. Blocks are decoded straight
+ * from direct memory when read. The head of each meter, up to {@link CompressedBlock#READINGS} readings, and its
+ * rollups stay on the heap.
+ *
+ * <p>Direct memory is limited by {@code -XX:MaxDirectMemorySize} rather than the heap size. Once closed the store is
+ * empty and refuses appends; readings handed out before then stay readable.
+ */
+public class OffHeapReadingStore extends ColumnarReadingStore implements Closeable {
+
+    private final DirectBlockArena arena;
+
+    /**
+     * @param slabBytes the size of the direct buffers blocks are carved out of
+     */
+    public OffHeapReadingStore(int slabBytes) {
+        this(new DirectBlockArena(slabBytes));
+    }
+
+    private OffHeapReadingStore(DirectBlockArena arena) {
+        super(arena);
+        this.arena = arena;
+    }
+
+    /**
+     * @return the direct memory reserved for blocks
+     */
+    public long reservedBytes() {
+        return arena.reservedBytes();
+    }
+
+    /**
+     * @return the direct memory taken by the blocks still in use
+     */
+    public long usedBytes() {
+        return arena.usedBytes();
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+        meters().clear();
+    }
+}
@@ -0,0 +1,115 @@
+package uk.tw.energy.store;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+import uk.tw.energy.domain.ElectricityReading;
+
+/**
+ * Reusable, growable buffer of readings in the same column layout as the store, so readings can be collected and
+ * appended without creating an {@link ElectricityReading} for each of them.
+ */
+public final class ReadingBatch {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    long[] epochSeconds;
+    int[] nanos;
+    long[] unscaledReadings;
+    byte[] readingScales;
+    private int size;
+
+    public ReadingBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ReadingBatch(int initialCapacity) {
+        epochSeconds = new long[initialCapacity];
+        nanos = new int[initialCapacity];
+        unscaledReadings = new long[initialCapacity];
+        readingScales = new byte[initialCapacity];
+    }
+
+    public void add(long epochSecond, int nano, long unscaledReading, int readingScale) {
+        if (nano < 0 || nano > 999_999_999) {
+            throw new IllegalArgumentException("Nano-of-second is out of range: " + nano);
+        }
+        if (size == epochSeconds.length) {
+            grow();
+        }
+        epochSeconds[size] = epochSecond;
+        nanos[size] = nano;
+        unscaledReadings[size] = unscaledReading;
+        readingScales[size] = scaleOf(readingScale);
+        size++;
+    }
+
+    public void add(ElectricityReading electricityReading) {
+        Instant time = electricityReading.time();
+        BigDecimal reading = electricityReading.reading();
+        add(time.getEpochSecond(), time.getNano(), unscaledValueOf(reading), reading.scale());
+    }
+
+    public void addAll(ReadingBatch other) {
+        while (size + other.size > epochSeconds.length) {
+            grow();
+        }
+        System.arraycopy(other.epochSeconds, 0, epochSeconds, size, other.size);
+        System.arraycopy(other.nanos, 0, nanos, size, other.size);
+        System.arraycopy(other.unscaledReadings, 0, unscaledReadings, size, other.size);
+        System.arraycopy(other.readingScales, 0, readingScales, size, other.size);
+        size += other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long epochSecond(int index) {
+        return epochSeconds[Objects.checkIndex(index, size)];
+    }
+
+    public int nano(int index) {
+        return nanos[Objects.checkIndex(index, size)];
+    }
+
+    public long unscaledReading(int index) {
+        return unscaledReadings[Objects.checkIndex(index, size)];
+    }
+
+    public int readingScale(int index) {
+        return readingScales[Objects.checkIndex(index, size)];
+    }
+
+    private void grow() {
+        int capacity = Math.max(DEFAULT_CAPACITY, epochSeconds.length + (epochSeconds.length >> 1));
+        epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+        nanos = Arrays.copyOf(nanos, capacity);
+        unscaledReadings = Arrays.copyOf(unscaledReadings, capacity);
+        readingScales = Arrays.copyOf(readingScales, capacity);
+    }
+
+    static long unscaledValueOf(BigDecimal reading) {
+        try {
+            return reading.unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Reading has too many significant digits: " + reading, e);
+        }
+    }
+
+    static byte scaleOf(int scale) {
+        if (scale < Byte.MIN_VALUE || scale > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Reading scale is out of range: " + scale);
+        }
+        return (byte) scale;
+    }
+}
@@ -0,0 +1,502 @@
+package uk.tw.energy.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of reading batches, split into segment files named after the log position they start at.
+ *
+ * <p>A record is its payload length and CRC-32C followed by the smart meter id and 21 bytes per reading. A crash can
+ * only leave a torn record at the end of the last segment, which is cut off when the log is opened; a segment is
+ * forced before the next one is started, and the next one only appears under its final name once its header is on
+ * disk.
+ *
+ * <p>How appends are made durable is up to the {@link Sync} mode. With {@link Sync#GROUP_COMMIT} an append returns
+ * once it is on disk, but appenders that arrive while a force is in flight are made durable together by the next one.
+ *
+ * <p>Appenders wait on locks rather than monitors, so that appenders on virtual threads unmount while they wait for a
+ * write or a force instead of pinning their carrier thread.
+ */
+public final class ReadingLog implements Closeable {
+
+    public enum Sync {
+        /** Every append forces the log before it returns. */
+        EVERY_APPEND,
+        /** Every append waits until it is forced, sharing forces with concurrent appends. */
+        GROUP_COMMIT,
+        /**
+         * Appends return straight away and the log is forced every sync interval. When a force fails it is tried again
+         * the next interval, and appends fail until one succeeds.
+         */
+        PERIODIC
+    }
+
+    /**
+     * Forces a segment to disk; a seam for tests to make forcing fail.
+     */
+    @FunctionalInterface
+    interface Force {
+        void force(FileChannel segment) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        /**
+         * @param position log position the record starts at
+         */
+        void accept(long position, String smartMeterId, ReadingBatch readings);
+    }
+
+    static final int READING_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES + Byte.BYTES;
+
+    private static final int MAGIC = 0x52574C31;
+    private static final int SEGMENT_HEADER_BYTES = Integer.BYTES;
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String PARTIAL_SUFFIX = ".partial";
+    private static final System.Logger LOGGER = System.getLogger(ReadingLog.class.getName());
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final Sync sync;
+    private final Force force;
+    private final ScheduledExecutorService periodicSync;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private FileChannel segment;
+    private long segmentStart;
+    private long position;
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(64 * 1024);
+    private final CRC32C checksum = new CRC32C();
+    private boolean closed;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private long durablePosition;
+    private boolean syncing;
+    /** Why the latest force failed, until a later one succeeds. */
+    private IOException syncFailure;
+
+    public ReadingLog(Path directory, long segmentBytes, Sync sync, Duration syncInterval) throws IOException {
+        this(directory, segmentBytes, sync, syncInterval, segment -> segment.force(false));
+    }
+
+    ReadingLog(Path directory, long segmentBytes, Sync sync, Duration syncInterval, Force force) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.sync = sync;
+        this.force = force;
+        Files.createDirectories(directory);
+        deletePartialSegments();
+        List<Long> starts = segmentStarts();
+        if (starts.isEmpty()) {
+            createSegment(0);
+        } else {
+            openLastSegment(starts.get(starts.size() - 1));
+        }
+        durablePosition = position;
+        if (sync == Sync.PERIODIC) {
+            periodicSync = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "reading-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalNanos = syncInterval.toNanos();
+            periodicSync.scheduleWithFixedDelay(
+                    this::syncPeriodically, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            periodicSync = null;
+        }
+    }
+
+    /**
+     * @return the log position just past the record, which is durable according to the {@link Sync} mode once this
+     *     returns
+     */
+    public long append(String smartMeterId, ReadingBatch readings) throws IOException {
+        long end = write(smartMeterId, readings);
+        awaitDurable(end);
+        return end;
+    }
+
+    /**
+     * Writes the record without waiting for it to be made durable by {@link #awaitDurable}, so that the wait can
+     * happen outside of any lock the caller holds.
+     */
+    long write(String smartMeterId, ReadingBatch readings) throws IOException {
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new ClosedChannelException();
+            }
+            ByteBuffer record = encode(smartMeterId, readings);
+            long written = position - segmentStart;
+            if (written > SEGMENT_HEADER_BYTES && written + record.remaining() > segmentBytes) {
+                roll();
+            }
+            int length = record.remaining();
+            while (record.hasRemaining()) {
+                segment.write(record);
+            }
+            position += length;
+            if (sync == Sync.EVERY_APPEND) {
+                segment.force(false);
+                markDurable(position);
+            }
+            return position;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the log is durable up to the given position, if the {@link Sync} mode waits at all.
+     *
+     * @throws IOException when the log could not be forced, or the latest periodic sync that forced it failed
+     */
+    void awaitDurable(long end) throws IOException {
+        if (sync == Sync.GROUP_COMMIT) {
+            forceUpTo(end);
+        } else if (sync == Sync.PERIODIC) {
+            IOException failure;
+            syncLock.lock();
+            try {
+                failure = syncFailure;
+            } finally {
+                syncLock.unlock();
+            }
+            if (failure != null) {
+                throw new IOException("The reading log could not be synced, so recent appends may be lost", failure);
+            }
+        }
+    }
+
+    /**
+     * @return the log position just past the last record appended
+     */
+    public long position() {
+        appendLock.lock();
+        try {
+            return position;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Hands every record from {@code fromPosition} on to the consumer, in the order they were appended. The batch is
+     * reused between records.
+     */
+    public void replay(long fromPosition, RecordConsumer consumer) throws IOException {
+        long end = position();
+        List<Long> starts = segmentStarts();
+        ReadingBatch readings = new ReadingBatch();
+        for (int i = 0; i < starts.size(); i++) {
+            long start = starts.get(i);
+            long next = i + 1 < starts.size() ? starts.get(i + 1) : end;
+            if (next <= fromPosition || start >= end) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segmentPath(start), StandardOpenOption.READ)) {
+                long limit = Math.min(channel.size(), next - start);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, limit);
+                if (mapped.getInt(0) != MAGIC) {
+                    throw new IOException("Not a reading log segment: " + segmentPath(start));
+                }
+                mapped.position(SEGMENT_HEADER_BYTES);
+                while (mapped.hasRemaining()) {
+                    long recordStart = start + mapped.position();
+                    String smartMeterId = decode(mapped, readings);
+                    if (smartMeterId == null) {
+                        throw new IOException("Corrupt record at log position " + recordStart);
+                    }
+                    if (recordStart >= fromPosition) {
+                        consumer.accept(recordStart, smartMeterId, readings);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments that only hold records before the given position.
+     */
+    public void deleteSegmentsBefore(long position) throws IOException {
+        appendLock.lock();
+        try {
+            List<Long> starts = segmentStarts();
+            for (int i = 0; i + 1 < starts.size() && starts.get(i + 1) <= position; i++) {
+                Files.deleteIfExists(segmentPath(starts.get(i)));
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk.
+     */
+    public void sync() throws IOException {
+        forceUpTo(position());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (periodicSync != null) {
+            periodicSync.shutdown();
+        }
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segment.force(false);
+            segment.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void forceUpTo(long end) throws IOException {
+        syncLock.lock();
+        try {
+            while (durablePosition < end && syncing) {
+                try {
+                    synced.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the reading log to sync");
+                }
+            }
+            if (durablePosition >= end) {
+                return;
+            }
+            syncing = true;
+        } finally {
+            syncLock.unlock();
+        }
+        IOException failure = null;
+        try {
+            long target;
+            FileChannel channel;
+            appendLock.lock();
+            try {
+                target = position;
+                channel = segment;
+            } finally {
+                appendLock.unlock();
+            }
+            try {
+                force.force(channel);
+            } catch (ClosedChannelException e) {
+                appendLock.lock();
+                try {
+                    if (closed) {
+                        throw e;
+                    }
+                } finally {
+                    appendLock.unlock();
+                }
+                // rolled over in the meantime, and a segment is forced before it is rolled over
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            markDurable(target);
+        } finally {
+            syncLock.lock();
+            try {
+                if (failure != null) {
+                    syncFailure = failure;
+                }
+                syncing = false;
+                synced.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+
+    private void markDurable(long end) {
+        syncLock.lock();
+        try {
+            durablePosition = Math.max(durablePosition, end);
+            syncFailure = null;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Never throws, as that would cancel the periodic sync for good. A failure is logged, and {@link #awaitDurable}
+     * reports it until a later sync succeeds.
+     */
+    private void syncPeriodically() {
+        try {
+            sync();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not sync the reading log, trying again next interval", e);
+        }
+    }
+
+    private ByteBuffer encode(String smartMeterId, ReadingBatch readings) {
+        byte[] id = smartMeterId.getBytes(StandardCharsets.UTF_8);
+        int count = readings.size();
+        long payloadLength = Short.BYTES + (long) id.length + Integer.BYTES + (long) count * READING_BYTES;
+        if (id.length > Short.MAX_VALUE || RECORD_HEADER_BYTES + payloadLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many readings to log at once: " + count);
+        }
+        int recordLength = RECORD_HEADER_BYTES + (int) payloadLength;
+        if (recordBuffer.capacity() < recordLength) {
+            recordBuffer = ByteBuffer.allocate(Math.max(recordLength, recordBuffer.capacity() * 2));
+        }
+        ByteBuffer record = recordBuffer.clear();
+        record.position(RECORD_HEADER_BYTES);
+        record.putShort((short) id.length).put(id).putInt(count);
+        for (int i = 0; i < count; i++) {
+            record.putLong(readings.epochSeconds[i])
+                    .putInt(readings.nanos[i])
+                    .putLong(readings.unscaledReadings[i])
+                    .put(readings.readingScales[i]);
+        }
+        checksum.reset();
+        checksum.update(record.array(), RECORD_HEADER_BYTES, (int) payloadLength);
+        record.putInt(0, (int) payloadLength).putInt(Integer.BYTES, (int) checksum.getValue());
+        return record.flip();
+    }
+
+    /**
+     * Reads the record at the buffer's position into the batch and moves past it.
+     *
+     * @return the smart meter id of the record, or {@code null} when what follows is not a whole, intact record
+     */
+    private static String decode(ByteBuffer buffer, ReadingBatch readings) {
+        if (buffer.remaining() < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        int start = buffer.position();
+        int payloadLength = buffer.getInt(start);
+        int expectedChecksum = buffer.getInt(start + Integer.BYTES);
+        int payloadStart = start + RECORD_HEADER_BYTES;
+        if (payloadLength < Short.BYTES + Integer.BYTES || payloadLength > buffer.limit() - payloadStart) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(payloadStart, payloadLength));
+        if ((int) crc.getValue() != expectedChecksum) {
+            return null;
+        }
+        buffer.position(payloadStart);
+        byte[] id = new byte[buffer.getShort()];
+        buffer.get(id);
+        int count = buffer.getInt();
+        readings.clear();
+        for (int i = 0; i < count; i++) {
+            readings.add(buffer.getLong(), buffer.getInt(), buffer.getLong(), buffer.get());
+        }
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private void openLastSegment(long start) throws IOException {
+        segment = FileChannel.open(segmentPath(start), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentStart = start;
+        long validEnd = SEGMENT_HEADER_BYTES;
+        if (segment.size() > SEGMENT_HEADER_BYTES) {
+            MappedByteBuffer mapped = segment.map(FileChannel.MapMode.READ_ONLY, 0, segment.size());
+            mapped.position(SEGMENT_HEADER_BYTES);
+            ReadingBatch scratch = new ReadingBatch();
+            while (decode(mapped, scratch) != null) {
+                validEnd = mapped.position();
+            }
+        }
+        if (validEnd < segment.size()) {
+            segment.truncate(validEnd);
+            segment.force(false);
+        }
+        segment.position(validEnd);
+        position = start + validEnd;
+    }
+
+    private void roll() throws IOException {
+        segment.force(false);
+        markDurable(position);
+        FileChannel previous = segment;
+        createSegment(position);
+        previous.close();
+    }
+
+    private void createSegment(long start) throws IOException {
+        Path partial = directory.resolve(segmentName(start) + PARTIAL_SUFFIX);
+        try (FileChannel channel = FileChannel.open(
+                partial, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(SEGMENT_HEADER_BYTES).putInt(0, MAGIC));
+            channel.force(true);
+        }
+        Path path = Files.move(partial, segmentPath(start), StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        segment = FileChannel.open(path, StandardOpenOption.WRITE);
+        segment.position(SEGMENT_HEADER_BYTES);
+        segmentStart = start;
+        position = start + SEGMENT_HEADER_BYTES;
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not every platform can open a directory; the segment itself has been forced
+        }
+    }
+
+    private void deletePartialSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(SEGMENT_SUFFIX + PARTIAL_SUFFIX)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private List<Long> segmentStarts() throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .forEach(starts::add);
+        }
+        return starts;
+    }
+
+    private Path segmentPath(long start) {
+        return directory.resolve(segmentName(start) + SEGMENT_SUFFIX);
+    }
+
+    private static String segmentName(long start) {
+        return String.format("%020d", start);
+    }
+}
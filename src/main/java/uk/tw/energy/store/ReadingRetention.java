@@ -0,0 +1,63 @@
+package uk.tw.energy.store;
+
+import java.time.Duration;
+import java.time.Instant;
+import uk.tw.energy.domain.RollupTier;
+
+/**
+ * How long raw readings and the minute and hour rollups are kept; {@code null} keeps them forever. Day rollups are
+ * always kept. A tier is never dropped before the finer one below it, and cutoffs are aligned to the next coarser
+ * tier, so that whatever has been dropped can still be answered exactly by the coarser tiers.
+ *
+ * <p>{@code rawCount} additionally bounds the raw readings of each meter to its latest ones. Like the time cutoff, the
+ * count cutoff falls on the start of a minute, so a meter keeps at least that many and at most the readings of one
+ * minute more.
+ */
+public record ReadingRetention(Duration raw, Duration minute, Duration hour, Integer rawCount) {
+
+    public static final ReadingRetention KEEP_EVERYTHING = new ReadingRetention(null, null, null);
+
+    static final long KEEP = Long.MIN_VALUE;
+
+    public ReadingRetention {
+        if (rawCount != null && rawCount < 1) {
+            throw new IllegalArgumentException("Raw readings to keep must be positive: " + rawCount);
+        }
+    }
+
+    public ReadingRetention(Duration raw, Duration minute, Duration hour) {
+        this(raw, minute, hour, null);
+    }
+
+    /**
+     * @return whether any raw readings are ever dropped, without which no rollups are dropped either
+     */
+    public boolean dropsRaw() {
+        return raw != null || rawCount != null;
+    }
+
+    /**
+     * @return epoch second before which raw readings can be dropped, or {@link #KEEP}
+     */
+    long rawCutoff(Instant now) {
+        return raw == null ? KEEP : RollupTier.MINUTE.bucketStart(now.minus(raw).getEpochSecond());
+    }
+
+    /**
+     * @return epoch second before which the buckets of the tier can be dropped, or {@link #KEEP}
+     */
+    long cutoff(RollupTier tier, Instant now) {
+        return switch (tier) {
+            case MINUTE -> coarserCutoff(now, minute, RollupTier.HOUR, rawCutoff(now));
+            case HOUR -> coarserCutoff(now, hour, RollupTier.DAY, cutoff(RollupTier.MINUTE, now));
+            case DAY -> KEEP;
+        };
+    }
+
+    private static long coarserCutoff(Instant now, Duration retention, RollupTier alignment, long finerCutoff) {
+        if (retention == null || finerCutoff == KEEP) {
+            return KEEP;
+        }
+        return alignment.bucketStart(Math.min(now.minus(retention).getEpochSecond(), finerCutoff));
+    }
+}
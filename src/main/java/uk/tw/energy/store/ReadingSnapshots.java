@@ -0,0 +1,224 @@
+package uk.tw.energy.store;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Point in time copies of a {@link ColumnarReadingStore} and the meter to price plan accounts, named after the log
+ * position they were started at.
+ *
+ * <p>Meters are copied one at a time while appends carry on, so each meter is cut at its own log position: everything
+ * before the cut is in the snapshot and everything after it is replayed from the log. The snapshot only appears under
+ * its final name once it has been written completely.
+ *
+ * <p>Accounts switched between snapshots are written on their own to an accounts file, which takes the place of the
+ * accounts in the snapshot from then on.
+ */
+public final class ReadingSnapshots {
+
+    private static final int MAGIC = 0x52535332;
+    private static final int ACCOUNTS_MAGIC = 0x52534131;
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String PARTIAL_SUFFIX = ".partial";
+    private static final String ACCOUNTS_FILE = "accounts";
+
+    private final Path directory;
+    private final ReentrantLock accountsLock = new ReentrantLock();
+
+    public ReadingSnapshots(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The log position to replay from after restoring a snapshot, and for every meter in it the position from which
+     * its records were not in the snapshot yet.
+     */
+    record Restored(long logPosition, Map<String, Long> meterCuts) {}
+
+    /**
+     * @return the accounts last written on their own, or else those in the latest snapshot; empty when there are none
+     */
+    public Optional<Map<String, String>> latestAccounts() throws IOException {
+        Path accountsFile = directory.resolve(ACCOUNTS_FILE);
+        if (Files.exists(accountsFile)) {
+            try (FileChannel channel = FileChannel.open(accountsFile, StandardOpenOption.READ)) {
+                SnapshotInput in = new SnapshotInput(channel);
+                if (in.readInt() != ACCOUNTS_MAGIC) {
+                    throw new IOException("Not an accounts file: " + accountsFile);
+                }
+                return Optional.of(readAccounts(in));
+            }
+        }
+        Optional<Path> latest = latest();
+        if (latest.isEmpty()) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(latest.get(), StandardOpenOption.READ)) {
+            SnapshotInput in = new SnapshotInput(channel);
+            readHeader(in, latest.get());
+            return Optional.of(readAccounts(in));
+        }
+    }
+
+    /**
+     * Restores the meters of the latest snapshot into an empty store.
+     */
+    Optional<Restored> restoreLatest(ColumnarReadingStore store) throws IOException {
+        Optional<Path> latest = latest();
+        if (latest.isEmpty()) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(latest.get(), StandardOpenOption.READ)) {
+            SnapshotInput in = new SnapshotInput(channel);
+            long logPosition = readHeader(in, latest.get());
+            readAccounts(in);
+            Map<String, Long> meterCuts = new HashMap<>();
+            while (in.readByte() != 0) {
+                String smartMeterId = in.readString();
+                meterCuts.put(smartMeterId, in.readLong());
+                store.meters().put(smartMeterId, MeterReadingColumns.readFrom(in, store.blockMemory()));
+            }
+            return Optional.of(new Restored(logPosition, meterCuts));
+        }
+    }
+
+    /**
+     * Writes a snapshot of the store, which is appended to through {@link DurableReadingStore} while this runs, and
+     * deletes the snapshots before it.
+     *
+     * @return the log position the snapshot was started at; older log segments are no longer needed once this returns
+     */
+    long write(ColumnarReadingStore store, ReadingLog log, Map<String, String> accounts) throws IOException {
+        long logPosition = log.position();
+        Path partial = directory.resolve(snapshotName(logPosition) + SNAPSHOT_SUFFIX + PARTIAL_SUFFIX);
+        try (FileChannel channel = FileChannel.open(
+                partial, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SnapshotOutput out = new SnapshotOutput(channel);
+            out.writeInt(MAGIC);
+            out.writeLong(logPosition);
+            writeAccountEntries(out, accounts);
+            for (Map.Entry<String, MeterReadingColumns> meter : store.meters().entrySet()) {
+                MeterReadingColumns columns = meter.getValue();
+                long cut;
+                MeterReadingColumns copy;
+                columns.appendLock().lock();
+                try {
+                    cut = log.position();
+                    copy = columns.copy();
+                } finally {
+                    columns.appendLock().unlock();
+                }
+                out.writeByte(1);
+                out.writeString(meter.getKey());
+                out.writeLong(cut);
+                copy.writeTo(out);
+            }
+            out.writeByte(0);
+            out.flush();
+            channel.force(true);
+        }
+        Path snapshot = snapshotPath(logPosition);
+        Files.move(partial, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                boolean olderSnapshot = name.endsWith(SNAPSHOT_SUFFIX) && !file.equals(snapshot);
+                if (olderSnapshot || name.endsWith(SNAPSHOT_SUFFIX + PARTIAL_SUFFIX)) {
+                    Files.delete(file);
+                }
+            }
+        }
+        return logPosition;
+    }
+
+    /**
+     * Writes the accounts on their own and forces them to disk, replacing those written before. Callers pass a live
+     * view of the accounts after switching them, so whichever caller writes last writes every switch made before.
+     */
+    void writeAccounts(Map<String, String> accounts) throws IOException {
+        Path partial = directory.resolve(ACCOUNTS_FILE + PARTIAL_SUFFIX);
+        accountsLock.lock();
+        try {
+            try (FileChannel channel = FileChannel.open(
+                    partial,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                SnapshotOutput out = new SnapshotOutput(channel);
+                out.writeInt(ACCOUNTS_MAGIC);
+                writeAccountEntries(out, accounts);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(
+                    partial,
+                    directory.resolve(ACCOUNTS_FILE),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            accountsLock.unlock();
+        }
+    }
+
+    private static void writeAccountEntries(SnapshotOutput out, Map<String, String> accounts) throws IOException {
+        List<Map.Entry<String, String>> entries = List.copyOf(accounts.entrySet());
+        out.writeInt(entries.size());
+        for (Map.Entry<String, String> account : entries) {
+            out.writeString(account.getKey());
+            out.writeString(account.getValue());
+        }
+    }
+
+    private long readHeader(SnapshotInput in, Path snapshot) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a reading snapshot: " + snapshot);
+        }
+        return in.readLong();
+    }
+
+    private static Map<String, String> readAccounts(SnapshotInput in) throws IOException {
+        int count = in.readInt();
+        Map<String, String> accounts = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            accounts.put(in.readString(), in.readString());
+        }
+        return accounts;
+    }
+
+    private Optional<Path> latest() throws IOException {
+        List<Path> snapshots = snapshots();
+        return snapshots.isEmpty() ? Optional.empty() : Optional.of(snapshots.get(snapshots.size() - 1));
+    }
+
+    private List<Path> snapshots() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Path> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .sorted()
+                    .forEach(snapshots::add);
+        }
+        return snapshots;
+    }
+
+    private Path snapshotPath(long logPosition) {
+        return directory.resolve(snapshotName(logPosition) + SNAPSHOT_SUFFIX);
+    }
+
+    private static String snapshotName(long logPosition) {
+        return String.format("%020d", logPosition);
+    }
+}
@@ -0,0 +1,78 @@
+package uk.tw.energy.store;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadingAggregate;
+import uk.tw.energy.domain.ReadingRollup;
+import uk.tw.energy.domain.ReadingsPage;
+import uk.tw.energy.domain.RollupTier;
+
+/**
+ * Per smart meter storage of electricity readings, held in time order with one reading per time whatever order they
+ * are appended in. A reading appended for a time that already has one replaces it, so retried or corrected readings
+ * are not counted twice. Readings are also rolled up into {@link RollupTier} buckets, which outlive the raw readings
+ * according to the {@link ReadingRetention}.
+ */
+public interface ReadingStore {
+
+    Optional<List<ElectricityReading>> getReadings(String smartMeterId);
+
+    /**
+     * Up to {@code limit} readings with {@code from <= time < to} taken after {@code after}, which is the
+     * {@link ReadingsPage#nextCursor()} of the page before or {@code null} for the first page. Resuming from a time
+     * rather than a position means late readings merged in, or old ones dropped by retention, between two pages do not
+     * make the next page repeat or skip any. Either bound may be {@code null} to leave that side open.
+     */
+    Optional<ReadingsPage> getReadings(String smartMeterId, Instant from, Instant to, Instant after, int limit);
+
+    /**
+     * Aggregate of every reading ever appended, including those already dropped by retention, without visiting the
+     * readings.
+     */
+    Optional<MeterReadingAggregate> getAggregate(String smartMeterId);
+
+    /**
+     * Aggregate of the readings with {@code from <= time < to}, answered from the coarsest rollups that fit. Bounds
+     * that fall where raw readings have been dropped are widened to the finest tier still kept there.
+     */
+    Optional<MeterReadingAggregate> getAggregate(String smartMeterId, Instant from, Instant to);
+
+    /**
+     * Rollup buckets of the tier that overlap {@code from <= time < to}, oldest first.
+     */
+    Optional<List<ReadingRollup>> getRollups(String smartMeterId, RollupTier tier, Instant from, Instant to);
+
+    void append(String smartMeterId, List<ElectricityReading> electricityReadings);
+
+    /**
+     * Appends the readings currently in the batch; the batch can be cleared and reused afterwards.
+     */
+    void append(String smartMeterId, ReadingBatch readings);
+
+    /**
+     * Drops the raw readings and rollups of every meter that are older than the retention allows.
+     */
+    void applyRetention(ReadingRetention retention, Instant now);
+
+    /**
+     * Sheds the oldest detail of the heaviest meters until the estimated bytes of all meters fit in the budget, or
+     * nothing more can be shed. Day rollups and the history aggregates are always kept.
+     *
+     * @return the estimated bytes of all meters afterwards
+     */
+    long applyMemoryBudget(long budgetBytes);
+
+    /**
+     * Visits every meter with the number of raw readings it holds and a rough estimate of the bytes its readings and
+     * rollups take.
+     */
+    void visitFootprints(FootprintVisitor visitor);
+
+    @FunctionalInterface
+    interface FootprintVisitor {
+
+        void visit(String smartMeterId, int readings, long estimatedBytes);
+    }
+}
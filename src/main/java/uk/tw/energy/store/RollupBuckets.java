@@ -0,0 +1,154 @@
+package uk.tw.energy.store;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import uk.tw.energy.domain.ReadingRollup;
+import uk.tw.energy.domain.RollupTier;
+
+/**
+ * The buckets of one rollup tier of a meter, kept sorted by start. Readings mostly arrive in time order, so finding the
+ * bucket is usually a look at the last one. Not thread-safe; guarded by the owning {@link MeterReadingColumns}.
+ */
+final class RollupBuckets {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int BUCKET_BYTES = 144;
+
+    private final RollupTier tier;
+    private long[] starts = new long[INITIAL_CAPACITY];
+    private AggregateAccumulator[] buckets = new AggregateAccumulator[INITIAL_CAPACITY];
+    private int size;
+
+    RollupBuckets(RollupTier tier) {
+        this.tier = tier;
+    }
+
+    RollupTier tier() {
+        return tier;
+    }
+
+    /**
+     * Roughly the heap taken by the buckets, at about {@value #BUCKET_BYTES} bytes for each accumulator.
+     */
+    long estimatedBytes() {
+        return (long) starts.length * (Long.BYTES + Integer.BYTES) + (long) size * BUCKET_BYTES;
+    }
+
+    void add(long epochSecond, int nano, long unscaledReading, int readingScale) {
+        bucketFor(tier.bucketStart(epochSecond)).add(epochSecond, nano, unscaledReading, readingScale);
+    }
+
+    /**
+     * Swaps a reading for another taken at the same time in the bucket holding it, unless that bucket has been dropped.
+     */
+    void replace(long epochSecond, long replacedUnscaled, int replacedScale, long unscaledReading, int readingScale) {
+        int index = lowerBound(tier.bucketStart(epochSecond));
+        if (index < size && starts[index] == tier.bucketStart(epochSecond)) {
+            buckets[index].replace(replacedUnscaled, replacedScale, unscaledReading, readingScale);
+        }
+    }
+
+    void accumulate(long fromStart, long toStart, AggregateAccumulator accumulator) {
+        for (int i = lowerBound(fromStart), end = lowerBound(toStart); i < end; i++) {
+            accumulator.add(buckets[i]);
+        }
+    }
+
+    List<ReadingRollup> rollups(long fromStart, long toStart) {
+        int from = lowerBound(fromStart);
+        int to = lowerBound(toStart);
+        List<ReadingRollup> rollups = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            rollups.add(new ReadingRollup(Instant.ofEpochSecond(starts[i]), buckets[i].toAggregate()));
+        }
+        return rollups;
+    }
+
+    RollupBuckets copy() {
+        RollupBuckets copy = new RollupBuckets(tier);
+        copy.starts = Arrays.copyOf(starts, Math.max(size, INITIAL_CAPACITY));
+        copy.buckets = new AggregateAccumulator[copy.starts.length];
+        for (int i = 0; i < size; i++) {
+            copy.buckets[i] = buckets[i].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    void writeTo(SnapshotOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeLongs(starts, size);
+        for (int i = 0; i < size; i++) {
+            buckets[i].writeTo(out);
+        }
+    }
+
+    static RollupBuckets readFrom(RollupTier tier, SnapshotInput in) throws IOException {
+        RollupBuckets rollups = new RollupBuckets(tier);
+        int size = in.readInt();
+        rollups.starts = new long[Math.max(size, INITIAL_CAPACITY)];
+        rollups.buckets = new AggregateAccumulator[rollups.starts.length];
+        in.readLongs(rollups.starts, size);
+        for (int i = 0; i < size; i++) {
+            rollups.buckets[i] = AggregateAccumulator.readFrom(in);
+        }
+        rollups.size = size;
+        return rollups;
+    }
+
+    /**
+     * Drops the buckets that start before the cutoff, giving back the capacity once most of it is unused.
+     */
+    void dropBefore(long cutoff) {
+        int dropped = lowerBound(cutoff);
+        if (dropped == 0) {
+            return;
+        }
+        System.arraycopy(starts, dropped, starts, 0, size - dropped);
+        System.arraycopy(buckets, dropped, buckets, 0, size - dropped);
+        Arrays.fill(buckets, size - dropped, size, null);
+        size -= dropped;
+        if (size < starts.length / 4) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            buckets = Arrays.copyOf(buckets, capacity);
+        }
+    }
+
+    private AggregateAccumulator bucketFor(long start) {
+        if (size > 0 && starts[size - 1] == start) {
+            return buckets[size - 1];
+        }
+        int index = size == 0 || starts[size - 1] < start ? size : lowerBound(start);
+        if (index < size && starts[index] == start) {
+            return buckets[index];
+        }
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            buckets = Arrays.copyOf(buckets, size * 2);
+        }
+        System.arraycopy(starts, index, starts, index + 1, size - index);
+        System.arraycopy(buckets, index, buckets, index + 1, size - index);
+        starts[index] = start;
+        buckets[index] = new AggregateAccumulator();
+        size++;
+        return buckets[index];
+    }
+
+    private int lowerBound(long start) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] < start) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,86 @@
+package uk.tw.energy.store;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered big-endian reads from a file channel, reading it front to back in large chunks. The counterpart of
+ * {@link SnapshotOutput}.
+ */
+final class SnapshotInput {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).flip();
+
+    SnapshotInput(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    byte readByte() throws IOException {
+        require(Byte.BYTES);
+        return buffer.get();
+    }
+
+    int readInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    long readLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    String readString() throws IOException {
+        byte[] bytes = new byte[readInt()];
+        readBytes(bytes, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void readBytes(byte[] values, int count) throws IOException {
+        for (int read = 0; read < count; ) {
+            require(Byte.BYTES);
+            int chunk = Math.min(count - read, buffer.remaining());
+            buffer.get(values, read, chunk);
+            read += chunk;
+        }
+    }
+
+    void readInts(int[] values, int count) throws IOException {
+        for (int read = 0; read < count; ) {
+            require(Integer.BYTES);
+            int chunk = Math.min(count - read, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().get(values, read, chunk);
+            buffer.position(buffer.position() + chunk * Integer.BYTES);
+            read += chunk;
+        }
+    }
+
+    void readLongs(long[] values, int count) throws IOException {
+        for (int read = 0; read < count; ) {
+            require(Long.BYTES);
+            int chunk = Math.min(count - read, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().get(values, read, chunk);
+            buffer.position(buffer.position() + chunk * Long.BYTES);
+            read += chunk;
+        }
+    }
+
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Snapshot ends unexpectedly");
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,98 @@
+package uk.tw.energy.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered big-endian writes to a file channel, with bulk writes of whole columns.
+ */
+final class SnapshotOutput {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    SnapshotOutput(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    void writeByte(int value) throws IOException {
+        ensureRoom(Byte.BYTES);
+        buffer.put((byte) value);
+    }
+
+    void writeInt(int value) throws IOException {
+        ensureRoom(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void writeLong(long value) throws IOException {
+        ensureRoom(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        writeBytes(bytes, bytes.length);
+    }
+
+    void writeBytes(byte[] values, int count) throws IOException {
+        for (int written = 0; written < count; ) {
+            ensureRoom(Byte.BYTES);
+            int chunk = Math.min(count - written, buffer.remaining());
+            buffer.put(values, written, chunk);
+            written += chunk;
+        }
+    }
+
+    /**
+     * Writes the buffer from index 0 to its capacity, whatever its position.
+     */
+    void writeBytes(ByteBuffer values) throws IOException {
+        for (int written = 0; written < values.capacity(); ) {
+            ensureRoom(Byte.BYTES);
+            int chunk = Math.min(values.capacity() - written, buffer.remaining());
+            buffer.put(buffer.position(), values, written, chunk);
+            buffer.position(buffer.position() + chunk);
+            written += chunk;
+        }
+    }
+
+    void writeInts(int[] values, int count) throws IOException {
+        for (int written = 0; written < count; ) {
+            ensureRoom(Integer.BYTES);
+            int chunk = Math.min(count - written, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, written, chunk);
+            buffer.position(buffer.position() + chunk * Integer.BYTES);
+            written += chunk;
+        }
+    }
+
+    void writeLongs(long[] values, int count) throws IOException {
+        for (int written = 0; written < count; ) {
+            ensureRoom(Long.BYTES);
+            int chunk = Math.min(count - written, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().put(values, written, chunk);
+            buffer.position(buffer.position() + chunk * Long.BYTES);
+            written += chunk;
+        }
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package uk.tw.energy.controller;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.service.AccountService;
+import uk.tw.energy.service.PricePlanCatalogue;
+
+public class AccountControllerTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+
+    private AccountService accountService;
+    private AccountController controller;
+
+    @BeforeEach
+    public void setUp() {
+        accountService = new AccountService(Map.of(SMART_METER_ID, "price-plan-0"));
+        PricePlanCatalogue pricePlanCatalogue = new PricePlanCatalogue(List.of(
+                new PricePlan("price-plan-0", null, BigDecimal.TEN, null),
+                new PricePlan("price-plan-1", null, BigDecimal.ONE, null)));
+        controller = new AccountController(accountService, pricePlanCatalogue);
+    }
+
+    @Test
+    public void givenAccountsShouldSwitchTheirPricePlans() {
+        assertThat(controller.updateAccounts(Map.of(SMART_METER_ID, "price-plan-1")).getStatusCode())
+                .isEqualTo(HttpStatus.NO_CONTENT);
+
+        assertThat(accountService.getPricePlanIdForSmartMeterId(SMART_METER_ID)).isEqualTo("price-plan-1");
+        assertThat(accountService.getSmartMeterIdsOnPricePlan("price-plan-0")).isEqualTo(Set.of());
+    }
+
+    @Test
+    public void givenAnAccountWithoutPricePlanShouldReturnErrorResponse() {
+        Map<String, String> accounts = new HashMap<>();
+        accounts.put(SMART_METER_ID, null);
+
+        assertThat(controller.updateAccounts(accounts).getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(accountService.getPricePlanIdForSmartMeterId(SMART_METER_ID)).isEqualTo("price-plan-0");
+    }
+
+    @Test
+    public void givenAnUnknownPricePlanShouldReturnErrorResponseAndSwitchNothing() {
+        Map<String, String> accounts = Map.of(SMART_METER_ID, "price-plan-1", "other-smart-meter-id", "unknown-plan");
+
+        assertThat(controller.updateAccounts(accounts).getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(accountService.getPricePlanIdForSmartMeterId(SMART_METER_ID)).isEqualTo("price-plan-0");
+        assertThat(accountService.getSmartMeterIdsOnPricePlan("unknown-plan")).isEqualTo(Set.of());
+    }
+}
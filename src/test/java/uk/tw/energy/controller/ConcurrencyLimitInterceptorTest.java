@@ -0,0 +1,59 @@
+package uk.tw.energy.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ConcurrencyLimitInterceptorTest {
+
+    private MeterRegistry meterRegistry;
+    private ConcurrencyLimitInterceptor interceptor;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new ConcurrencyLimitInterceptor("analytics", 2, Duration.ZERO, meterRegistry);
+    }
+
+    @Test
+    public void shouldRejectRequestsBeyondTheLimitUntilOneCompletes() {
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        MockHttpServletRequest second = new MockHttpServletRequest();
+        MockHttpServletRequest third = new MockHttpServletRequest();
+        MockHttpServletResponse rejectedResponse = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), null)).isTrue();
+        assertThat(interceptor.preHandle(second, new MockHttpServletResponse(), null)).isTrue();
+        assertThat(interceptor.preHandle(third, rejectedResponse, null)).isFalse();
+
+        assertThat(rejectedResponse.getStatus()).isEqualTo(503);
+        assertThat(rejectedResponse.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(meterRegistry.get("requests.rejected").counter().count()).isEqualTo(1.0);
+        assertThat(interceptor.inFlight()).isEqualTo(2);
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+
+        assertThat(interceptor.preHandle(third, new MockHttpServletResponse(), null)).isTrue();
+    }
+
+    @Test
+    public void shouldHoldOnePermitAcrossTheDispatchesOfAStreamedResponse() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        assertThat(interceptor.inFlight()).isEqualTo(1);
+
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+
+        assertThat(interceptor.inFlight()).isEqualTo(0);
+    }
+}
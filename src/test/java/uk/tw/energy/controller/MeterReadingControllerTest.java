@@ -2,17 +2,34 @@ package uk.tw.energy.controller;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import uk.tw.energy.builders.MeterReadingsBuilder;
+import uk.tw.energy.domain.BatchIngestResult;
 import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterIngestResult;
 import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.ingest.AsyncReadingIngest;
+import uk.tw.energy.ingest.MeterReadingsFrame;
+import uk.tw.energy.ingest.StreamingMeterReadingsReader;
 import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingBatch;
 
 public class MeterReadingControllerTest {
 
@@ -22,8 +39,38 @@ public class MeterReadingControllerTest {
 
     @BeforeEach
     public void setUp() {
-        this.meterReadingService = new MeterReadingService(new HashMap<>());
-        this.meterReadingController = new MeterReadingController(meterReadingService);
+        this.meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        this.meterReadingController = controllerWith(asyncReadingIngest(false));
+    }
+
+    private MeterReadingController controllerWith(AsyncReadingIngest asyncReadingIngest) {
+        return new MeterReadingController(
+                meterReadingService,
+                new StreamingMeterReadingsReader(new ObjectMapper(), meterReadingService),
+                asyncReadingIngest,
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    private AsyncReadingIngest asyncReadingIngest(boolean enabled) {
+        return new AsyncReadingIngest(meterReadingService, new SimpleMeterRegistry(), enabled, 2, 64, 16, 8);
+    }
+
+    @Test
+    public void givenAsynchronousIngestShouldAcceptReadingsAndStoreThemInTheBackground() {
+        AsyncReadingIngest asyncReadingIngest = asyncReadingIngest(true);
+        MeterReadingController controller = controllerWith(asyncReadingIngest);
+        MeterReadings meterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId(SMART_METER_ID)
+                .generateElectricityReadings()
+                .build();
+
+        assertThat(controller.storeReadings(meterReadings).getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+
+        asyncReadingIngest.close();
+        assertThat(meterReadingService.getReadings(SMART_METER_ID).get())
+                .isEqualTo(meterReadings.electricityReadings());
+        assertThat(controller.storeReadings(meterReadings).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
     }
 
     @Test
@@ -65,6 +112,7 @@ public class MeterReadingControllerTest {
         List<ElectricityReading> expectedElectricityReadings = new ArrayList<>();
         expectedElectricityReadings.addAll(meterReadings.electricityReadings());
         expectedElectricityReadings.addAll(otherMeterReadings.electricityReadings());
+        expectedElectricityReadings.sort(Comparator.comparing(ElectricityReading::time));
 
         assertThat(meterReadingService.getReadings(SMART_METER_ID).get()).isEqualTo(expectedElectricityReadings);
     }
@@ -90,7 +138,164 @@ public class MeterReadingControllerTest {
 
     @Test
     public void givenMeterIdThatIsNotRecognisedShouldReturnNotFound() {
-        assertThat(meterReadingController.readReadings(SMART_METER_ID).getStatusCode())
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, null, null, null, null)
+                        .getStatusCode())
                 .isEqualTo(HttpStatus.NOT_FOUND);
     }
+
+    @Test
+    public void givenEmptyBatchShouldReturnErrorResponse() {
+        assertThat(meterReadingController.storeBatchOfReadings(List.of()).getStatusCode())
+                .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    public void givenBatchOfMeterReadingsShouldStoreEachMeterAndReportCounts() {
+        MeterReadings meterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId(SMART_METER_ID)
+                .generateElectricityReadings(3)
+                .build();
+        MeterReadings laterMeterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId(SMART_METER_ID)
+                .generateElectricityReadings(2)
+                .build();
+        MeterReadings otherMeterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId("00001")
+                .generateElectricityReadings(4)
+                .build();
+
+        var response = meterReadingController.storeBatchOfReadings(
+                List.of(meterReadings, otherMeterReadings, laterMeterReadings, new MeterReadings(null, List.of())));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .isEqualTo(new BatchIngestResult(
+                        Map.of(SMART_METER_ID, new MeterIngestResult(5, 0), "00001", new MeterIngestResult(4, 0)), 1));
+
+        List<ElectricityReading> expectedElectricityReadings = new ArrayList<>();
+        expectedElectricityReadings.addAll(meterReadings.electricityReadings());
+        expectedElectricityReadings.addAll(laterMeterReadings.electricityReadings());
+        assertThat(meterReadingService.getReadings(SMART_METER_ID).get()).isEqualTo(expectedElectricityReadings);
+    }
+
+    @Test
+    public void givenStreamedBodyShouldStoreReadings() throws Exception {
+        String body = "{\"smartMeterId\":\"" + SMART_METER_ID
+                + "\",\"electricityReadings\":[{\"time\":1606636800,\"reading\":0.0503}]}";
+
+        var response = meterReadingController.storeStreamedReadings(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(meterReadingService.getReadings(SMART_METER_ID).get().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenStreamedBodyWithoutReadingsShouldReturnErrorResponse() throws Exception {
+        String body = "{\"smartMeterId\":\"" + SMART_METER_ID + "\",\"electricityReadings\":[]}";
+
+        var response = meterReadingController.storeStreamedReadings(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    public void givenFrameOfReadingsShouldStoreReadings() {
+        ReadingBatch readings = new ReadingBatch();
+        readings.add(1606636800, 0, 503, 4);
+
+        var response = meterReadingController.storeReadingsFrame(new MeterReadingsFrame(SMART_METER_ID, readings));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(meterReadingService.getReadings(SMART_METER_ID))
+                .isEqualTo(Optional.of(List.of(
+                        new ElectricityReading(Instant.ofEpochSecond(1606636800), new BigDecimal("0.0503")))));
+    }
+
+    @Test
+    public void givenFrameWithoutReadingsShouldReturnErrorResponse() {
+        var response =
+                meterReadingController.storeReadingsFrame(new MeterReadingsFrame(SMART_METER_ID, new ReadingBatch()));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    public void givenNdjsonShouldStreamEveryReadingOnItsOwnLine() throws Exception {
+        List<ElectricityReading> readings = new ArrayList<>();
+        for (int i = 0; i < MeterReadingController.STREAM_FLUSH_READINGS * 2 + 3; i++) {
+            readings.add(new ElectricityReading(Instant.ofEpochSecond(1000 + i, 500), BigDecimal.valueOf(i, 2)));
+        }
+        meterReadingService.storeReadings(SMART_METER_ID, readings);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        var response = meterReadingController.streamReadings(SMART_METER_ID, null, null);
+        response.getBody().writeTo(body);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String ndjson = body.toString(StandardCharsets.UTF_8);
+        assertThat(ndjson.endsWith("\n")).isTrue();
+        List<ElectricityReading> streamed = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            streamed.add(objectMapper.readValue(line, ElectricityReading.class));
+        }
+        assertThat(streamed).isEqualTo(readings);
+    }
+
+    @Test
+    public void givenNdjsonAndRangeShouldStreamOnlyTheReadingsInRange() throws Exception {
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(Instant.ofEpochSecond(3000), BigDecimal.ONE),
+                new ElectricityReading(Instant.ofEpochSecond(1000), BigDecimal.TEN),
+                new ElectricityReading(Instant.ofEpochSecond(2000), BigDecimal.ZERO));
+        meterReadingService.storeReadings(SMART_METER_ID, readings);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        meterReadingController
+                .streamReadings(SMART_METER_ID, Instant.ofEpochSecond(1000), Instant.ofEpochSecond(3000))
+                .getBody()
+                .writeTo(body);
+
+        assertThat(body.toString(StandardCharsets.UTF_8).lines().count()).isEqualTo(2L);
+    }
+
+    @Test
+    public void givenNdjsonForUnknownMeterShouldReturnNotFound() {
+        assertThat(meterReadingController
+                        .streamReadings(SMART_METER_ID, null, null)
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void givenLimitShouldReturnAPageOfReadingsAndTheNextCursor() {
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(Instant.ofEpochSecond(1000), BigDecimal.ONE),
+                new ElectricityReading(Instant.ofEpochSecond(1010), BigDecimal.TWO),
+                new ElectricityReading(Instant.ofEpochSecond(1020), BigDecimal.TEN));
+        meterReadingService.storeReadings(SMART_METER_ID, readings);
+
+        var response = meterReadingController.readReadings(SMART_METER_ID, null, null, 2, null);
+        String cursor = response.getHeaders().getFirst(MeterReadingController.NEXT_CURSOR_HEADER);
+        var lastPage = meterReadingController.readReadings(SMART_METER_ID, null, null, 2, cursor);
+
+        assertThat(response.getBody()).isEqualTo(readings.subList(0, 2));
+        assertThat(MeterReadingController.decodeCursor(cursor)).isEqualTo(readings.get(1).time());
+        assertThat(lastPage.getBody()).isEqualTo(readings.subList(2, 3));
+        assertThat(lastPage.getHeaders().containsKey(MeterReadingController.NEXT_CURSOR_HEADER)).isFalse();
+    }
+
+    @Test
+    public void givenACursorThatWasNotHandedOutShouldReturnErrorResponse() {
+        meterReadingService.storeReadings(
+                SMART_METER_ID, List.of(new ElectricityReading(Instant.ofEpochSecond(1000), BigDecimal.ONE)));
+
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, null, null, 2, "2")
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
 }
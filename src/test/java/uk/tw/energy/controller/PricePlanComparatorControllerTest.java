@@ -2,6 +2,9 @@ package uk.tw.energy.controller;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.AbstractMap;
@@ -12,34 +15,41 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.FleetRecommendationSummary;
+import uk.tw.energy.domain.MeterRecommendation;
 import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.domain.PricePlanSummary;
 import uk.tw.energy.service.AccountService;
 import uk.tw.energy.service.MeterReadingService;
 import uk.tw.energy.service.PricePlanService;
+import uk.tw.energy.store.ColumnarReadingStore;
 
 public class PricePlanComparatorControllerTest {
     private static final String WORST_PLAN_ID = "worst-supplier";
     private static final String BEST_PLAN_ID = "best-supplier";
     private static final String SECOND_BEST_PLAN_ID = "second-best-supplier";
     private static final String SMART_METER_ID = "smart-meter-id";
+    private static final int FLEET_SIZE = 10_000;
     private PricePlanComparatorController controller;
     private MeterReadingService meterReadingService;
+    private PricePlanService pricePlanService;
     private AccountService accountService;
 
     @BeforeEach
     public void setUp() {
-        meterReadingService = new MeterReadingService(new HashMap<>());
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore());
 
         PricePlan pricePlan1 = new PricePlan(WORST_PLAN_ID, null, BigDecimal.TEN, null);
         PricePlan pricePlan2 = new PricePlan(BEST_PLAN_ID, null, BigDecimal.ONE, null);
         PricePlan pricePlan3 = new PricePlan(SECOND_BEST_PLAN_ID, null, BigDecimal.valueOf(2), null);
         List<PricePlan> pricePlans = List.of(pricePlan1, pricePlan2, pricePlan3);
-        PricePlanService pricePlanService = new PricePlanService(pricePlans, meterReadingService);
+        pricePlanService = new PricePlanService(pricePlans, meterReadingService);
 
         accountService = new AccountService(Map.of(SMART_METER_ID, WORST_PLAN_ID));
 
-        controller = new PricePlanComparatorController(pricePlanService, accountService);
+        controller = new PricePlanComparatorController(pricePlanService, accountService, new ObjectMapper());
     }
 
     @Test
@@ -48,7 +58,8 @@ public class PricePlanComparatorControllerTest {
         var otherReading = new ElectricityReading(Instant.now(), BigDecimal.valueOf(5.0));
         meterReadingService.storeReadings(SMART_METER_ID, List.of(electricityReading, otherReading));
 
-        ResponseEntity<Map<String, Object>> response = controller.calculatedCostForEachPricePlan(SMART_METER_ID);
+        ResponseEntity<Map<String, Object>> response =
+                controller.calculatedCostForEachPricePlan(SMART_METER_ID, null, null);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         Map<String, Object> expected = Map.of(
@@ -64,7 +75,8 @@ public class PricePlanComparatorControllerTest {
 
     @Test
     public void calculatedCostForEachPricePlan_noReadings() {
-        ResponseEntity<Map<String, Object>> response = controller.calculatedCostForEachPricePlan("not-found");
+        ResponseEntity<Map<String, Object>> response =
+                controller.calculatedCostForEachPricePlan("not-found", null, null);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
@@ -116,4 +128,106 @@ public class PricePlanComparatorControllerTest {
                 new AbstractMap.SimpleEntry<>(WORST_PLAN_ID, BigDecimal.valueOf(140.0)));
         assertThat(response.getBody()).isEqualTo(expectedPricePlanToCost);
     }
+
+    @Test
+    public void recommendCheapestPricePlansForFleet_streamsEveryMeterWithUsage() throws Exception {
+        PricePlanComparatorController fleetController = fleetController();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        ResponseEntity<StreamingResponseBody> response = fleetController.recommendCheapestPricePlansForFleet();
+        response.getBody().writeTo(body);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<MeterRecommendation> recommendations =
+                new ObjectMapper().readValue(body.toByteArray(), new TypeReference<List<MeterRecommendation>>() {});
+        assertThat(recommendations.size()).isEqualTo(FLEET_SIZE);
+        assertThat(recommendations.get(0))
+                .isEqualTo(new MeterRecommendation(
+                        fleetMeterId(0),
+                        WORST_PLAN_ID,
+                        BigDecimal.valueOf(100.0),
+                        BEST_PLAN_ID,
+                        BigDecimal.valueOf(10.0),
+                        BigDecimal.valueOf(90.0)));
+    }
+
+    @Test
+    public void summariseCheapestPricePlansForFleet_countsWinnersAndSavings() {
+        PricePlanComparatorController fleetController = fleetController();
+
+        ResponseEntity<FleetRecommendationSummary> response = fleetController.summariseCheapestPricePlansForFleet();
+
+        FleetRecommendationSummary summary = response.getBody();
+        assertThat(summary.meters()).isEqualTo(FLEET_SIZE);
+        assertThat(summary.recommendedPricePlans()).isEqualTo(Map.of(BEST_PLAN_ID, (long) FLEET_SIZE));
+        assertThat(summary.totalSavings()).isEqualByComparingTo(BigDecimal.valueOf(90L * FLEET_SIZE));
+        assertThat(summary.savingsPercentiles().get("max")).isEqualByComparingTo(BigDecimal.valueOf(90));
+    }
+
+    @Test
+    public void summarisePricePlan_totalsTheMetersOnThePlan() {
+        PricePlanComparatorController fleetController = fleetController();
+
+        ResponseEntity<PricePlanSummary> response = fleetController.summarisePricePlan(WORST_PLAN_ID);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        PricePlanSummary summary = response.getBody();
+        assertThat(summary.meters()).isEqualTo(FLEET_SIZE + 1);
+        assertThat(summary.metersWithUsage()).isEqualTo(FLEET_SIZE);
+        assertThat(summary.totalCost()).isEqualByComparingTo(BigDecimal.valueOf(100L * FLEET_SIZE));
+        assertThat(summary.metersThatWouldSave()).isEqualTo(FLEET_SIZE);
+        assertThat(summary.totalSavings()).isEqualByComparingTo(BigDecimal.valueOf(90L * FLEET_SIZE));
+    }
+
+    @Test
+    public void summarisePricePlan_followsMetersThatSwitchPlans() {
+        Map<String, String> accounts = new HashMap<>();
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            accounts.put(fleetMeterId(i), WORST_PLAN_ID);
+        }
+        accountService = new AccountService(accounts);
+        controller = new PricePlanComparatorController(pricePlanService, accountService, new ObjectMapper());
+        Instant now = Instant.now();
+        meterReadingService.storeReadings(
+                fleetMeterId(0),
+                List.of(
+                        new ElectricityReading(now.minusSeconds(3600), BigDecimal.valueOf(15.0)),
+                        new ElectricityReading(now, BigDecimal.valueOf(5.0))));
+
+        accountService.setPricePlanId(fleetMeterId(0), BEST_PLAN_ID);
+
+        PricePlanSummary best = controller.summarisePricePlan(BEST_PLAN_ID).getBody();
+        PricePlanSummary worst = controller.summarisePricePlan(WORST_PLAN_ID).getBody();
+        assertThat(best.meters()).isEqualTo(1);
+        assertThat(best.totalCost()).isEqualByComparingTo(BigDecimal.TEN);
+        assertThat(best.metersThatWouldSave()).isEqualTo(0);
+        assertThat(worst.meters()).isEqualTo(FLEET_SIZE - 1);
+        assertThat(worst.metersWithUsage()).isEqualTo(0);
+    }
+
+    @Test
+    public void summarisePricePlan_unknownPlan() {
+        ResponseEntity<PricePlanSummary> response = controller.summarisePricePlan("not-offered");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private PricePlanComparatorController fleetController() {
+        Map<String, String> accounts = new HashMap<>();
+        Instant now = Instant.now();
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            accounts.put(fleetMeterId(i), WORST_PLAN_ID);
+            meterReadingService.storeReadings(
+                    fleetMeterId(i),
+                    List.of(
+                            new ElectricityReading(now.minusSeconds(3600), BigDecimal.valueOf(15.0)),
+                            new ElectricityReading(now, BigDecimal.valueOf(5.0))));
+        }
+        accounts.put("meter-without-readings", WORST_PLAN_ID);
+        return new PricePlanComparatorController(pricePlanService, new AccountService(accounts), new ObjectMapper());
+    }
+
+    private static String fleetMeterId(int i) {
+        return String.format("fleet-meter-%05d", i);
+    }
 }
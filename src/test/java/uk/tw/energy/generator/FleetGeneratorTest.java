@@ -0,0 +1,92 @@
+package uk.tw.energy.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadings;
+
+public class FleetGeneratorTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final FleetGenerator fleet = new FleetGenerator(42, 50, START, Duration.ofMinutes(1));
+
+    @Test
+    public void shouldGenerateTheSameFleetFromTheSameSeed() {
+        FleetGenerator sameSeed = new FleetGenerator(42, 50, START, Duration.ofMinutes(1));
+        FleetGenerator otherSeed = new FleetGenerator(43, 50, START, Duration.ofMinutes(1));
+
+        assertThat(sameSeed.generate(7, 100, 60)).isEqualTo(fleet.generate(7, 100, 60));
+        assertThat(otherSeed.generate(7, 100, 60)).isNotEqualTo(fleet.generate(7, 100, 60));
+    }
+
+    @Test
+    public void shouldGenerateAnyStretchOfAMeterOnItsOwn() {
+        List<ElectricityReading> day = fleet.generate(3, 0, 1440);
+
+        assertThat(fleet.generate(3, 600, 40)).isEqualTo(day.subList(600, 640));
+    }
+
+    @Test
+    public void shouldSpaceEachMetersReadingsOneIntervalApartWithinItsFirstInterval() {
+        List<ElectricityReading> readings = fleet.generate(11, 0, 3);
+
+        assertThat(readings.get(0).time()).isBetween(START, START.plusSeconds(59));
+        assertThat(Duration.between(readings.get(0).time(), readings.get(2).time()))
+                .isEqualTo(Duration.ofMinutes(2));
+    }
+
+    @Test
+    public void shouldDrawMoreInTheEveningThanAtNight() {
+        assertThat(FleetGenerator.dailyLoad(19)).isGreaterThan(4 * FleetGenerator.dailyLoad(3));
+
+        long night = 0;
+        long evening = 0;
+        for (int meter = 0; meter < fleet.meters(); meter++) {
+            for (long minute = 0; minute < 60; minute++) {
+                night += fleet.unscaledReading(meter, 3 * 60 + minute);
+                evening += fleet.unscaledReading(meter, 19 * 60 + minute);
+            }
+        }
+        assertThat(evening).isGreaterThan(2 * night);
+    }
+
+    @Test
+    public void shouldStreamTheSameReadingsAsAreGeneratedMeterByMeter() {
+        Map<String, List<ElectricityReading>> streamed = fleet.stream(250, 100)
+                .parallel()
+                .collect(Collectors.groupingByConcurrent(
+                        MeterReadings::smartMeterId,
+                        Collectors.flatMapping(body -> body.electricityReadings().stream(), Collectors.toList())));
+
+        assertThat(streamed).hasSize(50);
+        assertThat(streamed.get("fleet-meter-49")).hasSize(250);
+        assertThat(streamed.get("fleet-meter-49")).containsExactlyInAnyOrderElementsOf(fleet.generate(49, 0, 250));
+    }
+
+    @Test
+    public void shouldGenerateEveryMetersReadingsInParallel() {
+        Map<String, Integer> readings = new ConcurrentHashMap<>();
+
+        fleet.generateInParallel(
+                250, 100, (smartMeterId, batch) -> readings.merge(smartMeterId, batch.size(), Integer::sum));
+
+        assertThat(readings).hasSize(50).allSatisfy((smartMeterId, count) -> assertThat(count).isEqualTo(250));
+    }
+
+    @Test
+    public void shouldOnlyRecogniseItsOwnMeters() {
+        assertThat(fleet.isFleetMeter("fleet-meter-0")).isTrue();
+        assertThat(fleet.isFleetMeter("fleet-meter-49")).isTrue();
+        assertThat(fleet.isFleetMeter("fleet-meter-50")).isFalse();
+        assertThat(fleet.isFleetMeter("fleet-meter-x")).isFalse();
+        assertThat(fleet.isFleetMeter("smart-meter-0")).isFalse();
+    }
+}
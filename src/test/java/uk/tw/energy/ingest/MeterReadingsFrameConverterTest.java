@@ -0,0 +1,94 @@
+package uk.tw.energy.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ColumnarReadingStore;
+import uk.tw.energy.store.ReadingBatch;
+
+public class MeterReadingsFrameConverterTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+
+    private final MeterReadingsFrameConverter converter = new MeterReadingsFrameConverter();
+
+    @Test
+    public void shouldDecodeTheReadingsOfAFrame() throws Exception {
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(Instant.parse("2020-11-29T08:00:00Z"), new BigDecimal("0.0503")),
+                new ElectricityReading(Instant.parse("1969-12-31T23:59:59.250Z"), new BigDecimal("-1.5000")));
+
+        MeterReadingsFrame frame = read(write(readings));
+
+        MeterReadingService meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        meterReadingService.storeReadings(frame.smartMeterId(), frame.readings());
+        assertThat(meterReadingService.getReadings(SMART_METER_ID)).contains(readings);
+    }
+
+    @Test
+    public void shouldWriteReadingsAtTheLargestScaleAmongThem() throws Exception {
+        Instant time = Instant.parse("2020-11-29T08:00:00Z");
+
+        MeterReadingsFrame frame = read(write(List.of(
+                new ElectricityReading(time, new BigDecimal("1.5")),
+                new ElectricityReading(time.plusSeconds(60), new BigDecimal("0.125")))));
+
+        MeterReadingService meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        meterReadingService.storeReadings(frame.smartMeterId(), frame.readings());
+        assertThat(meterReadingService.getReadings(SMART_METER_ID))
+                .contains(List.of(
+                        new ElectricityReading(time, new BigDecimal("1.500")),
+                        new ElectricityReading(time.plusSeconds(60), new BigDecimal("0.125"))));
+    }
+
+    @Test
+    public void shouldOnlyConvertFramesInItsOwnMediaType() {
+        assertThat(converter.canRead(MeterReadingsFrame.class, MeterReadingsFrameConverter.MEDIA_TYPE))
+                .isTrue();
+        assertThat(converter.canWrite(MeterReadingsFrame.class, MeterReadingsFrameConverter.MEDIA_TYPE))
+                .isTrue();
+        assertThat(converter.canRead(MeterReadingsFrame.class, MediaType.APPLICATION_JSON))
+                .isFalse();
+    }
+
+    @Test
+    public void shouldRejectAFrameThatIsCutShort() {
+        byte[] frame = write(List.of(new ElectricityReading(Instant.now(), BigDecimal.ONE)));
+
+        assertThatThrownBy(() -> read(Arrays.copyOf(frame, frame.length - 1)))
+                .isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    @Test
+    public void shouldRejectAFrameWhoseLengthDoesNotMatchItsReadings() {
+        byte[] frame = write(List.of(new ElectricityReading(Instant.now(), BigDecimal.ONE)));
+        frame[3]++;
+
+        assertThatThrownBy(() -> read(frame)).isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    private byte[] write(List<ElectricityReading> readings) throws Exception {
+        ReadingBatch batch = new ReadingBatch();
+        readings.forEach(batch::add);
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(new MeterReadingsFrame(SMART_METER_ID, batch), MeterReadingsFrameConverter.MEDIA_TYPE, message);
+        return message.getBodyAsBytes();
+    }
+
+    private MeterReadingsFrame read(byte[] body) throws Exception {
+        MockHttpInputMessage message = new MockHttpInputMessage(body);
+        message.getHeaders().setContentType(MeterReadingsFrameConverter.MEDIA_TYPE);
+        return converter.read(MeterReadingsFrame.class, message);
+    }
+}
@@ -0,0 +1,94 @@
+package uk.tw.energy.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+
+public class ReadingRingBufferTest {
+
+    private static final List<ElectricityReading> READINGS =
+            List.of(new ElectricityReading(Instant.parse("2024-01-01T00:00:00Z"), BigDecimal.ONE));
+
+    @Test
+    public void shouldRefuseReadingsOnceFullUntilASlotIsReleased() {
+        ReadingRingBuffer ringBuffer = new ReadingRingBuffer(4, 8);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ringBuffer.offer("meter-" + i, READINGS, i)).isTrue();
+        }
+
+        assertThat(ringBuffer.offer("meter-4", READINGS, 4)).isFalse();
+        assertThat(ringBuffer.depth()).isEqualTo(4);
+
+        assertThat(ringBuffer.peek().smartMeterId()).isEqualTo("meter-0");
+        ringBuffer.release();
+
+        assertThat(ringBuffer.offer("meter-4", READINGS, 4)).isTrue();
+        for (int i = 1; i <= 4; i++) {
+            assertThat(ringBuffer.peek().smartMeterId()).isEqualTo("meter-" + i);
+            ringBuffer.release();
+        }
+        assertThat(ringBuffer.peek()).isNull();
+        assertThat(ringBuffer.depth()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldHandOnASlotWithoutReadingsWhenAReadingCannotBeStored() {
+        ReadingRingBuffer ringBuffer = new ReadingRingBuffer(4, 8);
+        List<ElectricityReading> unstorable = List.of(new ElectricityReading(
+                Instant.parse("2024-01-01T00:00:00Z"), new BigDecimal("12345678901234567890.123")));
+
+        assertThatThrownBy(() -> ringBuffer.offer("meter-0", unstorable, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(ringBuffer.peek().smartMeterId()).isNull();
+        assertThat(ringBuffer.peek().readings().isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldHandEveryOfferToTheConsumerOnceAndInOrderPerProducer() throws Exception {
+        ReadingRingBuffer ringBuffer = new ReadingRingBuffer(64, 1);
+        int producers = 4;
+        int offersPerProducer = 20_000;
+        List<List<Long>> received = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            received.add(new ArrayList<>());
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers)) {
+            for (int producer = 0; producer < producers; producer++) {
+                String smartMeterId = String.valueOf(producer);
+                executor.submit(() -> {
+                    for (long offer = 0; offer < offersPerProducer; ) {
+                        if (ringBuffer.offer(smartMeterId, READINGS, offer)) {
+                            offer++;
+                        } else {
+                            Thread.onSpinWait();
+                        }
+                    }
+                });
+            }
+            for (int taken = 0; taken < producers * offersPerProducer; ) {
+                ReadingRingBuffer.Slot slot = ringBuffer.peek();
+                if (slot == null) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                received.get(Integer.parseInt(slot.smartMeterId())).add(slot.enqueuedNanos());
+                ringBuffer.release();
+                taken++;
+            }
+        }
+
+        for (List<Long> offers : received) {
+            assertThat(offers).hasSize(offersPerProducer).isSorted();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package uk.tw.energy.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.builders.MeterReadingsBuilder;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ColumnarReadingStore;
+
+public class StreamingMeterReadingsReaderTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private MeterReadingService meterReadingService;
+    private StreamingMeterReadingsReader reader;
+
+    @BeforeEach
+    public void setUp() {
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        reader = new StreamingMeterReadingsReader(objectMapper, meterReadingService);
+    }
+
+    @Test
+    public void shouldStoreTheSameReadingsAsBindingTheBody() throws Exception {
+        String body = "{\"smartMeterId\":\"" + SMART_METER_ID + "\",\"electricityReadings\":["
+                + "{\"time\":1606636800,\"reading\":0.0503},"
+                + "{\"time\":1606636860.25,\"reading\":15.0},"
+                + "{\"time\":\"2024-04-26T00:00:10.123Z\",\"reading\":10},"
+                + "{\"time\":1606636920,\"reading\":1E+3,\"unknown\":[1,{}]}]}";
+
+        int stored = reader.readAndStore(toStream(body));
+
+        assertThat(stored).isEqualTo(4);
+        assertThat(meterReadingService.getReadings(SMART_METER_ID))
+                .contains(objectMapper.readValue(body, MeterReadings.class).electricityReadings());
+    }
+
+    @Test
+    public void shouldStoreReadingsThatSpanSeveralChunks() throws Exception {
+        MeterReadings meterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId(SMART_METER_ID)
+                .generateElectricityReadings(StreamingMeterReadingsReader.CHUNK_SIZE * 2 + 1)
+                .build();
+
+        int stored = reader.readAndStore(toStream(objectMapper.writeValueAsString(meterReadings)));
+
+        assertThat(stored).isEqualTo(StreamingMeterReadingsReader.CHUNK_SIZE * 2 + 1);
+        assertThat(meterReadingService.getReadings(SMART_METER_ID)).contains(meterReadings.electricityReadings());
+    }
+
+    @Test
+    public void shouldAcceptTheSmartMeterIdAfterTheReadings() throws Exception {
+        String body = "{\"electricityReadings\":[{\"time\":1606636800,\"reading\":0.0503}],\"smartMeterId\":\""
+                + SMART_METER_ID + "\"}";
+
+        assertThat(reader.readAndStore(toStream(body))).isEqualTo(1);
+        assertThat(meterReadingService.getReadings(SMART_METER_ID)).isPresent();
+    }
+
+    @Test
+    public void shouldNotStoreAnythingWithoutASmartMeterId() throws Exception {
+        String body = "{\"smartMeterId\":\"\",\"electricityReadings\":[{\"time\":1606636800,\"reading\":0.0503}]}";
+
+        assertThat(reader.readAndStore(toStream(body))).isZero();
+        assertThat(meterReadingService.getReadings("")).isEmpty();
+    }
+
+    @Test
+    public void shouldRejectAReadingWithoutAValue() {
+        String body = "{\"smartMeterId\":\"" + SMART_METER_ID + "\",\"electricityReadings\":[{\"time\":1606636800}]}";
+
+        assertThatThrownBy(() -> reader.readAndStore(toStream(body))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldRejectMoreReadingsBeforeTheSmartMeterIdThanFitInAChunk() throws Exception {
+        String readings = objectMapper.writeValueAsString(new MeterReadingsBuilder()
+                .generateElectricityReadings(StreamingMeterReadingsReader.CHUNK_SIZE + 1)
+                .build()
+                .electricityReadings());
+        String body = "{\"electricityReadings\":" + readings + ",\"smartMeterId\":\"" + SMART_METER_ID + "\"}";
+
+        assertThatThrownBy(() -> reader.readAndStore(toStream(body))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(meterReadingService.getReadings(SMART_METER_ID)).isEmpty();
+    }
+
+    @Test
+    public void shouldKeepTheChunksStoredBeforeTheBodyTurnsOutToBeMalformed() throws Exception {
+        MeterReadings meterReadings = new MeterReadingsBuilder()
+                .setSmartMeterId(SMART_METER_ID)
+                .generateElectricityReadings(StreamingMeterReadingsReader.CHUNK_SIZE)
+                .build();
+        String json = objectMapper.writeValueAsString(meterReadings);
+        String body = json.substring(0, json.lastIndexOf(']')) + ",{\"time\":1606636800}]}";
+
+        assertThatThrownBy(() -> reader.readAndStore(toStream(body))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(meterReadingService.getReadings(SMART_METER_ID)).contains(meterReadings.electricityReadings());
+    }
+
+    private static ByteArrayInputStream toStream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
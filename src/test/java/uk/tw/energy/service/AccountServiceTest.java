@@ -4,12 +4,14 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 public class AccountServiceTest {
 
     private static final String PRICE_PLAN_ID = "price-plan-id";
+    private static final String OTHER_PRICE_PLAN_ID = "other-price-plan-id";
     private static final String SMART_METER_ID = "smart-meter-id";
 
     private AccountService accountService;
@@ -26,4 +28,23 @@ public class AccountServiceTest {
     public void givenTheSmartMeterIdReturnsThePricePlanId() throws Exception {
         assertThat(accountService.getPricePlanIdForSmartMeterId(SMART_METER_ID)).isEqualTo(PRICE_PLAN_ID);
     }
+
+    @Test
+    public void shouldIndexSmartMetersByPricePlan() {
+        assertThat(accountService.getSmartMeterIdsOnPricePlan(PRICE_PLAN_ID)).isEqualTo(Set.of(SMART_METER_ID));
+        assertThat(accountService.getSmartMeterIdsOnPricePlan(OTHER_PRICE_PLAN_ID)).isEqualTo(Set.of());
+    }
+
+    @Test
+    public void switchingPricePlanShouldMoveTheSmartMeterBetweenPlans() {
+        Set<String> onOtherPricePlan = accountService.getSmartMeterIdsOnPricePlan(OTHER_PRICE_PLAN_ID);
+
+        accountService.updateAccounts(Map.of(SMART_METER_ID, OTHER_PRICE_PLAN_ID, "new-smart-meter", PRICE_PLAN_ID));
+
+        assertThat(accountService.getPricePlanIdForSmartMeterId(SMART_METER_ID)).isEqualTo(OTHER_PRICE_PLAN_ID);
+        assertThat(accountService.getSmartMeterIdsOnPricePlan(PRICE_PLAN_ID)).isEqualTo(Set.of("new-smart-meter"));
+        assertThat(accountService.getSmartMeterIdsOnPricePlan(OTHER_PRICE_PLAN_ID))
+                .isEqualTo(Set.of(SMART_METER_ID));
+        assertThat(onOtherPricePlan).isEqualTo(Set.of());
+    }
 }
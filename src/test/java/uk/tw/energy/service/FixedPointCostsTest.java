@@ -0,0 +1,94 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.MeterReadingAggregate;
+
+public class FixedPointCostsTest {
+
+    @Test
+    public void divideShouldRoundHalfAwayFromZero() {
+        assertThat(FixedPointCosts.divideHalfUp(5, 2)).isEqualTo(3);
+        assertThat(FixedPointCosts.divideHalfUp(-5, 2)).isEqualTo(-3);
+        assertThat(FixedPointCosts.divideHalfUp(7, 3)).isEqualTo(2);
+        assertThat(FixedPointCosts.divideHalfUp(-2, 3)).isEqualTo(-1);
+    }
+
+    @Test
+    public void multiplyDivideShouldMatchBigIntegerArithmetic() {
+        Random random = new Random(13);
+        for (int i = 0; i < 100_000; i++) {
+            long multiplicand = random.nextLong() >> random.nextInt(64);
+            long multiplier = random.nextLong() >> random.nextInt(64);
+            long divisor = (random.nextLong() >> random.nextInt(64)) | 1;
+            BigInteger product = BigInteger.valueOf(multiplicand).multiply(BigInteger.valueOf(multiplier));
+            BigInteger expected = new BigDecimal(product)
+                    .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP)
+                    .toBigInteger();
+            if (expected.bitLength() < 63) {
+                assertThat(FixedPointCosts.multiplyDivideHalfUp(multiplicand, multiplier, divisor))
+                        .isEqualTo(expected.longValueExact());
+            }
+        }
+    }
+
+    @Test
+    public void multiplyDivideShouldRejectQuotientsThatDoNotFit() {
+        assertThatThrownBy(() -> FixedPointCosts.multiplyDivideHalfUp(Long.MAX_VALUE, 4, 3))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    public void energyConsumedShouldMatchTheBigDecimalCalculation() {
+        Random random = new Random(17);
+        Instant earliest = Instant.parse("2024-04-26T00:00:00Z");
+        for (int i = 0; i < 10_000; i++) {
+            int count = 1 + random.nextInt(1_000);
+            BigDecimal sum = BigDecimal.valueOf(random.nextInt(100_000_000), random.nextInt(6));
+            Instant latest = earliest.plusSeconds(1 + random.nextInt(10_000_000));
+            MeterReadingAggregate aggregate = new MeterReadingAggregate(count, sum, null, null, earliest, latest);
+
+            BigDecimal hours = BigDecimal.valueOf(Duration.between(earliest, latest).getSeconds() / 3600.0);
+            BigDecimal expected = sum.divide(BigDecimal.valueOf(count), RoundingMode.HALF_UP)
+                    .divide(hours, RoundingMode.HALF_UP);
+
+            assertThat(FixedPointCosts.energyConsumed(aggregate)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void energyConsumedShouldMatchTheBigDecimalCalculationOverTensOfMillionsOfHours() {
+        Instant earliest = Instant.parse("2024-04-26T00:00:00Z");
+        BigDecimal sum = new BigDecimal("123456789.123");
+        for (long seconds : new long[] {3_600L * 10_000_000, 3_600L * 10_000_000 + 1, 3_600L * 123_456_789 + 17}) {
+            Instant latest = earliest.plusSeconds(seconds);
+            MeterReadingAggregate aggregate = new MeterReadingAggregate(3, sum, null, null, earliest, latest);
+
+            BigDecimal hours = BigDecimal.valueOf(seconds / 3600.0);
+            BigDecimal expected = sum.divide(BigDecimal.valueOf(3), RoundingMode.HALF_UP)
+                    .divide(hours, RoundingMode.HALF_UP);
+
+            assertThat(FixedPointCosts.energyConsumed(aggregate)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void costShouldKeepTheScaleOfTheBigDecimalProduct() {
+        BigDecimal energyConsumed = new BigDecimal("1.2345");
+        BigDecimal unitRate = new BigDecimal("0.25");
+
+        long costMicros = FixedPointCosts.costMicros(
+                energyConsumed.unscaledValue().longValueExact(), FixedPointCosts.unitRateMicros(unitRate));
+
+        assertThat(FixedPointCosts.toCost(costMicros, energyConsumed.scale(), unitRate.scale()))
+                .isEqualTo(energyConsumed.multiply(unitRate));
+    }
+}
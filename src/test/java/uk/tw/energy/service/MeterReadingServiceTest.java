@@ -2,11 +2,22 @@ package uk.tw.energy.service;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.BatchIngestResult;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterIngestResult;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.ColumnarReadingStore;
 
 public class MeterReadingServiceTest {
 
@@ -14,7 +25,7 @@ public class MeterReadingServiceTest {
 
     @BeforeEach
     public void setUp() {
-        meterReadingService = new MeterReadingService(new HashMap<>());
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore());
     }
 
     @Test
@@ -27,4 +38,34 @@ public class MeterReadingServiceTest {
         meterReadingService.storeReadings("random-id", new ArrayList<>());
         assertThat(meterReadingService.getReadings("random-id")).isEqualTo(Optional.of(new ArrayList<>()));
     }
+
+    @Test
+    public void givenBatchWithInvalidReadingsShouldStoreTheValidOnesAndCountTheRest() {
+        ElectricityReading reading = new ElectricityReading(Instant.now(), BigDecimal.ONE);
+        List<MeterReadings> batch = List.of(new MeterReadings(
+                "random-id",
+                List.of(
+                        reading,
+                        new ElectricityReading(null, BigDecimal.ONE),
+                        new ElectricityReading(Instant.now(), null))));
+
+        BatchIngestResult result = meterReadingService.storeReadings(batch);
+
+        assertThat(result).isEqualTo(new BatchIngestResult(Map.of("random-id", new MeterIngestResult(1, 2)), 0));
+        assertThat(meterReadingService.getReadings("random-id")).isEqualTo(Optional.of(List.of(reading)));
+    }
+
+    @Test
+    public void shouldCountReadingsIngestedAndRecordBatchSizes() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MeterReadingService service = new MeterReadingService(new ColumnarReadingStore(), meterRegistry);
+        ElectricityReadingsGenerator generator = new ElectricityReadingsGenerator();
+
+        service.storeReadings("random-id", generator.generate(3));
+        service.storeReadings(List.of(new MeterReadings("other-id", generator.generate(5))));
+
+        assertThat(meterRegistry.get("readings.ingested").counter().count()).isEqualTo(8.0);
+        assertThat(meterRegistry.get("readings.batch.size").summary().count()).isEqualTo(2L);
+        assertThat(meterRegistry.get("readings.batch.size").summary().max()).isEqualTo(5.0);
+    }
 }
@@ -0,0 +1,96 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.PricePlan;
+
+public class PricePlanCatalogueTest {
+
+    @Test
+    public void cheapestShouldMatchSortingAllCosts() {
+        Random random = new Random(3);
+        List<PricePlan> pricePlans = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            pricePlans.add(plan("plan-" + i, BigDecimal.valueOf(random.nextInt(1_000_000), 4)));
+        }
+        PricePlanCatalogue catalogue = new PricePlanCatalogue(pricePlans);
+        BigDecimal energyConsumedInKwH = new BigDecimal("1.2345");
+
+        List<Map.Entry<String, BigDecimal>> allCosts =
+                new ArrayList<>(catalogue.costs(energyConsumedInKwH).entrySet());
+        allCosts.sort(Comparator.comparing(Map.Entry::getValue));
+
+        List<Map.Entry<String, BigDecimal>> cheapest = catalogue.cheapest(energyConsumedInKwH, 10);
+        assertThat(cheapest).hasSize(10);
+        assertThat(cheapest.stream().map(Map.Entry::getValue).toList())
+                .isEqualTo(allCosts.subList(0, 10).stream().map(Map.Entry::getValue).toList());
+        assertThat(catalogue.cheapest(energyConsumedInKwH, Integer.MAX_VALUE)).hasSize(10_000);
+    }
+
+    @Test
+    public void loadShouldReplaceAllPlansAndIndexThemByName() {
+        PricePlanCatalogue catalogue = new PricePlanCatalogue(List.of(plan("old", BigDecimal.ONE)));
+
+        catalogue.load(List.of(
+                plan("cheap", BigDecimal.ONE), plan("dear", BigDecimal.TEN), plan("cheap", BigDecimal.TWO)));
+
+        assertThat(catalogue.size()).isEqualTo(2);
+        assertThat(catalogue.get("old")).isEmpty();
+        assertThat(catalogue.get("cheap").get().getUnitRate()).isEqualTo(BigDecimal.TWO);
+        assertThat(catalogue.cheapest(BigDecimal.ONE, 1)).isEqualTo(List.of(Map.entry("cheap", BigDecimal.TWO)));
+    }
+
+    @Test
+    public void plansAfterARateWithMoreDecimalsThanMicroUnitsShouldStillBeCosted() {
+        List<PricePlan> pricePlans =
+                List.of(plan("precise", new BigDecimal("0.1234567")), plan("round", new BigDecimal("0.5")));
+
+        for (CostEngine costEngine : CostEngine.values()) {
+            PricePlanCatalogue catalogue = new PricePlanCatalogue(pricePlans, costEngine);
+
+            assertThat(catalogue.costs(BigDecimal.TEN))
+                    .isEqualTo(Map.of("precise", new BigDecimal("1.2345670"), "round", new BigDecimal("5.0")));
+            assertThat(catalogue.cheapest(BigDecimal.TEN, 1))
+                    .isEqualTo(List.of(Map.entry("precise", new BigDecimal("1.2345670"))));
+            assertThat(catalogue.get("round")).isPresent();
+        }
+    }
+
+    @Test
+    public void fixedPointEngineShouldAgreeWithBigDecimalEngine() {
+        Random random = new Random(5);
+        List<PricePlan> pricePlans = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            pricePlans.add(plan("plan-" + i, BigDecimal.valueOf(random.nextInt(1_000_000), random.nextInt(7))));
+        }
+        PricePlanCatalogue crossChecked = new PricePlanCatalogue(pricePlans, CostEngine.CROSS_CHECK);
+        PricePlanCatalogue fixedPoint = new PricePlanCatalogue(pricePlans, CostEngine.FIXED_POINT);
+        PricePlanCatalogue bigDecimal = new PricePlanCatalogue(pricePlans, CostEngine.BIG_DECIMAL);
+
+        for (int i = 0; i < 100; i++) {
+            BigDecimal energyConsumedInKwH = BigDecimal.valueOf(random.nextInt(10_000_000), random.nextInt(5));
+            assertThat(crossChecked.cheapest(energyConsumedInKwH, 5))
+                    .isEqualTo(bigDecimal.cheapest(energyConsumedInKwH, 5));
+            assertThat(fixedPoint.costs(energyConsumedInKwH)).isEqualTo(bigDecimal.costs(energyConsumedInKwH));
+        }
+    }
+
+    @Test
+    public void fixedPointEngineShouldFallBackForRatesWithTooManyDecimals() {
+        PricePlanCatalogue catalogue =
+                new PricePlanCatalogue(List.of(plan("precise", new BigDecimal("0.1234567"))), CostEngine.FIXED_POINT);
+
+        assertThat(catalogue.costs(BigDecimal.TEN)).isEqualTo(Map.of("precise", new BigDecimal("1.2345670")));
+    }
+
+    private static PricePlan plan(String planName, BigDecimal unitRate) {
+        return new PricePlan(planName, null, unitRate, List.of());
+    }
+}
@@ -0,0 +1,118 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.CostCacheStats;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadingAggregate;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.ColumnarReadingStore;
+
+public class PricePlanServiceTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+    private static final String PRICE_PLAN_ID = "price-plan-id";
+
+    private CountingReadingStore readingStore;
+    private MeterReadingService meterReadingService;
+    private PricePlanService pricePlanService;
+
+    @BeforeEach
+    public void setUp() {
+        readingStore = new CountingReadingStore();
+        meterReadingService = new MeterReadingService(readingStore);
+        List<PricePlan> pricePlans = List.of(new PricePlan(PRICE_PLAN_ID, null, BigDecimal.TEN, null));
+        pricePlanService = new PricePlanService(new PricePlanCatalogue(pricePlans), meterReadingService, 16);
+    }
+
+    @Test
+    public void repeatedCostsShouldBeServedWithoutReadingTheStore() {
+        storeReadings(SMART_METER_ID, 15.0, 5.0);
+
+        Optional<Map<String, BigDecimal>> first =
+                pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID);
+        Optional<Map<String, BigDecimal>> second =
+                pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(readingStore.aggregateReads).isEqualTo(1);
+        assertThat(pricePlanService.getCostCacheStats()).isEqualTo(new CostCacheStats(1, 1, 0, 1));
+    }
+
+    @Test
+    public void costingARangeShouldBeTimedEvenWithoutReadingsInIt() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PricePlanService service = new PricePlanService(
+                new PricePlanCatalogue(List.of(new PricePlan(PRICE_PLAN_ID, null, BigDecimal.TEN, null))),
+                meterReadingService,
+                16,
+                meterRegistry);
+        Instant to = Instant.now();
+
+        Optional<Map<String, BigDecimal>> costs = service.getConsumptionCostOfElectricityReadingsForEachPricePlan(
+                SMART_METER_ID, to.minusSeconds(3600), to);
+
+        assertThat(costs).isEqualTo(Optional.empty());
+        assertThat(meterRegistry
+                        .get("price-plans.cost.calculation")
+                        .tag("operation", "compare-range")
+                        .timer()
+                        .count())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void storingReadingsShouldInvalidateCachedCosts() {
+        storeReadings(SMART_METER_ID, 15.0, 5.0);
+        pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID);
+
+        meterReadingService.storeReadings(
+                SMART_METER_ID, List.of(new ElectricityReading(Instant.now(), BigDecimal.valueOf(40.0))));
+        Optional<Map<String, BigDecimal>> costs =
+                pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID);
+
+        assertThat(costs).isEqualTo(Optional.of(Map.of(PRICE_PLAN_ID, BigDecimal.valueOf(200.0))));
+        assertThat(readingStore.aggregateReads).isEqualTo(2);
+    }
+
+    @Test
+    public void cacheShouldEvictLeastRecentlyUsedMetersBeyondItsMaximumSize() {
+        for (int i = 0; i < 100; i++) {
+            storeReadings("smart-meter-" + i, 15.0, 5.0);
+            pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan("smart-meter-" + i);
+        }
+
+        CostCacheStats stats = pricePlanService.getCostCacheStats();
+        assertThat(stats.size()).isLessThanOrEqualTo(16L);
+        assertThat(stats.evictions()).isEqualTo(100 - stats.size());
+    }
+
+    private void storeReadings(String smartMeterId, double earlier, double later) {
+        Instant now = Instant.now();
+        meterReadingService.storeReadings(
+                smartMeterId,
+                List.of(
+                        new ElectricityReading(now.minusSeconds(3600), BigDecimal.valueOf(earlier)),
+                        new ElectricityReading(now, BigDecimal.valueOf(later))));
+    }
+
+    private static final class CountingReadingStore extends ColumnarReadingStore {
+
+        private int aggregateReads;
+
+        @Override
+        public Optional<MeterReadingAggregate> getAggregate(String smartMeterId) {
+            aggregateReads++;
+            return super.getAggregate(smartMeterId);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.ColumnarReadingStore;
+
+public class ReadingStoreMetricsTest {
+
+    private MeterRegistry meterRegistry;
+    private MeterReadingService meterReadingService;
+    private ReadingStoreMetrics readingStoreMetrics;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        meterReadingService = new MeterReadingService(new ColumnarReadingStore());
+        readingStoreMetrics = new ReadingStoreMetrics(meterReadingService, meterRegistry, 2);
+    }
+
+    @Test
+    public void shouldReportTotalsAndTheLargestMeters() {
+        ElectricityReadingsGenerator generator = new ElectricityReadingsGenerator();
+        meterReadingService.storeReadings("small", generator.generate(10));
+        meterReadingService.storeReadings("medium", generator.generate(2_000));
+        meterReadingService.storeReadings("large", generator.generate(5_000));
+
+        readingStoreMetrics.refresh();
+
+        assertThat(meterRegistry.get("readings.store.meters").gauge().value()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("readings.store.readings").gauge().value()).isEqualTo(7_010.0);
+        assertThat(meterRegistry.get("readings.store.size").gauge().value()).isGreaterThan(0.0);
+        Map<String, Double> largestMeterReadings =
+                meterRegistry.get("readings.store.meter.readings").gauges().stream()
+                        .collect(Collectors.toMap(gauge -> gauge.getId().getTag("smart-meter-id"), Gauge::value));
+        assertThat(largestMeterReadings).isEqualTo(Map.of("medium", 2_000.0, "large", 5_000.0));
+    }
+
+    @Test
+    public void shouldReportNothingForAnEmptyStore() {
+        readingStoreMetrics.refresh();
+
+        assertThat(meterRegistry.get("readings.store.meters").gauge().value()).isEqualTo(0.0);
+        assertThat(meterRegistry.find("readings.store.meter.readings").gauges()).isEmpty();
+    }
+}
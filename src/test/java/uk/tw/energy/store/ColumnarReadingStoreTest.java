@@ -0,0 +1,483 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadingAggregate;
+import uk.tw.energy.domain.ReadingRollup;
+import uk.tw.energy.domain.ReadingsPage;
+import uk.tw.energy.domain.RollupTier;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+public class ColumnarReadingStoreTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+
+    private ColumnarReadingStore readingStore;
+
+    @BeforeEach
+    public void setUp() {
+        readingStore = new ColumnarReadingStore();
+    }
+
+    @Test
+    public void givenMeterIdThatDoesNotExistShouldReturnEmpty() {
+        assertThat(readingStore.getReadings("unknown-id")).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void shouldReturnReadingsExactlyAsTheyWereAppended() {
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:10.123456789Z"), new BigDecimal("0.0503")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:20Z"), BigDecimal.valueOf(15.0)),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:30Z"), new BigDecimal(30)));
+
+        readingStore.append(SMART_METER_ID, readings);
+
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(readings);
+    }
+
+    @Test
+    public void shouldKeepAppendingBeyondInitialCapacity() {
+        List<ElectricityReading> expected = new ArrayList<>();
+        ElectricityReadingsGenerator generator = new ElectricityReadingsGenerator();
+        for (int batch = 0; batch < 10; batch++) {
+            List<ElectricityReading> readings = generator.generate(7);
+            readingStore.append(SMART_METER_ID, readings);
+            expected.addAll(readings);
+        }
+        expected.sort(Comparator.comparing(ElectricityReading::time));
+
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(expected);
+    }
+
+    @Test
+    public void previouslyReturnedReadingsShouldNotChangeWhenMoreAreAppended() {
+        ElectricityReadingsGenerator generator = new ElectricityReadingsGenerator();
+        List<ElectricityReading> firstBatch = generator.generate(5);
+        readingStore.append(SMART_METER_ID, firstBatch);
+        List<ElectricityReading> view = readingStore.getReadings(SMART_METER_ID).get();
+
+        readingStore.append(SMART_METER_ID, generator.generate(50));
+
+        assertThat(view).isEqualTo(firstBatch);
+    }
+
+    @Test
+    public void shouldRejectReadingsThatDoNotFitInALong() {
+        List<ElectricityReading> readings =
+                List.of(new ElectricityReading(Instant.now(), new BigDecimal("12345678901234567890.1")));
+
+        assertThatThrownBy(() -> readingStore.append(SMART_METER_ID, readings))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(List.of());
+    }
+
+    @Test
+    public void aggregateShouldMatchTheReadings() {
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:20Z"), BigDecimal.valueOf(15.0)),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:10Z"), new BigDecimal("0.0503")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:30Z"), new BigDecimal(30)));
+        List<ElectricityReading> moreReadings = new ElectricityReadingsGenerator().generate(20);
+        List<ElectricityReading> allReadings = new ArrayList<>(readings);
+        allReadings.addAll(moreReadings);
+
+        readingStore.append(SMART_METER_ID, readings);
+        readingStore.append(SMART_METER_ID, moreReadings);
+
+        BigDecimal expectedSum =
+                allReadings.stream().map(ElectricityReading::reading).reduce(BigDecimal.ZERO, BigDecimal::add);
+        Instant expectedEarliest = allReadings.stream()
+                .map(ElectricityReading::time)
+                .min(Comparator.naturalOrder())
+                .get();
+        Instant expectedLatest = allReadings.stream()
+                .map(ElectricityReading::time)
+                .max(Comparator.naturalOrder())
+                .get();
+        BigDecimal expectedMin = allReadings.stream()
+                .map(ElectricityReading::reading)
+                .min(Comparator.naturalOrder())
+                .get();
+        BigDecimal expectedMax = allReadings.stream()
+                .map(ElectricityReading::reading)
+                .max(Comparator.naturalOrder())
+                .get();
+        assertThat(readingStore.getAggregate(SMART_METER_ID))
+                .contains(new MeterReadingAggregate(
+                        23, expectedSum, expectedMin, expectedMax, expectedEarliest, expectedLatest));
+    }
+
+    @Test
+    public void aggregateOfAMeterWithoutReadingsShouldBeEmpty() {
+        readingStore.append(SMART_METER_ID, List.of());
+
+        assertThat(readingStore.getAggregate(SMART_METER_ID)).contains(MeterReadingAggregate.EMPTY);
+        assertThat(readingStore.getAggregate("unknown-id")).isEmpty();
+    }
+
+    @Test
+    public void shouldReturnReadingsInTimeRangePageByPage() {
+        List<ElectricityReading> readings = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            readings.add(new ElectricityReading(Instant.ofEpochSecond(1000 + i * 10), BigDecimal.valueOf(i)));
+        }
+        readingStore.append(SMART_METER_ID, readings);
+        Instant from = Instant.ofEpochSecond(1020);
+        Instant to = Instant.ofEpochSecond(1070);
+
+        ReadingsPage firstPage = readingStore.getReadings(SMART_METER_ID, from, to, null, 3).get();
+        ReadingsPage secondPage = readingStore
+                .getReadings(SMART_METER_ID, from, to, firstPage.nextCursor(), 3)
+                .get();
+
+        assertThat(firstPage.readings()).isEqualTo(readings.subList(2, 5));
+        assertThat(secondPage.readings()).isEqualTo(readings.subList(5, 7));
+        assertThat(secondPage.nextCursor()).isNull();
+    }
+
+    @Test
+    public void shouldCarryOnAfterThePreviousPageWhenReadingsAreMergedInBetweenPages() {
+        List<ElectricityReading> readings = readingsEvery(Duration.ofSeconds(10), Instant.ofEpochSecond(1000), 10);
+        ElectricityReading late = new ElectricityReading(Instant.ofEpochSecond(1005), BigDecimal.TEN);
+        readingStore.append(SMART_METER_ID, readings);
+
+        ReadingsPage firstPage = readingStore.getReadings(SMART_METER_ID, null, null, null, 4).get();
+        readingStore.append(SMART_METER_ID, List.of(late));
+        ReadingsPage secondPage = readingStore
+                .getReadings(SMART_METER_ID, null, null, firstPage.nextCursor(), 4)
+                .get();
+
+        assertThat(firstPage.readings()).isEqualTo(readings.subList(0, 4));
+        assertThat(firstPage.nextCursor()).isEqualTo(readings.get(3).time());
+        assertThat(secondPage.readings()).isEqualTo(readings.subList(4, 8));
+    }
+
+    @Test
+    public void shouldReturnReadingsInTimeOrderWhenTheyArrivedOutOfOrder() {
+        ElectricityReading first = new ElectricityReading(Instant.ofEpochSecond(1000), BigDecimal.ONE);
+        ElectricityReading second = new ElectricityReading(Instant.ofEpochSecond(1010), BigDecimal.TWO);
+        ElectricityReading third = new ElectricityReading(Instant.ofEpochSecond(1020), BigDecimal.TEN);
+        readingStore.append(SMART_METER_ID, List.of(third, first));
+        readingStore.append(SMART_METER_ID, List.of(second));
+
+        ReadingsPage page = readingStore
+                .getReadings(SMART_METER_ID, Instant.ofEpochSecond(1005), null, null, Integer.MAX_VALUE)
+                .get();
+
+        assertThat(page.readings()).isEqualTo(List.of(second, third));
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(List.of(first, second, third));
+    }
+
+    @Test
+    public void shouldMergeLateReadingsIntoTimeOrderAcrossCompressedBlocks() {
+        List<ElectricityReading> onTime = new ArrayList<>();
+        List<ElectricityReading> late = new ArrayList<>();
+        for (int i = 0; i < 3 * CompressedBlock.READINGS; i++) {
+            ElectricityReading reading = new ElectricityReading(Instant.ofEpochSecond(1000 + i * 10), BigDecimal.ONE);
+            (i % 2 == 0 || i < CompressedBlock.READINGS / 2 ? onTime : late).add(reading);
+        }
+        readingStore.append(SMART_METER_ID, onTime);
+        List<ElectricityReading> before = readingStore.getReadings(SMART_METER_ID).get();
+
+        readingStore.append(SMART_METER_ID, late);
+
+        List<ElectricityReading> all = new ArrayList<>(onTime);
+        all.addAll(late);
+        all.sort(Comparator.comparing(ElectricityReading::time));
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(all);
+        assertThat(before).isEqualTo(onTime);
+        Instant from = all.get(2 * CompressedBlock.READINGS).time();
+        assertThat(readingStore
+                        .getReadings(SMART_METER_ID, from, null, null, Integer.MAX_VALUE)
+                        .get()
+                        .readings())
+                .isEqualTo(all.subList(2 * CompressedBlock.READINGS, all.size()));
+        assertThat(readingStore.getAggregate(SMART_METER_ID).get().count()).isEqualTo(all.size());
+    }
+
+    @Test
+    public void shouldSortABatchThatIsOutOfOrderItself() {
+        List<ElectricityReading> readings = readingsEvery(Duration.ofSeconds(10), Instant.ofEpochSecond(1000), 50);
+        List<ElectricityReading> shuffled = new ArrayList<>(readings);
+        Collections.shuffle(shuffled, new Random(7));
+
+        readingStore.append(SMART_METER_ID, shuffled);
+
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(readings);
+    }
+
+    @Test
+    public void shouldReplaceAReadingTakenAtTheSameTimeWithTheLastOneAppended() {
+        Instant start = Instant.parse("2024-04-26T12:00:00Z");
+        List<ElectricityReading> readings = readingsEvery(Duration.ofSeconds(10), start, 12);
+        ElectricityReading corrected = new ElectricityReading(start.plusSeconds(30), new BigDecimal("9.99"));
+        readingStore.append(SMART_METER_ID, readings);
+
+        readingStore.append(SMART_METER_ID, readings.subList(6, 12));
+        readingStore.append(SMART_METER_ID, List.of(readings.get(3), corrected));
+
+        List<ElectricityReading> expected = new ArrayList<>(readings);
+        expected.set(3, corrected);
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(expected);
+        BigDecimal expectedSum =
+                expected.stream().map(ElectricityReading::reading).reduce(BigDecimal.ZERO, BigDecimal::add);
+        MeterReadingAggregate aggregate = readingStore.getAggregate(SMART_METER_ID).get();
+        assertThat(aggregate.count()).isEqualTo(12);
+        assertThat(aggregate.sum()).isEqualByComparingTo(expectedSum);
+        assertThat(readingStore.getRollups(SMART_METER_ID, RollupTier.MINUTE, null, null))
+                .hasValueSatisfying(minutes -> assertThat(minutes)
+                        .extracting(minute -> minute.aggregate().count())
+                        .containsExactly(6L, 6L));
+    }
+
+    @Test
+    public void shouldSumToTheScaleOfTheReadingsKeptOnceAReadingIsReplaced() {
+        Instant start = Instant.parse("2024-04-26T12:00:00Z");
+        List<ElectricityReading> readings = readingsEvery(Duration.ofSeconds(10), start, 12);
+        readingStore.append(SMART_METER_ID, readings);
+        ElectricityReading moreDigits = new ElectricityReading(start.plusSeconds(30), new BigDecimal("0.125"));
+        readingStore.append(SMART_METER_ID, List.of(moreDigits));
+
+        readingStore.append(SMART_METER_ID, List.of(readings.get(3)));
+
+        BigDecimal expectedSum =
+                readings.stream().map(ElectricityReading::reading).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(readingStore.getAggregate(SMART_METER_ID).get().sum()).isEqualTo(expectedSum);
+        assertThat(readingStore.getRollups(SMART_METER_ID, RollupTier.HOUR, null, null))
+                .hasValueSatisfying(hours -> assertThat(hours.get(0).aggregate().sum()).isEqualTo(expectedSum));
+    }
+
+    @Test
+    public void shouldReturnReadingsAcrossCompressedBlocks() {
+        ElectricityReadingsGenerator generator = new ElectricityReadingsGenerator();
+        List<ElectricityReading> readings = generator.generate(3 * CompressedBlock.READINGS + 10);
+        readingStore.append(SMART_METER_ID, readings);
+        List<ElectricityReading> inRange =
+                readings.subList(CompressedBlock.READINGS - 5, 2 * CompressedBlock.READINGS + 5);
+
+        ReadingsPage page = readingStore
+                .getReadings(
+                        SMART_METER_ID,
+                        inRange.get(0).time(),
+                        readings.get(2 * CompressedBlock.READINGS + 5).time(),
+                        null,
+                        Integer.MAX_VALUE)
+                .get();
+
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(readings);
+        assertThat(page.readings()).isEqualTo(inRange);
+    }
+
+    @Test
+    public void shouldIterateAcrossCompressedBlocksWhileOtherReadersIterateElsewhere() {
+        List<ElectricityReading> readings =
+                readingsEvery(Duration.ofSeconds(10), Instant.ofEpochSecond(1000), 3 * CompressedBlock.READINGS);
+        readingStore.append(SMART_METER_ID, readings);
+        List<ElectricityReading> stored = readingStore.getReadings(SMART_METER_ID).get();
+        List<ElectricityReading> lastBlock = stored.subList(2 * CompressedBlock.READINGS, stored.size());
+
+        Iterator<ElectricityReading> fromStart = stored.iterator();
+        Iterator<ElectricityReading> fromLastBlock = lastBlock.iterator();
+        List<ElectricityReading> readFromStart = new ArrayList<>();
+        List<ElectricityReading> readFromLastBlock = new ArrayList<>();
+        while (fromStart.hasNext()) {
+            readFromStart.add(fromStart.next());
+            if (fromLastBlock.hasNext()) {
+                readFromLastBlock.add(fromLastBlock.next());
+            }
+        }
+
+        assertThat(readFromStart).isEqualTo(readings);
+        assertThat(readFromLastBlock).isEqualTo(readings.subList(2 * CompressedBlock.READINGS, readings.size()));
+    }
+
+    @Test
+    public void shouldRollReadingsUpIntoMinuteHourAndDayBuckets() {
+        Instant start = Instant.parse("2024-04-26T23:59:00Z");
+        List<ElectricityReading> readings = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            readings.add(new ElectricityReading(start.plusSeconds(i * 10), BigDecimal.valueOf(i)));
+        }
+        readingStore.append(SMART_METER_ID, readings);
+
+        List<ReadingRollup> minutes =
+                readingStore.getRollups(SMART_METER_ID, RollupTier.MINUTE, null, null).get();
+        List<ReadingRollup> days =
+                readingStore.getRollups(SMART_METER_ID, RollupTier.DAY, null, null).get();
+
+        assertThat(minutes).hasSize(2);
+        assertThat(minutes.get(0).start()).isEqualTo(start);
+        assertThat(minutes.get(0).aggregate())
+                .isEqualTo(new MeterReadingAggregate(
+                        6,
+                        BigDecimal.valueOf(15),
+                        BigDecimal.valueOf(0),
+                        BigDecimal.valueOf(5),
+                        start,
+                        start.plusSeconds(50)));
+        assertThat(days)
+                .extracting(ReadingRollup::start)
+                .containsExactly(Instant.parse("2024-04-26T00:00:00Z"), Instant.parse("2024-04-27T00:00:00Z"));
+    }
+
+    @Test
+    public void rangeAggregateShouldMatchTheReadingsInRange() {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(500);
+        readingStore.append(SMART_METER_ID, readings);
+        Instant from = readings.get(0).time().plusSeconds(1234);
+        Instant to = from.plus(Duration.ofMinutes(60));
+
+        List<BigDecimal> inRange = readings.stream()
+                .filter(reading -> !reading.time().isBefore(from) && reading.time().isBefore(to))
+                .map(ElectricityReading::reading)
+                .toList();
+
+        MeterReadingAggregate aggregate = readingStore.getAggregate(SMART_METER_ID, from, to).get();
+        assertThat(aggregate.count()).isEqualTo(inRange.size());
+        assertThat(aggregate.sum()).isEqualTo(inRange.stream().reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    @Test
+    public void retentionShouldDropRawReadingsButKeepRollupsAndHistoryAggregate() {
+        Instant now = Instant.parse("2024-04-26T12:00:00Z");
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(now.minus(Duration.ofDays(3)), BigDecimal.ONE),
+                new ElectricityReading(now.minus(Duration.ofDays(2)), BigDecimal.TWO),
+                new ElectricityReading(now.minusSeconds(10), BigDecimal.TEN));
+        readingStore.append(SMART_METER_ID, readings);
+        MeterReadingAggregate history = readingStore.getAggregate(SMART_METER_ID).get();
+
+        readingStore.applyRetention(new ReadingRetention(Duration.ofDays(1), null, null), now);
+
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(readings.subList(2, 3));
+        assertThat(readingStore.getAggregate(SMART_METER_ID)).contains(history);
+        MeterReadingAggregate olderThanRawRetention = readingStore
+                .getAggregate(SMART_METER_ID, now.minus(Duration.ofDays(4)), now.minus(Duration.ofDays(1)))
+                .get();
+        assertThat(olderThanRawRetention.sum()).isEqualTo(BigDecimal.valueOf(3));
+        assertThat(readingStore.getRollups(SMART_METER_ID, RollupTier.MINUTE, null, null))
+                .hasValueSatisfying(minutes -> assertThat(minutes).hasSize(3));
+    }
+
+    @Test
+    public void retentionByCountShouldKeepTheLatestReadingsFromTheStartOfTheirMinute() {
+        Instant start = Instant.parse("2024-04-26T12:00:00Z");
+        List<ElectricityReading> readings = readingsEvery(Duration.ofSeconds(10), start, 360);
+        readingStore.append(SMART_METER_ID, readings);
+        MeterReadingAggregate history = readingStore.getAggregate(SMART_METER_ID).get();
+        MeterReadingAggregate lastHour =
+                readingStore.getAggregate(SMART_METER_ID, start, start.plus(Duration.ofHours(1))).get();
+
+        readingStore.applyRetention(new ReadingRetention(null, null, null, 100), start.plus(Duration.ofHours(1)));
+
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(readings.subList(258, 360));
+        assertThat(readingStore.getAggregate(SMART_METER_ID)).contains(history);
+        assertThat(readingStore.getAggregate(SMART_METER_ID, start, start.plus(Duration.ofHours(1))))
+                .contains(lastHour);
+    }
+
+    @Test
+    public void memoryBudgetShouldShedTheOldestDetailOfTheHeaviestMeterFirst() {
+        Instant start = Instant.parse("2024-04-23T00:00:00Z");
+        List<ElectricityReading> heavy = readingsEvery(Duration.ofSeconds(10), start, 3 * 24 * 360);
+        List<ElectricityReading> light = readingsEvery(Duration.ofMinutes(15), start, 3 * 24 * 4);
+        readingStore.append(SMART_METER_ID, heavy);
+        readingStore.append("light-meter", light);
+        MeterReadingAggregate history = readingStore.getAggregate(SMART_METER_ID).get();
+        Instant end = start.plus(Duration.ofDays(3));
+        MeterReadingAggregate lastDay =
+                readingStore.getAggregate(SMART_METER_ID, end.minus(Duration.ofDays(1)), end).get();
+        long budget = readingStore.applyMemoryBudget(Long.MAX_VALUE) / 2;
+
+        assertThat(readingStore.applyMemoryBudget(budget)).isLessThanOrEqualTo(budget);
+
+        assertThat(readingStore.getReadings("light-meter")).contains(light);
+        List<ElectricityReading> kept = readingStore.getReadings(SMART_METER_ID).get();
+        assertThat(kept).isNotEmpty().isEqualTo(heavy.subList(heavy.size() - kept.size(), heavy.size()));
+        assertThat(kept.get(0).time()).isAfter(start);
+        assertThat(readingStore.getAggregate(SMART_METER_ID)).contains(history);
+        assertThat(readingStore.getAggregate(SMART_METER_ID, start, end)).contains(history);
+        assertThat(readingStore.getAggregate(SMART_METER_ID, end.minus(Duration.ofDays(1)), end))
+                .contains(lastDay);
+    }
+
+    @Test
+    public void shouldNotLoseReadingsWhenWrittenAndReadConcurrently() throws Exception {
+        int writers = 8;
+        int batchesPerWriter = 500;
+        int readingsPerBatch = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        try {
+            for (int writer = 0; writer < writers; writer++) {
+                String ownMeterId = "meter-" + writer;
+                int lane = writer;
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < batchesPerWriter; i++) {
+                        Instant first = Instant.ofEpochSecond((long) (i * writers + lane) * readingsPerBatch);
+                        List<ElectricityReading> batch = readingsEvery(Duration.ofSeconds(1), first, readingsPerBatch);
+                        readingStore.append(SMART_METER_ID, batch);
+                        readingStore.append(ownMeterId, batch);
+                    }
+                    return null;
+                }));
+            }
+            for (int reader = 0; reader < 2; reader++) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < batchesPerWriter; i++) {
+                        List<ElectricityReading> readings =
+                                readingStore.getReadings(SMART_METER_ID).orElse(List.of());
+                        assertThat(readings.size() % readingsPerBatch).isZero();
+                        if (i % 50 == 0) {
+                            assertThat(readings).isSortedAccordingTo(Comparator.comparing(ElectricityReading::time));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(readingStore.getReadings(SMART_METER_ID).get())
+                .hasSize(writers * batchesPerWriter * readingsPerBatch);
+        for (int writer = 0; writer < writers; writer++) {
+            assertThat(readingStore.getReadings("meter-" + writer).get()).hasSize(batchesPerWriter * readingsPerBatch);
+        }
+    }
+
+    private static List<ElectricityReading> readingsEvery(Duration interval, Instant start, int count) {
+        List<ElectricityReading> readings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            readings.add(new ElectricityReading(start.plus(interval.multipliedBy(i)), BigDecimal.valueOf(i % 97, 2)));
+        }
+        return readings;
+    }
+}
@@ -0,0 +1,73 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class CompressedBlockTest {
+
+    @Test
+    public void shouldDecodeReadingsExactlyAsTheyWereEncoded() {
+        shouldDecodeReadingsExactlyAsTheyWereEncoded(BlockMemory.HEAP);
+    }
+
+    @Test
+    public void shouldDecodeReadingsFromDirectMemoryExactlyAsTheyWereEncoded() {
+        try (DirectBlockArena arena = new DirectBlockArena(64 * 1024)) {
+            shouldDecodeReadingsExactlyAsTheyWereEncoded(arena);
+        }
+    }
+
+    private static void shouldDecodeReadingsExactlyAsTheyWereEncoded(BlockMemory memory) {
+        Random random = new Random(7);
+        int count = CompressedBlock.READINGS;
+        long[] epochSeconds = new long[count];
+        int[] nanos = new int[count];
+        long[] unscaledReadings = new long[count];
+        byte[] readingScales = new byte[count];
+        long epochSecond = 1_714_089_600L;
+        for (int i = 0; i < count; i++) {
+            epochSecond += i % 100 == 0 ? -random.nextInt(100_000) : 10 + random.nextInt(3);
+            epochSeconds[i] = epochSecond;
+            nanos[i] = i % 7 == 0 ? random.nextInt(1_000_000_000) : 0;
+            unscaledReadings[i] = i % 50 == 0 ? random.nextLong() : random.nextInt(20_000) - 10_000;
+            readingScales[i] = (byte) (i % 200 == 0 ? random.nextInt(10) : 4);
+        }
+
+        CompressedBlock block =
+                CompressedBlock.encode(epochSeconds, nanos, unscaledReadings, readingScales, count, memory);
+
+        long[] decodedEpochSeconds = new long[count + 1];
+        int[] decodedNanos = new int[count + 1];
+        long[] decodedUnscaledReadings = new long[count + 1];
+        byte[] decodedReadingScales = new byte[count + 1];
+        block.decode(decodedEpochSeconds, decodedNanos, decodedUnscaledReadings, decodedReadingScales, 1);
+        assertThat(decodedEpochSeconds).endsWith(epochSeconds);
+        assertThat(decodedNanos).endsWith(nanos);
+        assertThat(decodedUnscaledReadings).endsWith(unscaledReadings);
+        assertThat(decodedReadingScales).endsWith(readingScales);
+        assertThat(block.lastEpochSecond()).isEqualTo(epochSeconds[count - 1]);
+        assertThat(block.lastNano()).isEqualTo(nanos[count - 1]);
+    }
+
+    @Test
+    public void shouldTakeAFewBytesPerReadingTakenAtASteadyInterval() {
+        int count = CompressedBlock.READINGS;
+        long[] epochSeconds = new long[count];
+        int[] nanos = new int[count];
+        long[] unscaledReadings = new long[count];
+        byte[] readingScales = new byte[count];
+        Random random = new Random(11);
+        for (int i = 0; i < count; i++) {
+            epochSeconds[i] = 1_714_089_600L + 10L * i;
+            unscaledReadings[i] = random.nextInt(20_000);
+            readingScales[i] = 4;
+        }
+
+        CompressedBlock block = CompressedBlock.encode(
+                epochSeconds, nanos, unscaledReadings, readingScales, count, BlockMemory.HEAP);
+
+        assertThat(block.sizeInBytes()).isLessThan(count * 4);
+    }
+}
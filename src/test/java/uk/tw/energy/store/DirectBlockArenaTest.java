@@ -0,0 +1,60 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+public class DirectBlockArenaTest {
+
+    @Test
+    public void sizeClassShouldBeTheSmallestRegionThatHoldsTheBytes() {
+        for (int bytes = 1; bytes <= 64 * 1024; bytes++) {
+            int sizeClass = DirectBlockArena.sizeClass(bytes);
+            assertThat(DirectBlockArena.regionBytes(sizeClass)).isGreaterThanOrEqualTo(bytes);
+            if (sizeClass > 0) {
+                assertThat(DirectBlockArena.regionBytes(sizeClass - 1)).isLessThan(bytes);
+            }
+        }
+    }
+
+    @Test
+    public void regionsShouldWasteAtMostAFifthOfTheirBytes() {
+        for (int bytes = DirectBlockArena.MIN_REGION_BYTES; bytes <= 64 * 1024; bytes++) {
+            int regionBytes = DirectBlockArena.regionBytes(DirectBlockArena.sizeClass(bytes));
+            assertThat(regionBytes - bytes).isLessThanOrEqualTo(regionBytes / 5);
+        }
+    }
+
+    @Test
+    public void shouldHandBackExactlyTheBytesStored() {
+        try (DirectBlockArena arena = new DirectBlockArena(1024)) {
+            byte[] data = new byte[300];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) i;
+            }
+
+            ByteBuffer small = arena.store(data, 100);
+            ByteBuffer oversized = arena.store(new byte[2000], 2000);
+
+            assertThat(small.isDirect()).isTrue();
+            assertThat(small.capacity()).isEqualTo(100);
+            assertThat(small.get(99)).isEqualTo((byte) 99);
+            assertThat(oversized.capacity()).isEqualTo(2000);
+            assertThat(arena.usedBytes()).isEqualTo(2100);
+            assertThat(arena.reservedBytes()).isEqualTo(1024 + 2000);
+        }
+    }
+
+    @Test
+    public void shouldRefuseToStoreOnceClosed() {
+        DirectBlockArena arena = new DirectBlockArena(1024);
+        ByteBuffer stored = arena.store(new byte[] {42}, 1);
+
+        arena.close();
+
+        assertThat(stored.get(0)).isEqualTo((byte) 42);
+        assertThatThrownBy(() -> arena.store(new byte[1], 1)).isInstanceOf(IllegalStateException.class);
+    }
+}
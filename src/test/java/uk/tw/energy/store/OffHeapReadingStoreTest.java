@@ -0,0 +1,67 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadingAggregate;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+public class OffHeapReadingStoreTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+
+    private final OffHeapReadingStore readingStore = new OffHeapReadingStore(64 * 1024);
+
+    @AfterEach
+    public void tearDown() {
+        readingStore.close();
+    }
+
+    @Test
+    public void shouldReturnReadingsExactlyAsTheyWereAppendedAcrossBlocksInDirectMemory() {
+        List<ElectricityReading> readings =
+                new ElectricityReadingsGenerator().generate(5 * CompressedBlock.READINGS + 7);
+
+        readingStore.append(SMART_METER_ID, readings.subList(0, 1000));
+        readingStore.append(SMART_METER_ID, readings.subList(1000, readings.size()));
+
+        assertThat(readingStore.getReadings(SMART_METER_ID)).contains(readings);
+        assertThat(readingStore.usedBytes()).isPositive();
+        assertThat(readingStore.reservedBytes()).isGreaterThanOrEqualTo(readingStore.usedBytes());
+    }
+
+    @Test
+    public void retentionShouldKeepTheRetainedReadingsInDirectMemory() {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(3 * CompressedBlock.READINGS);
+        readingStore.append(SMART_METER_ID, readings);
+        MeterReadingAggregate history = readingStore.getAggregate(SMART_METER_ID).get();
+        Instant latest = readings.get(readings.size() - 1).time();
+
+        readingStore.applyRetention(new ReadingRetention(Duration.ofHours(1), null, null), latest);
+
+        List<ElectricityReading> kept = readingStore.getReadings(SMART_METER_ID).get();
+        assertThat(kept).isNotEmpty().isSubsetOf(readings);
+        assertThat(kept).allSatisfy(reading -> assertThat(reading.time()).isAfter(latest.minus(Duration.ofHours(2))));
+        assertThat(readingStore.getAggregate(SMART_METER_ID)).contains(history);
+    }
+
+    @Test
+    public void shouldBeEmptyAndRefuseToSealBlocksOnceClosed() {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(2 * CompressedBlock.READINGS);
+        readingStore.append(SMART_METER_ID, readings);
+        List<ElectricityReading> handedOut = readingStore.getReadings(SMART_METER_ID).get();
+
+        readingStore.close();
+
+        assertThat(readingStore.getReadings(SMART_METER_ID)).isEmpty();
+        assertThat(handedOut).isEqualTo(readings);
+        assertThatThrownBy(() -> readingStore.append(SMART_METER_ID, readings))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
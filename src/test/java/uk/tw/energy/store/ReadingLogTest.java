@@ -0,0 +1,259 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.domain.RollupTier;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.service.AccountService;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.service.PricePlanService;
+
+public class ReadingLogTest {
+
+    private static final long SMALL_SEGMENT_BYTES = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldRebuildTheStoreByReplayingTheLogAcrossSegments() throws IOException {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(100);
+        ColumnarReadingStore original = new ColumnarReadingStore();
+        try (DurableReadingStore store = durableStore(original)) {
+            for (int i = 0; i < readings.size(); i += 10) {
+                store.append("meter-" + (i % 3), readings.subList(i, i + 10));
+            }
+        }
+
+        ColumnarReadingStore rebuilt = new ColumnarReadingStore();
+        try (DurableReadingStore store = durableStore(rebuilt)) {
+            assertThat(store.recover()).isTrue();
+        }
+
+        assertThat(segments()).hasSizeGreaterThan(1);
+        for (int meter = 0; meter < 3; meter++) {
+            assertThat(rebuilt.getReadings("meter-" + meter)).isEqualTo(original.getReadings("meter-" + meter));
+        }
+    }
+
+    @Test
+    public void shouldCutOffATornRecordAndKeepAppendingAfterIt() throws IOException {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(3);
+        try (DurableReadingStore store = durableStore(new ColumnarReadingStore())) {
+            store.append("meter-0", readings.subList(0, 1));
+            store.append("meter-0", readings.subList(1, 2));
+        }
+        Path lastSegment = segments().get(segments().size() - 1);
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        ColumnarReadingStore recovered = new ColumnarReadingStore();
+        try (DurableReadingStore store = durableStore(recovered)) {
+            store.recover();
+            assertThat(recovered.getReadings("meter-0")).contains(readings.subList(0, 1));
+            store.append("meter-0", readings.subList(2, 3));
+        }
+
+        ColumnarReadingStore rebuilt = new ColumnarReadingStore();
+        try (DurableReadingStore store = durableStore(rebuilt)) {
+            store.recover();
+        }
+        assertThat(rebuilt.getReadings("meter-0")).contains(List.of(readings.get(0), readings.get(2)));
+    }
+
+    @Test
+    public void shouldLogEveryAppendOfConcurrentGroupCommits() throws Exception {
+        int writers = 8;
+        int appendsPerWriter = 200;
+        ReadingBatch reading = new ReadingBatch();
+        reading.add(new ElectricityReadingsGenerator().generate(1).get(0));
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try (ReadingLog log = openLog()) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                String smartMeterId = "meter-" + writer;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < appendsPerWriter; i++) {
+                        log.append(smartMeterId, reading);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+
+            int[] records = new int[1];
+            log.replay(0, (position, smartMeterId, readings) -> records[0]++);
+            assertThat(records[0]).isEqualTo(writers * appendsPerWriter);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldRestoreFromSnapshotAndTheLogAfterIt() throws IOException {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(100);
+        ColumnarReadingStore original = new ColumnarReadingStore();
+        Map<String, String> accounts = Map.of("meter-0", "price-plan-0", "meter-1", "price-plan-1");
+        try (DurableReadingStore store = durableStore(original)) {
+            store.append("meter-0", readings.subList(0, 40));
+            store.append("meter-1", readings.subList(40, 60));
+            store.applyRetention(
+                    new ReadingRetention(Duration.ofSeconds(300), null, null), readings.get(99).time());
+            store.snapshot(accounts);
+            store.append("meter-1", readings.subList(60, 100));
+        }
+
+        ColumnarReadingStore rebuilt = new ColumnarReadingStore();
+        try (DurableReadingStore store = durableStore(rebuilt)) {
+            assertThat(store.recover()).isTrue();
+        }
+
+        assertThat(new ReadingSnapshots(directory).latestAccounts()).contains(accounts);
+        for (String smartMeterId : List.of("meter-0", "meter-1")) {
+            assertThat(rebuilt.getReadings(smartMeterId)).isEqualTo(original.getReadings(smartMeterId));
+            assertThat(rebuilt.getAggregate(smartMeterId)).isEqualTo(original.getAggregate(smartMeterId));
+            assertThat(rebuilt.getRollups(smartMeterId, RollupTier.MINUTE, null, null))
+                    .isEqualTo(original.getRollups(smartMeterId, RollupTier.MINUTE, null, null));
+        }
+    }
+
+    @Test
+    public void shouldRestoreAccountsSwitchedBeforeAndAfterTheLatestSnapshot() throws IOException {
+        try (DurableReadingStore store = durableStore(new ColumnarReadingStore())) {
+            AccountService accountService =
+                    new AccountService(Map.of("meter-0", "price-plan-0", "meter-1", "price-plan-1"), store);
+            accountService.updateAccounts(Map.of("meter-1", "price-plan-0"));
+            assertThat(new ReadingSnapshots(directory).latestAccounts())
+                    .contains(Map.of("meter-0", "price-plan-0", "meter-1", "price-plan-0"));
+
+            store.snapshot(accountService.getSmartMeterToPricePlanAccounts());
+            accountService.updateAccounts(Map.of("meter-0", "price-plan-1"));
+        }
+
+        AccountService restored =
+                new AccountService(new ReadingSnapshots(directory).latestAccounts().orElseThrow());
+        assertThat(restored.getSmartMeterToPricePlanAccounts())
+                .isEqualTo(Map.of("meter-0", "price-plan-1", "meter-1", "price-plan-0"));
+        assertThat(restored.getSmartMeterIdsOnPricePlan("price-plan-1")).isEqualTo(Set.of("meter-0"));
+    }
+
+    @Test
+    public void shouldKeepSyncingPeriodicallyAfterASyncFails() throws Exception {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        Semaphore failedSyncs = new Semaphore(0);
+        Semaphore syncs = new Semaphore(0);
+        ReadingLog.Force force = segment -> {
+            if (failing.get()) {
+                failedSyncs.release();
+                throw new IOException("Disk unavailable");
+            }
+            segment.force(false);
+            syncs.release();
+        };
+        ReadingBatch reading = new ReadingBatch();
+        reading.add(new ElectricityReadingsGenerator().generate(1).get(0));
+        try (ReadingLog log = new ReadingLog(
+                directory, SMALL_SEGMENT_BYTES, ReadingLog.Sync.PERIODIC, Duration.ofMillis(10), force)) {
+            log.append("meter-0", reading);
+            assertThat(failedSyncs.tryAcquire(2, 10, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> log.append("meter-0", reading))
+                    .isInstanceOf(IOException.class)
+                    .hasRootCauseMessage("Disk unavailable");
+
+            failing.set(false);
+            assertThat(syncs.tryAcquire(10, TimeUnit.SECONDS)).isTrue();
+            log.sync();
+            log.append("meter-0", reading);
+        }
+    }
+
+    @Test
+    public void shouldInvalidateCachedCostsOfReadingsAppliedBeforeTheirSyncFailed() throws Exception {
+        AtomicBoolean failing = new AtomicBoolean(false);
+        Semaphore failedSyncs = new Semaphore(0);
+        ReadingLog.Force force = segment -> {
+            if (failing.get()) {
+                failedSyncs.release();
+                throw new IOException("Disk unavailable");
+            }
+            segment.force(false);
+        };
+        Instant time = Instant.parse("2024-04-26T00:00:00Z");
+        List<PricePlan> pricePlans = List.of(new PricePlan("price-plan-0", null, BigDecimal.ONE, null));
+        ReadingLog log =
+                new ReadingLog(directory, SMALL_SEGMENT_BYTES, ReadingLog.Sync.PERIODIC, Duration.ofMillis(10), force);
+        try (DurableReadingStore store =
+                new DurableReadingStore(new ColumnarReadingStore(), log, new ReadingSnapshots(directory))) {
+            MeterReadingService meterReadingService = new MeterReadingService(store);
+            PricePlanService pricePlanService = new PricePlanService(pricePlans, meterReadingService);
+            meterReadingService.storeReadings(
+                    "meter-0",
+                    List.of(
+                            new ElectricityReading(time, BigDecimal.ONE),
+                            new ElectricityReading(time.plusSeconds(3600), BigDecimal.ONE)));
+            pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan("meter-0");
+
+            log.sync();
+
+            failing.set(true);
+            ReadingBatch unsynced = new ReadingBatch();
+            unsynced.add(new ElectricityReading(time, BigDecimal.ONE));
+            log.write("meter-1", unsynced);
+            assertThat(failedSyncs.tryAcquire(2, 10, TimeUnit.SECONDS)).isTrue();
+            assertThatThrownBy(() -> meterReadingService.storeReadings(
+                            "meter-0", List.of(new ElectricityReading(time.plusSeconds(7200), BigDecimal.valueOf(7)))))
+                    .isInstanceOf(UncheckedIOException.class);
+
+            assertThat(pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan("meter-0"))
+                    .isEqualTo(new PricePlanService(pricePlans, meterReadingService)
+                            .getConsumptionCostOfElectricityReadingsForEachPricePlan("meter-0"))
+                    .isNotEqualTo(Optional.of(Map.of("price-plan-0", BigDecimal.ONE)));
+        }
+    }
+
+    private DurableReadingStore durableStore(ColumnarReadingStore readingStore) throws IOException {
+        return new DurableReadingStore(readingStore, openLog(), new ReadingSnapshots(directory));
+    }
+
+    private ReadingLog openLog() throws IOException {
+        return new ReadingLog(directory, SMALL_SEGMENT_BYTES, ReadingLog.Sync.GROUP_COMMIT, Duration.ofMillis(10));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".wal"))
+                    .sorted()
+                    .toList();
+        }
+    }
+}